@@ -0,0 +1,79 @@
+package com.example.vtkbackend.benchmarks;
+
+import com.example.vtkbackend.benchmarks.SyntheticDatasets.Format;
+import com.example.vtkbackend.model.GeologicalData;
+import com.example.vtkbackend.parser.CsvParser;
+import com.example.vtkbackend.query.DatasetIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingesting {@code appended} rows added to a CSV of {@code points} rows, incrementally (parse and
+ * index only the new rows) versus by re-parsing and re-indexing the whole file as an upload would.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class AppendBenchmark {
+
+    @Param({"1000000"})
+    public int points;
+
+    @Param({"1000", "100000"})
+    public int appended;
+
+    private final CsvParser csv = new CsvParser();
+    private Path file;
+    private GeologicalData previous;
+    private DatasetIndex previousIndex;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        file = SyntheticDatasets.file(SyntheticDatasets.DEFAULT_DIRECTORY, Format.CSV, points + appended);
+        // The dataset as parsed before the rows were appended: the header and the first `points` rows
+        Path prefix = Files.createTempFile("append-benchmark", ".csv");
+        try (InputStream in = Files.newInputStream(file)) {
+            Files.write(prefix, in.readNBytes(Math.toIntExact(rowsEnd(file, points))));
+        }
+        previous = csv.parse(prefix);
+        previousIndex = DatasetIndex.build(previous);
+        Files.delete(prefix);
+    }
+
+    @Benchmark
+    public DatasetIndex incremental() throws IOException {
+        return DatasetIndex.append(previousIndex, csv.append(file, previous));
+    }
+
+    @Benchmark
+    public DatasetIndex fullReingest() throws IOException {
+        return DatasetIndex.build(csv.parse(file));
+    }
+
+    // Byte offset just past the header and the given number of rows
+    private static long rowsEnd(Path file, int rows) throws IOException {
+        long offset = 0;
+        int lines = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[1 << 16];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] == '\n' && ++lines == rows + 1) {
+                        return offset + i + 1;
+                    }
+                }
+                offset += n;
+            }
+        }
+        throw new IOException(file + " has fewer than " + rows + " rows");
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.vtkbackend.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of {@code benchmarks/target/benchmarks.jar}. Accepts the usual JMH command line
+ * but defaults to writing machine-readable results to {@code target/jmh-result.json}
+ * (override with {@code -rf}/{@code -rff}) so runs can be archived and diffed for regressions.
+ *
+ * <pre>
+ * mvn -pl benchmarks -am package
+ * java -jar benchmarks/target/benchmarks.jar                            # default sizes (10K, 1M)
+ * java -jar benchmarks/target/benchmarks.jar -p points=100000000 parseCsv  # 100M-point CSV run
+ * </pre>
+ *
+ * Generated datasets are cached in {@code target/datasets} ({@code -Dbench.datasets=...}).
+ * Sizes above 10M points need a larger heap than the forks default to ({@code -jvmArgs -Xmx..}).
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> effective = new ArrayList<>(Arrays.asList(args));
+        if (!effective.contains("-rf")) {
+            effective.addAll(0, List.of("-rf", "json"));
+        }
+        if (!effective.contains("-rff")) {
+            effective.addAll(0, List.of("-rff", "target/jmh-result.json"));
+        }
+        Main.main(effective.toArray(String[]::new));
+    }
+}
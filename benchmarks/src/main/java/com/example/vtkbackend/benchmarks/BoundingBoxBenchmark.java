@@ -0,0 +1,31 @@
+package com.example.vtkbackend.benchmarks;
+
+import com.example.vtkbackend.model.GeologicalData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class BoundingBoxBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int points;
+
+    private List<GeologicalData.Point3D> data;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        data = SyntheticDatasets.points(points, SyntheticDatasets.DEFAULT_SEED);
+    }
+
+    @Benchmark
+    public GeologicalData.BoundingBox calculateBoundingBox() {
+        return GeologicalData.BoundingBox.of(data);
+    }
+}
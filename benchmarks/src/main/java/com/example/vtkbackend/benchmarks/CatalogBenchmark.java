@@ -0,0 +1,67 @@
+package com.example.vtkbackend.benchmarks;
+
+import com.example.vtkbackend.catalog.CatalogEntry;
+import com.example.vtkbackend.catalog.DensityGrid;
+import com.example.vtkbackend.catalog.SpatialCatalog;
+import com.example.vtkbackend.model.GeologicalData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Viewport queries against a catalog of {@code datasets} georeferenced datasets of up to a degree
+ * across, scattered over the globe. {@code viewport} is the viewport's width in degrees (half as
+ * high), from a city to the whole world; results are capped at the default 1000.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"100000"})
+    public int datasets;
+
+    @Param({"0.5", "10", "360"})
+    public double viewport;
+
+    private SpatialCatalog catalog;
+    private double[] corners;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(SyntheticDatasets.DEFAULT_SEED);
+        catalog = new SpatialCatalog();
+        for (int i = 0; i < datasets; i++) {
+            double x = random.nextDouble() * 359 - 180;
+            double y = random.nextDouble() * 169 - 85;
+            GeologicalData.BoundingBox extent = new GeologicalData.BoundingBox(
+                x, y, 0, x + random.nextDouble(), y + random.nextDouble(), 100);
+            int points = 1000 + random.nextInt(1_000_000);
+            int[] counts = new int[DensityGrid.DEFAULT_SIZE * DensityGrid.DEFAULT_SIZE];
+            for (int p = 0; p < counts.length; p++) {
+                counts[p] = points / counts.length;
+            }
+            catalog.put(new CatalogEntry("dataset-" + i, "dataset-" + i + ".csv", "csv", "EPSG:4326", true,
+                points, 0, null, extent, new DensityGrid(DensityGrid.DEFAULT_SIZE, counts)));
+        }
+        corners = new double[QUERIES * 2];
+        for (int q = 0; q < QUERIES; q++) {
+            corners[2 * q] = random.nextDouble() * Math.max(0, 360 - viewport) - 180;
+            corners[2 * q + 1] = random.nextDouble() * Math.max(0, 180 - viewport / 2) - 90;
+        }
+    }
+
+    @Benchmark
+    public SpatialCatalog.Viewport query() {
+        int q = next++ & (QUERIES - 1);
+        double minX = corners[2 * q], minY = corners[2 * q + 1];
+        return catalog.viewport(true, minX, minY, minX + viewport, minY + viewport / 2, 2_000_000, 1000);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.vtkbackend.benchmarks;
+
+import com.example.vtkbackend.encoding.QuantizedCodec;
+import com.example.vtkbackend.model.GeologicalData;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of the quantized {@code /data} format against plain JSON. Payload sizes
+ * are printed once per trial so wire bytes can be compared alongside the timings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class EncodingBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int points;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private GeologicalData data;
+    private byte[] json;
+    private byte[] quantized16;
+    private byte[] quantized32;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        data = SyntheticDatasets.data(points, SyntheticDatasets.DEFAULT_SEED);
+        json = objectMapper.writeValueAsBytes(data);
+        quantized16 = QuantizedCodec.encode(data, 16);
+        quantized32 = QuantizedCodec.encode(data, 32);
+        System.out.printf("%nPayload bytes for %d points: json=%d quantized16=%d (%.1f%%) quantized32=%d (%.1f%%)%n",
+            points, json.length,
+            quantized16.length, 100.0 * quantized16.length / json.length,
+            quantized32.length, 100.0 * quantized32.length / json.length);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return objectMapper.writeValueAsBytes(data);
+    }
+
+    @Benchmark
+    public byte[] encodeQuantized16() {
+        return QuantizedCodec.encode(data, 16);
+    }
+
+    @Benchmark
+    public byte[] encodeQuantized32() {
+        return QuantizedCodec.encode(data, 32);
+    }
+
+    // A browser's JSON.parse builds a generic tree as well
+    @Benchmark
+    public JsonNode decodeJson() throws IOException {
+        return objectMapper.readTree(json);
+    }
+
+    @Benchmark
+    public QuantizedCodec.Decoded decodeQuantized16() {
+        return QuantizedCodec.decode(quantized16);
+    }
+
+    @Benchmark
+    public QuantizedCodec.Decoded decodeQuantized32() {
+        return QuantizedCodec.decode(quantized32);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.vtkbackend.benchmarks;
+
+import com.example.vtkbackend.mesh.MeshLods;
+import com.example.vtkbackend.mesh.TriangleMesh;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the levels of detail of a terrain-like mesh (a noisy height field on a regular grid),
+ * as done in the background after an STL upload, and indexing the parsed triangle soup that
+ * precedes it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class MeshSimplificationBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int triangles;
+
+    private TriangleMesh mesh;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        int cells = (int) Math.sqrt(triangles / 2.0);
+        int side = cells + 1;
+        Random random = new Random(SyntheticDatasets.DEFAULT_SEED);
+        double[] positions = new double[side * side * 3];
+        for (int y = 0, v = 0; y < side; y++) {
+            for (int x = 0; x < side; x++, v += 3) {
+                positions[v] = x;
+                positions[v + 1] = y;
+                positions[v + 2] = 30 * Math.sin(x / 40.0) * Math.cos(y / 55.0) + random.nextDouble();
+            }
+        }
+        int[] indices = new int[cells * cells * 6];
+        for (int y = 0, i = 0; y < cells; y++) {
+            for (int x = 0; x < cells; x++) {
+                int a = y * side + x, b = a + 1, c = a + side, d = c + 1;
+                indices[i++] = a;
+                indices[i++] = b;
+                indices[i++] = d;
+                indices[i++] = a;
+                indices[i++] = d;
+                indices[i++] = c;
+            }
+        }
+        mesh = new TriangleMesh(positions, indices);
+    }
+
+    @Benchmark
+    public MeshLods buildLods() {
+        return MeshLods.build(mesh, 1000, 8);
+    }
+
+    @Benchmark
+    public TriangleMesh weldSoup() {
+        return TriangleMesh.fromTriangleSoup(mesh.toTriangleSoup());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.vtkbackend.benchmarks;
+
+import com.example.vtkbackend.benchmarks.SyntheticDatasets.Format;
+import com.example.vtkbackend.model.GeologicalData;
+import com.example.vtkbackend.parser.CsvParser;
+import com.example.vtkbackend.parser.GeoJsonLParser;
+import com.example.vtkbackend.parser.GeoJsonParser;
+import com.example.vtkbackend.parser.KmlParser;
+import com.example.vtkbackend.parser.StlParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parser throughput per format. Each format has its own state so only the file being measured
+ * is generated.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParserBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Parsers {
+        final CsvParser csv = new CsvParser();
+        final GeoJsonParser geoJson = new GeoJsonParser();
+        final GeoJsonLParser geoJsonL = new GeoJsonLParser();
+        final KmlParser kml = new KmlParser();
+        final StlParser stl = new StlParser();
+    }
+
+    @State(Scope.Benchmark)
+    public abstract static class Dataset {
+        @Param({"10000", "1000000"})
+        public int points;
+
+        Path file;
+
+        abstract Format format();
+
+        @Setup(Level.Trial)
+        public void generate() throws IOException {
+            file = SyntheticDatasets.file(SyntheticDatasets.DEFAULT_DIRECTORY, format(), points);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Csv extends Dataset {
+        @Override
+        Format format() {
+            return Format.CSV;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class GeoJson extends Dataset {
+        @Override
+        Format format() {
+            return Format.GEOJSON;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class GeoJsonL extends Dataset {
+        @Override
+        Format format() {
+            return Format.GEOJSONL;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Kml extends Dataset {
+        @Override
+        Format format() {
+            return Format.KML;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Stl extends Dataset {
+        @Override
+        Format format() {
+            return Format.STL;
+        }
+    }
+
+    @Benchmark
+    public GeologicalData parseCsv(Parsers p, Csv d) throws IOException {
+        return p.csv.parse(d.file);
+    }
+
+    @Benchmark
+    public GeologicalData parseGeoJson(Parsers p, GeoJson d) throws IOException {
+        return p.geoJson.parse(d.file);
+    }
+
+    @Benchmark
+    public GeologicalData parseGeoJsonL(Parsers p, GeoJsonL d) throws IOException {
+        return p.geoJsonL.parse(d.file);
+    }
+
+    @Benchmark
+    public GeologicalData parseKml(Parsers p, Kml d) throws IOException {
+        return p.kml.parse(d.file);
+    }
+
+    @Benchmark
+    public GeologicalData parseStl(Parsers p, Stl d) throws IOException {
+        return p.stl.parse(d.file);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.vtkbackend.benchmarks;
+
+import com.example.vtkbackend.benchmarks.SyntheticDatasets.Format;
+import com.example.vtkbackend.model.DatasetQuery;
+import com.example.vtkbackend.model.GeologicalData;
+import com.example.vtkbackend.parser.CsvParser;
+import com.example.vtkbackend.query.DatasetIndex;
+import com.example.vtkbackend.query.QueryEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Attribute queries as served by {@code /files/{id}/query}: a selective conjunction, a broad range,
+ * a bounding box and a lookup on the unique sample id, plus the one-off index build done at ingest.
+ * The dataset is a synthetic survey CSV as parsed at upload, so column types and cardinalities
+ * are the ones the server sees.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int points;
+
+    private GeologicalData data;
+    private DatasetIndex index;
+
+    private final DatasetQuery selective = new DatasetQuery(List.of(
+        new DatasetQuery.Predicate("mineral_type", "eq", "gold", null),
+        new DatasetQuery.Predicate("concentration", "gt", 18.0, null),
+        new DatasetQuery.Predicate("grade", "eq", "high", null)), null, null);
+
+    private final DatasetQuery broad = new DatasetQuery(List.of(
+        new DatasetQuery.Predicate("concentration", "between", null, List.of(4.0, 16.0))), null, 100_000);
+
+    private final DatasetQuery bbox = new DatasetQuery(List.of(
+        new DatasetQuery.Predicate("grade", "in", null, List.of("medium", "high"))),
+        new DatasetQuery.Bounds(500_000.0, 4_500_000.0, null, 502_500.0, 4_502_500.0, null), 100_000);
+
+    private final DatasetQuery sample = new DatasetQuery(List.of(
+        new DatasetQuery.Predicate("sample_id", "eq", "MS0000500", null)), null, null);
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        Path file = SyntheticDatasets.file(SyntheticDatasets.DEFAULT_DIRECTORY, Format.CSV, points);
+        data = new CsvParser().parse(file);
+        index = DatasetIndex.build(data);
+    }
+
+    @Benchmark
+    public GeologicalData selectiveConjunction() {
+        return QueryEngine.execute(index, selective);
+    }
+
+    @Benchmark
+    public GeologicalData broadRange() {
+        return QueryEngine.execute(index, broad);
+    }
+
+    @Benchmark
+    public GeologicalData boundingBox() {
+        return QueryEngine.execute(index, bbox);
+    }
+
+    @Benchmark
+    public GeologicalData sampleLookup() {
+        return QueryEngine.execute(index, sample);
+    }
+
+    @Benchmark
+    public DatasetIndex buildIndex() {
+        return DatasetIndex.build(data);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.vtkbackend.benchmarks;
+
+import com.example.vtkbackend.model.GeologicalData;
+import com.example.vtkbackend.service.ReprojectionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.geotools.referencing.CRS;
+import org.opengis.referencing.operation.MathTransform;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lon/lat to web mercator reprojection of a whole dataset: the bulk, chunked path used at ingest
+ * and query time against transforming one point at a time. Divide {@code points} by the score to
+ * get points per second.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ReprojectionBenchmark {
+
+    private static final String SOURCE = "EPSG:4326";
+    private static final String TARGET = "EPSG:3857";
+
+    @Param({"100000", "1000000"})
+    public int points;
+
+    private ReprojectionService service;
+    private MathTransform transform;
+    private GeologicalData data;
+
+    @Setup(Level.Trial)
+    public void generate() throws Exception {
+        service = new ReprojectionService("", "", new SimpleMeterRegistry());
+        transform = CRS.findMathTransform(CRS.decode(SOURCE, true), CRS.decode(TARGET, true), true);
+        Random random = new Random(SyntheticDatasets.DEFAULT_SEED);
+        List<GeologicalData.Point3D> list = new ArrayList<>(points);
+        for (int i = 0; i < points; i++) {
+            list.add(new GeologicalData.Point3D(
+                10 + random.nextDouble(), 45 + random.nextDouble(), random.nextDouble() * 100));
+        }
+        data = new GeologicalData(list, List.of(), Map.of("crs", SOURCE),
+            new GeologicalData.BoundingBox(10, 45, 0, 11, 46, 100), List.of());
+    }
+
+    @Benchmark
+    public GeologicalData bulk() {
+        return service.reproject(data, SOURCE, TARGET);
+    }
+
+    @Benchmark
+    public List<GeologicalData.Point3D> pointByPoint() throws Exception {
+        List<GeologicalData.Point3D> result = new ArrayList<>(points);
+        double[] xy = new double[2];
+        for (GeologicalData.Point3D p : data.points()) {
+            xy[0] = p.x();
+            xy[1] = p.y();
+            transform.transform(xy, 0, xy, 0, 1);
+            result.add(new GeologicalData.Point3D(xy[0], xy[1], p.z()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.vtkbackend.benchmarks;
+
+import com.example.vtkbackend.model.GeologicalData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of {@link GeologicalData}, as done for every {@code /data} response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int points;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private GeologicalData data;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        data = SyntheticDatasets.data(points, SyntheticDatasets.DEFAULT_SEED);
+    }
+
+    // Streams to a counting sink: large datasets would not fit in a single byte[]
+    @Benchmark
+    public long serializeJson() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        objectMapper.writeValue(out, data);
+        return out.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.vtkbackend.benchmarks;
+
+import com.example.vtkbackend.model.GeologicalData;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic survey datasets. The same (format, size, seed) always produces
+ * byte-identical output so benchmark runs stay comparable across commits.
+ *
+ * <p>Points are a noisy elevation surface over a 10km x 10km UTM-like grid, with the same
+ * attribute columns as the field survey CSVs.</p>
+ */
+public final class SyntheticDatasets {
+
+    public static final long DEFAULT_SEED = 42L;
+
+    /**
+     * Part of every cached file name; bump it with any change to what the generator writes, so files
+     * cached by an earlier version are not reused.
+     */
+    public static final int GENERATOR_VERSION = 1;
+
+    /** Where generated files are cached between runs; override with {@code -Dbench.datasets}. */
+    public static final Path DEFAULT_DIRECTORY = Path.of(System.getProperty("bench.datasets", "target/datasets"));
+
+    private static final String[] MINERALS = {"gold", "silver", "copper", "iron", "zinc"};
+    private static final String[] GRADES = {"low", "medium", "high"};
+
+    public enum Format {
+        CSV("csv"), GEOJSON("geojson"), GEOJSONL("geojsonl"), KML("kml"), STL("stl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    private SyntheticDatasets() {
+    }
+
+    /** {@link #file(Path, Format, int, long)} with {@link #DEFAULT_SEED}. */
+    public static Path file(Path directory, Format format, int points) throws IOException {
+        return file(directory, format, points, DEFAULT_SEED);
+    }
+
+    /**
+     * Returns the dataset file for the given format, point count and seed, generating it under
+     * {@code directory} on first use. Cached files are named after the generator version, seed and
+     * size. For STL, {@code points} is rounded down to whole triangles.
+     */
+    public static Path file(Path directory, Format format, int points, long seed) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(
+            "synthetic-v" + GENERATOR_VERSION + "-s" + seed + "-" + points + "." + format.extension());
+        if (Files.exists(file)) {
+            return file;
+        }
+        Path partial = directory.resolve(file.getFileName() + ".partial");
+        write(partial, format, points, seed);
+        Files.move(partial, file);
+        return file;
+    }
+
+    public static void write(Path file, Format format, int points, long seed) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            switch (format) {
+                case CSV -> writeCsv(out, points, seed);
+                case GEOJSON -> writeGeoJson(out, points, seed);
+                case GEOJSONL -> writeGeoJsonL(out, points, seed);
+                case KML -> writeKml(out, points, seed);
+                case STL -> writeStl(out, points, seed);
+            }
+        }
+    }
+
+    public static List<GeologicalData.Point3D> points(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<GeologicalData.Point3D> points = new ArrayList<>(count);
+        double[] xyz = new double[3];
+        for (int i = 0; i < count; i++) {
+            nextPoint(random, xyz);
+            points.add(new GeologicalData.Point3D(xyz[0], xyz[1], xyz[2]));
+        }
+        return points;
+    }
+
+    /**
+     * Point-cloud {@link GeologicalData} as the CSV parser would produce it, without the file round trip.
+     */
+    public static GeologicalData data(int count, long seed) {
+        List<GeologicalData.Point3D> points = points(count, seed);
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (GeologicalData.Point3D p : points) {
+            minX = Math.min(minX, p.x());
+            minY = Math.min(minY, p.y());
+            minZ = Math.min(minZ, p.z());
+            maxX = Math.max(maxX, p.x());
+            maxY = Math.max(maxY, p.y());
+            maxZ = Math.max(maxZ, p.z());
+        }
+        return new GeologicalData(points, List.of(), Map.of("totalPoints", count),
+            new GeologicalData.BoundingBox(minX, minY, minZ, maxX, maxY, maxZ), List.of());
+    }
+
+    private static void nextPoint(SplittableRandom random, double[] xyz) {
+        double x = 500_000 + random.nextDouble() * 10_000;
+        double y = 4_500_000 + random.nextDouble() * 10_000;
+        xyz[0] = x;
+        xyz[1] = y;
+        xyz[2] = 150 + 40 * Math.sin(x / 750.0) * Math.cos(y / 900.0) + random.nextDouble() * 5;
+    }
+
+    private static void writeCsv(Writer out, int points, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] xyz = new double[3];
+        out.write("x,y,z,mineral_type,concentration,grade,sample_id,survey_date\n");
+        for (int i = 0; i < points; i++) {
+            nextPoint(random, xyz);
+            out.write(String.format(Locale.ROOT, "%.3f,%.3f,%.3f,%s,%.3f,%s,MS%07d,2024-02-%02d\n",
+                xyz[0], xyz[1], xyz[2],
+                MINERALS[random.nextInt(MINERALS.length)],
+                random.nextDouble() * 20,
+                GRADES[random.nextInt(GRADES.length)],
+                i, 1 + i % 28));
+        }
+    }
+
+    private static void writeGeoJson(Writer out, int points, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] xyz = new double[3];
+        out.write("{\"type\":\"FeatureCollection\",\"features\":[\n");
+        for (int i = 0; i < points; i++) {
+            nextPoint(random, xyz);
+            if (i > 0) {
+                out.write(",\n");
+            }
+            writeFeature(out, random, xyz, i);
+        }
+        out.write("\n]}\n");
+    }
+
+    private static void writeGeoJsonL(Writer out, int points, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] xyz = new double[3];
+        for (int i = 0; i < points; i++) {
+            nextPoint(random, xyz);
+            writeFeature(out, random, xyz, i);
+            out.write('\n');
+        }
+    }
+
+    // The parsers read geometry coordinates as a list of positions, so points are
+    // written as single-position LineStrings.
+    private static void writeFeature(Writer out, SplittableRandom random, double[] xyz, int i) throws IOException {
+        out.write(String.format(Locale.ROOT,
+            "{\"type\":\"Feature\",\"id\":\"MS%07d\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[%.3f,%.3f,%.3f]]},"
+                + "\"properties\":{\"mineral_type\":\"%s\",\"concentration\":%.3f}}",
+            i, xyz[0], xyz[1], xyz[2], MINERALS[random.nextInt(MINERALS.length)], random.nextDouble() * 20));
+    }
+
+    private static void writeKml(Writer out, int points, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] xyz = new double[3];
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<kml xmlns=\"http://www.opengis.net/kml/2.2\"><Document>\n");
+        for (int i = 0; i < points; i++) {
+            nextPoint(random, xyz);
+            out.write(String.format(Locale.ROOT,
+                "<Placemark><name>MS%07d</name><Point><coordinates>%.3f,%.3f,%.3f</coordinates></Point></Placemark>\n",
+                i, xyz[0], xyz[1], xyz[2]));
+        }
+        out.write("</Document></kml>\n");
+    }
+
+    private static void writeStl(Writer out, int points, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] xyz = new double[3];
+        out.write("solid synthetic\n");
+        for (int t = 0; t < points / 3; t++) {
+            out.write("  facet normal 0 0 1\n    outer loop\n");
+            for (int v = 0; v < 3; v++) {
+                nextPoint(random, xyz);
+                out.write(String.format(Locale.ROOT, "      vertex %.3f %.3f %.3f\n", xyz[0], xyz[1], xyz[2]));
+            }
+            out.write("    endloop\n  endfacet\n");
+        }
+        out.write("endsolid synthetic\n");
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.vtkbackend.benchmarks;
+
+import com.example.vtkbackend.api.TileController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Draw + PNG encode of a procedural 256px tile by {@link TileController}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class TileEncodingBenchmark {
+
+    private final TileController controller = new TileController(new SimpleMeterRegistry());
+    private int counter;
+
+    @Benchmark
+    public ResponseEntity<byte[]> encodePng() throws Exception {
+        // Vary the label so every tile is a fresh image
+        int i = counter++;
+        return controller.xyz("base", 12, i & 0xFFF, (i >>> 12) & 0xFFF);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.vtkbackend.load;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects per-endpoint request latencies and prints throughput and percentiles.
+ * Samples are kept in full (growable long arrays) so percentiles are exact.
+ */
+public final class LatencyRecorder {
+
+    private final Map<String, Samples> endpoints = new ConcurrentHashMap<>();
+    private volatile boolean recording = true;
+
+    public void record(String endpoint, long nanos, boolean success) {
+        if (recording) {
+            endpoints.computeIfAbsent(endpoint, k -> new Samples()).add(nanos, success);
+        }
+    }
+
+    /** Discards everything recorded so far, e.g. at the end of a warm-up phase. */
+    public void reset() {
+        endpoints.clear();
+    }
+
+    public void stop() {
+        recording = false;
+    }
+
+    public void print(PrintStream out, String title, long elapsedNanos) {
+        double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        out.println();
+        out.println("== " + title + " ==");
+        out.printf(Locale.ROOT, "%-28s %8s %7s %9s %9s %9s %9s %9s%n",
+            "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        endpoints.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(e -> {
+            long[] sorted = e.getValue().sorted();
+            out.printf(Locale.ROOT, "%-28s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                e.getKey(), sorted.length, e.getValue().errors(), sorted.length / seconds,
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)),
+                millis(percentile(sorted, 0.999)), millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1]));
+        });
+    }
+
+    public static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+        private int errors;
+
+        synchronized void add(long nanos, boolean success) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+
+        synchronized int errors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.vtkbackend.load;
+
+import com.example.vtkbackend.VtkBackendApplication;
+import com.example.vtkbackend.benchmarks.SyntheticDatasets;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tail latency of cheap requests (tiles, health) while large CSV uploads are being parsed.
+ * Boots the backend in-process twice, once with platform request threads and once with
+ * virtual threads, and prints p50/p99/p99.9 per endpoint for each.
+ *
+ * <pre>
+ * mvn -pl benchmarks -am install -DskipTests
+ * mvn -pl benchmarks exec:exec -Dload.jvmArgs="-Xmx2g -Dload.seconds=30 -Dload.uploaders=8 -Dload.tileClients=32"
+ * </pre>
+ *
+ * In platform mode Tomcat is capped at {@code load.tomcatThreads} (default 32) to model a
+ * production-sized pool; in virtual mode that cap does not apply.
+ */
+public final class MixedTrafficLoadTest {
+
+    private static final int SECONDS = Integer.getInteger("load.seconds", 30);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmupSeconds", 5);
+    private static final int UPLOADERS = Integer.getInteger("load.uploaders", 8);
+    private static final int TILE_CLIENTS = Integer.getInteger("load.tileClients", 32);
+    private static final int UPLOAD_POINTS = Integer.getInteger("load.uploadPoints", 200_000);
+    private static final int TOMCAT_THREADS = Integer.getInteger("load.tomcatThreads", 32);
+
+    private MixedTrafficLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path csv = SyntheticDatasets.file(SyntheticDatasets.DEFAULT_DIRECTORY, SyntheticDatasets.Format.CSV, UPLOAD_POINTS);
+        byte[] upload = multipart("survey.csv", Files.readAllBytes(csv));
+
+        for (boolean virtual : new boolean[] {false, true}) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            long elapsed = run(virtual, upload, recorder);
+            recorder.print(System.out, (virtual ? "virtual" : "platform (" + TOMCAT_THREADS + " Tomcat threads)")
+                + " request threads, " + UPLOADERS + " uploaders, " + TILE_CLIENTS + " tile clients", elapsed);
+        }
+    }
+
+    private static long run(boolean virtual, byte[] upload, LatencyRecorder recorder) throws Exception {
+        Path storage = Files.createTempDirectory("load-uploads");
+        // Arguments rather than builder properties, which application.properties would override
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(VtkBackendApplication.class)
+            .run(
+                "--server.port=0",
+                "--storage.root=" + storage,
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                "--logging.level.root=WARN");
+        try {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            String base = "http://localhost:" + port;
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+            long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+            long end = warmupEnd + TimeUnit.SECONDS.toNanos(SECONDS);
+            List<Thread> workers = new ArrayList<>();
+
+            for (int i = 0; i < UPLOADERS; i++) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/api/geological/upload"))
+                    .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(upload))
+                    .build();
+                workers.add(Thread.ofVirtual().start(() -> loop(client, recorder, "POST /upload", end, r -> request)));
+            }
+            for (int i = 0; i < TILE_CLIENTS; i++) {
+                SplittableRandom random = new SplittableRandom(i);
+                workers.add(Thread.ofVirtual().start(() -> loop(client, recorder, "GET /tiles", end, r ->
+                    HttpRequest.newBuilder(URI.create(base + "/api/tiles/base/12/"
+                        + random.nextInt(4096) + "/" + random.nextInt(4096) + ".png")).build())));
+            }
+            workers.add(Thread.ofVirtual().start(() -> loop(client, recorder, "GET /health", end, r -> {
+                sleep(100);
+                return HttpRequest.newBuilder(URI.create(base + "/api/geological/health")).build();
+            })));
+
+            while (System.nanoTime() < warmupEnd) {
+                sleep(100);
+            }
+            recorder.reset();
+            long measureStart = System.nanoTime();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            recorder.stop();
+            return System.nanoTime() - measureStart;
+        } finally {
+            context.close();
+            FileSystemUtils.deleteRecursively(storage);
+        }
+    }
+
+    interface RequestFactory {
+        HttpRequest next(int iteration);
+    }
+
+    static void loop(HttpClient client, LatencyRecorder recorder, String endpoint, long end, RequestFactory factory) {
+        for (int i = 0; System.nanoTime() < end; i++) {
+            HttpRequest request = factory.next(i);
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                ok = response.statusCode() < 400;
+            } catch (IOException e) {
+                ok = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            recorder.record(endpoint, System.nanoTime() - start, ok);
+        }
+    }
+
+    static final String BOUNDARY = "----vtk-load-boundary";
+
+    static byte[] multipart(String filename, byte[] content) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(content.length + 512);
+        body.write(("--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+            + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(content);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
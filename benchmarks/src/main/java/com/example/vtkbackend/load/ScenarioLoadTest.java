@@ -0,0 +1,339 @@
+package com.example.vtkbackend.load;
+
+import com.example.vtkbackend.VtkBackendApplication;
+import com.example.vtkbackend.benchmarks.SyntheticDatasets;
+import com.example.vtkbackend.benchmarks.SyntheticDatasets.Format;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end throughput and latency of the backend under realistic traffic: uploads of every
+ * supported format, {@code /data} and {@code /query} reads, catalog lookups, proxied and procedural
+ * tiles, and SSE subscribers following a dataset that rows are appended to. The backend runs
+ * in-process with the OSM and Terrarium upstreams replaced by a {@link StubTileUpstream}, and
+ * every file comes from {@link SyntheticDatasets}, so runs are repeatable and need no network.
+ *
+ * <pre>
+ * mvn -pl benchmarks -am install -DskipTests
+ * mvn -pl benchmarks exec:exec -Dload.main=com.example.vtkbackend.load.ScenarioLoadTest \
+ *     -Dload.jvmArgs="-Xmx4g -Dload.scenarios=mixed,read-heavy -Dload.seconds=60"
+ * </pre>
+ *
+ * Each scenario boots a fresh backend and prints requests/s and p50/p99 per endpoint; uploads are
+ * broken down by format. {@code SSE append} is the delay from posting rows to a subscriber
+ * receiving the event for them.
+ */
+public final class ScenarioLoadTest {
+
+    private static final int SECONDS = Integer.getInteger("load.seconds", 30);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmupSeconds", 5);
+    private static final int UPLOAD_POINTS = Integer.getInteger("load.uploadPoints", 50_000);
+    private static final int SEED_POINTS = Integer.getInteger("load.seedPoints", 200_000);
+    private static final int APPEND_ROWS = Integer.getInteger("load.appendRows", 100);
+    private static final long APPEND_INTERVAL_MILLIS = Long.getLong("load.appendIntervalMillis", 250);
+    private static final long UPSTREAM_LATENCY_MILLIS = Long.getLong("load.upstreamLatencyMillis", 20);
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    // Seeded datasets are UTM-like coordinates of unknown CRS, so viewports are matched locally
+    private static final String VIEWPORT = "bbox=500000,4500000,505000,4505000&crs=local";
+    private static final String QUERY = """
+        {"predicates":[{"column":"mineral_type","op":"in","values":["gold","copper"]},\
+        {"column":"concentration","op":"gt","value":10}]}""";
+
+    /** Traffic mixes; client counts are concurrent closed-loop clients of each kind. */
+    enum Scenario {
+        MIXED("mixed", 2, 8, 16, 4),
+        READ_HEAVY("read-heavy", 0, 24, 32, 8),
+        INGEST_HEAVY("ingest-heavy", 8, 4, 8, 4);
+
+        final String label;
+        final int uploaders;
+        final int readers;
+        final int tileClients;
+        final int subscribers;
+
+        Scenario(String label, int uploaders, int readers, int tileClients, int subscribers) {
+            this.label = label;
+            this.uploaders = uploaders;
+            this.readers = readers;
+            this.tileClients = tileClients;
+            this.subscribers = subscribers;
+        }
+
+        static Scenario of(String label) {
+            return Arrays.stream(values())
+                .filter(s -> s.label.equals(label.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown scenario " + label
+                    + "; expected one of " + Arrays.stream(values()).map(s -> s.label).toList()));
+        }
+    }
+
+    private ScenarioLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<Format, byte[]> uploads = new EnumMap<>(Format.class);
+        for (Format format : Format.values()) {
+            Path file = SyntheticDatasets.file(SyntheticDatasets.DEFAULT_DIRECTORY, format, UPLOAD_POINTS);
+            uploads.put(format, MixedTrafficLoadTest.multipart("survey." + format.extension(), Files.readAllBytes(file)));
+        }
+        Path seed = SyntheticDatasets.file(SyntheticDatasets.DEFAULT_DIRECTORY, Format.CSV, SEED_POINTS);
+        byte[] seedUpload = MixedTrafficLoadTest.multipart("seed.csv", Files.readAllBytes(seed));
+        Path rows = SyntheticDatasets.file(SyntheticDatasets.DEFAULT_DIRECTORY, Format.CSV, APPEND_ROWS);
+        byte[] liveUpload = MixedTrafficLoadTest.multipart("live.csv", Files.readAllBytes(rows));
+        byte[] appendedRows = withoutHeader(Files.readAllBytes(rows));
+
+        List<Scenario> scenarios = Arrays.stream(System.getProperty("load.scenarios", "mixed,read-heavy,ingest-heavy")
+            .split(",")).map(Scenario::of).toList();
+        try (StubTileUpstream upstream = new StubTileUpstream(UPSTREAM_LATENCY_MILLIS)) {
+            for (Scenario scenario : scenarios) {
+                LatencyRecorder recorder = new LatencyRecorder();
+                long elapsed = run(scenario, upstream, uploads, seedUpload, liveUpload, appendedRows, recorder);
+                recorder.print(System.out, String.format(Locale.ROOT,
+                    "%s: %d uploaders, %d readers, %d tile clients, %d SSE subscribers",
+                    scenario.label, scenario.uploaders, scenario.readers, scenario.tileClients, scenario.subscribers),
+                    elapsed);
+            }
+        }
+    }
+
+    private static long run(Scenario scenario, StubTileUpstream upstream, Map<Format, byte[]> uploads,
+                            byte[] seedUpload, byte[] liveUpload, byte[] appendedRows,
+                            LatencyRecorder recorder) throws Exception {
+        Path storage = Files.createTempDirectory("load-scenario");
+        // Arguments rather than builder properties, which application.properties would override
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(VtkBackendApplication.class)
+            .run(
+                "--server.port=0",
+                "--storage.root=" + storage,
+                "--tiles.osm.url-template=" + upstream.urlTemplate("osm"),
+                "--tiles.terrarium.url-template=" + upstream.urlTemplate("terrarium"),
+                "--logging.level.root=WARN");
+        try {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            String api = "http://localhost:" + port + "/api";
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+            String dataset = upload(client, api, seedUpload);
+            String live = upload(client, api, liveUpload);
+            String mesh = upload(client, api, uploads.get(Format.STL));
+
+            long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+            long end = warmupEnd + TimeUnit.SECONDS.toNanos(SECONDS);
+            List<Thread> workers = new ArrayList<>();
+            List<Thread> subscribers = new ArrayList<>();
+
+            for (int i = 0; i < scenario.uploaders; i++) {
+                int first = i;
+                workers.add(Thread.ofVirtual().start(() -> uploadLoop(client, recorder, api, uploads, first, end)));
+            }
+            for (int i = 0; i < scenario.readers; i++) {
+                List<Read> reads = List.of(
+                    new Read("GET /data json", api + "/geological/files/" + dataset + "/data?attributes=concentration", null),
+                    new Read("GET /data quantized", api + "/geological/files/" + dataset + "/data?format=quantized", null),
+                    new Read("GET /data mesh lod", api + "/geological/files/" + mesh + "/data?triangles=2000", null),
+                    new Read("POST /query", api + "/geological/files/" + dataset + "/query?attributes=grade", QUERY),
+                    new Read("GET /catalog", api + "/geological/catalog?" + VIEWPORT, null));
+                int offset = i;
+                workers.add(Thread.ofVirtual().start(() -> {
+                    for (int n = offset; System.nanoTime() < end; n++) {
+                        Read read = reads.get(n % reads.size());
+                        send(client, recorder, read.endpoint(), read.request(), HttpResponse.BodyHandlers.discarding());
+                    }
+                }));
+            }
+            for (int i = 0; i < scenario.tileClients; i++) {
+                SplittableRandom random = new SplittableRandom(i);
+                String[] layers = {"osm", "terrarium", "base"};
+                String layer = layers[i % layers.length];
+                workers.add(Thread.ofVirtual().start(() -> MixedTrafficLoadTest.loop(client, recorder,
+                    "GET /tiles/" + layer, end, n -> HttpRequest.newBuilder(URI.create(api + "/tiles/" + layer + "/12/"
+                        + random.nextInt(4096) + "/" + random.nextInt(4096) + ".png")).build())));
+            }
+
+            // Send time of each append, by the row it starts at, for subscribers to measure delivery
+            Map<Integer, Long> appendedAt = new ConcurrentHashMap<>();
+            for (int i = 0; i < scenario.subscribers; i++) {
+                subscribers.add(Thread.ofVirtual().start(() -> subscribe(client, recorder, api, live, appendedAt, end)));
+            }
+            if (scenario.subscribers > 0) {
+                workers.add(Thread.ofVirtual().start(() -> appendLoop(client, recorder, api, live, appendedRows,
+                    appendedAt, end)));
+            }
+
+            while (System.nanoTime() < warmupEnd) {
+                MixedTrafficLoadTest.sleep(100);
+            }
+            recorder.reset();
+            long measureStart = System.nanoTime();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            long elapsed = System.nanoTime() - measureStart;
+            recorder.stop();
+            // Subscribers leave on the first event after the end; one whose stream was dropped is cut off
+            for (Thread subscriber : subscribers) {
+                if (!subscriber.join(Duration.ofSeconds(5))) {
+                    subscriber.interrupt();
+                }
+            }
+            return elapsed;
+        } finally {
+            context.close();
+            FileSystemUtils.deleteRecursively(storage);
+        }
+    }
+
+    private record Read(String endpoint, String uri, String json) {
+
+        HttpRequest request() {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(uri));
+            return json == null
+                ? request.build()
+                : request.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json)).build();
+        }
+    }
+
+    // Uploads each format in turn, deleting every file again so storage stays bounded
+    private static void uploadLoop(HttpClient client, LatencyRecorder recorder, String api,
+                                   Map<Format, byte[]> uploads, int first, long end) {
+        Format[] formats = Format.values();
+        for (int n = first; System.nanoTime() < end; n++) {
+            Format format = formats[n % formats.length];
+            HttpResponse<String> response = send(client, recorder, "POST /upload " + format.extension(),
+                uploadRequest(api, uploads.get(format)), HttpResponse.BodyHandlers.ofString());
+            if (response != null && response.statusCode() == 201) {
+                send(client, recorder, "DELETE /files", HttpRequest.newBuilder(
+                    URI.create(api + "/geological/files/" + id(response.body()))).DELETE().build(),
+                    HttpResponse.BodyHandlers.discarding());
+            }
+        }
+    }
+
+    private static void appendLoop(HttpClient client, LatencyRecorder recorder, String api, String id,
+                                   byte[] rows, Map<Integer, Long> appendedAt, long end) {
+        try {
+            int totalRows = JSON.readTree(client.send(HttpRequest.newBuilder(
+                URI.create(api + "/geological/catalog/" + id)).build(),
+                HttpResponse.BodyHandlers.ofString()).body()).path("points").asInt();
+            // One more append after the end wakes the subscribers so they can leave
+            for (boolean last = false; !last; ) {
+                last = System.nanoTime() >= end;
+                appendedAt.put(totalRows, System.nanoTime());
+                HttpResponse<String> response = send(client, recorder, "POST /append",
+                    HttpRequest.newBuilder(URI.create(api + "/geological/files/" + id + "/append"))
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(rows)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+                if (response != null && response.statusCode() == 200) {
+                    totalRows = JSON.readTree(response.body()).path("totalRows").asInt();
+                }
+                if (!last) {
+                    MixedTrafficLoadTest.sleep(APPEND_INTERVAL_MILLIS);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not look up dataset " + id, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void subscribe(HttpClient client, LatencyRecorder recorder, String api, String id,
+                                  Map<Integer, Long> appendedAt, long end) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(api + "/geological/files/" + id + "/events"))
+            .header("Accept", "text/event-stream")
+            .build();
+        try (Stream<String> lines = client.send(request, HttpResponse.BodyHandlers.ofLines()).body()) {
+            Iterator<String> events = lines.iterator();
+            while (events.hasNext()) {
+                String line = events.next();
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                long received = System.nanoTime();
+                if (received >= end) {
+                    return;
+                }
+                Long sent = appendedAt.get(JSON.readTree(line.substring(5)).path("fromRow").asInt());
+                if (sent != null) {
+                    recorder.record("SSE append", received - sent, true);
+                }
+            }
+        } catch (IOException e) {
+            recorder.record("SSE append", 0, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Sends and records a request; null if it failed without a response
+    private static <T> HttpResponse<T> send(HttpClient client, LatencyRecorder recorder, String endpoint,
+                                            HttpRequest request, HttpResponse.BodyHandler<T> body) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<T> response = client.send(request, body);
+            recorder.record(endpoint, System.nanoTime() - start, response.statusCode() < 400);
+            return response;
+        } catch (IOException e) {
+            recorder.record(endpoint, System.nanoTime() - start, false);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static String upload(HttpClient client, String api, byte[] multipart) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(uploadRequest(api, multipart), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("Seeding upload failed with " + response.statusCode() + ": " + response.body());
+        }
+        return id(response.body());
+    }
+
+    private static HttpRequest uploadRequest(String api, byte[] multipart) {
+        return HttpRequest.newBuilder(URI.create(api + "/geological/upload"))
+            .header("Content-Type", "multipart/form-data; boundary=" + MixedTrafficLoadTest.BOUNDARY)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(multipart))
+            .build();
+    }
+
+    private static String id(String uploadResponse) {
+        try {
+            return JSON.readTree(uploadResponse).path("id").asText();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unexpected upload response " + uploadResponse, e);
+        }
+    }
+
+    // CSV rows without the header line, to append to a dataset
+    private static byte[] withoutHeader(byte[] csv) {
+        int header = new String(csv, StandardCharsets.UTF_8).indexOf('\n') + 1;
+        return Arrays.copyOfRange(csv, header, csv.length);
+    }
+}
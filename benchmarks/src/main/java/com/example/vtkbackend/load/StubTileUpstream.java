@@ -0,0 +1,73 @@
+package com.example.vtkbackend.load;
+
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the OpenStreetMap and Terrarium tile servers, so load tests exercise the
+ * tile proxy without depending on (or hammering) the real upstreams. Every tile is the same small
+ * PNG, served after a fixed delay modelling upstream latency.
+ */
+final class StubTileUpstream implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong requests = new AtomicLong();
+
+    StubTileUpstream(long latencyMillis) throws IOException {
+        byte[] tile = tile();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            MixedTrafficLoadTest.sleep(latencyMillis);
+            exchange.getResponseHeaders().set("Content-Type", "image/png");
+            exchange.sendResponseHeaders(200, tile.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(tile);
+            }
+        });
+        server.start();
+    }
+
+    /** Tile URL template for the backend's {@code tiles.*.url-template} properties. */
+    String urlTemplate(String layer) {
+        return "http://localhost:" + server.getAddress().getPort() + "/" + layer + "/{z}/{x}/{y}.png";
+    }
+
+    long requests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private static byte[] tile() {
+        BufferedImage image = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 256; y++) {
+            for (int x = 0; x < 256; x++) {
+                image.setRGB(x, y, (x << 16) | (y << 8) | 128);
+            }
+        }
+        try {
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", png);
+            return png.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
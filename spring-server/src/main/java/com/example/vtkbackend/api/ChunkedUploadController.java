@@ -0,0 +1,118 @@
+package com.example.vtkbackend.api;
+
+import com.example.vtkbackend.api.GeologicalFileController.ErrorResponse;
+import com.example.vtkbackend.model.UploadStatus;
+import com.example.vtkbackend.service.ChunkedUploadService;
+import com.example.vtkbackend.service.MemoryBudgetExceededException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Resumable uploads for files of any size:
+ * <ol>
+ *   <li>{@code POST /api/geological/uploads} with {@code {"filename", "size"}} (and optionally the
+ *       {@code "crs"} of its coordinates) returns an uploadId</li>
+ *   <li>{@code PUT /api/geological/uploads/{uploadId}?offset=N} with the raw chunk bytes as the body,
+ *       optionally with an {@code X-Chunk-CRC32C} header (hex); chunks may be sent in parallel</li>
+ *   <li>{@code GET /api/geological/uploads/{uploadId}} lists the byte ranges still missing</li>
+ *   <li>{@code POST /api/geological/uploads/{uploadId}/complete} ingests the file like {@code /upload}</li>
+ * </ol>
+ */
+@RestController
+@RequestMapping("/api/geological/uploads")
+@CrossOrigin(origins = "*", exposedHeaders = ChunkedUploadController.CHECKSUM_HEADER)
+public class ChunkedUploadController {
+
+    static final String CHECKSUM_HEADER = "X-Chunk-CRC32C";
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    public ChunkedUploadController(ChunkedUploadService chunkedUploadService) {
+        this.chunkedUploadService = chunkedUploadService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> initiate(@RequestBody InitiateUploadRequest request) {
+        try {
+            UploadStatus status = chunkedUploadService.initiate(request.filename(), request.size(), request.crs());
+            return ResponseEntity.status(HttpStatus.CREATED).body(status);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid upload: " + e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new ErrorResponse("Failed to start upload: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadStatus> status(@PathVariable String uploadId) {
+        return chunkedUploadService.status(uploadId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Responds with the CRC32C of the bytes received, so clients can verify even without sending one
+    @PutMapping("/{uploadId}")
+    public ResponseEntity<?> writeChunk(@PathVariable String uploadId,
+                                        @RequestParam long offset,
+                                        @RequestHeader(name = CHECKSUM_HEADER, required = false) String checksum,
+                                        InputStream body) {
+        try {
+            Long expected = checksum != null ? Long.parseLong(checksum.trim(), 16) : null;
+            return chunkedUploadService.writeChunk(uploadId, offset, body, expected)
+                .<ResponseEntity<?>>map(crc -> ResponseEntity.noContent()
+                    .header(CHECKSUM_HEADER, String.format("%08x", crc))
+                    .build())
+                .orElse(ResponseEntity.notFound().build());
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(CHECKSUM_HEADER + " must be hexadecimal"));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid chunk: " + e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new ErrorResponse("Failed to write chunk: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<?> complete(@PathVariable String uploadId) {
+        try {
+            return chunkedUploadService.complete(uploadId)
+                .<ResponseEntity<?>>map(file -> ResponseEntity.status(HttpStatus.CREATED).body(file))
+                .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid file: " + e.getMessage()));
+        } catch (MemoryBudgetExceededException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.retryAfterSeconds()))
+                .body(new ErrorResponse(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            // The upload is kept; completing can be retried
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(new ErrorResponse("All parsers are busy, retry later"));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new ErrorResponse("Failed to process file: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abort(@PathVariable String uploadId) {
+        return chunkedUploadService.abort(uploadId)
+            ? ResponseEntity.noContent().build()
+            : ResponseEntity.notFound().build();
+    }
+
+    public record InitiateUploadRequest(String filename, long size, String crs) {}
+}
@@ -1,18 +1,51 @@
 package com.example.vtkbackend.api;
 
+import com.example.vtkbackend.catalog.CatalogEntry;
+import com.example.vtkbackend.catalog.SpatialCatalog;
+import com.example.vtkbackend.encoding.QuantizedCodec;
+import com.example.vtkbackend.model.AttributeColumn;
+import com.example.vtkbackend.model.DatasetAppend;
+import com.example.vtkbackend.model.DatasetQuery;
+import com.example.vtkbackend.model.GeologicalData;
 import com.example.vtkbackend.model.GeologicalFile;
+import com.example.vtkbackend.parser.ParserRegistry;
+import com.example.vtkbackend.query.DatasetIndex;
+import com.example.vtkbackend.query.QueryEngine;
+import com.example.vtkbackend.service.BatchIngestException;
+import com.example.vtkbackend.service.BatchIngestService;
+import com.example.vtkbackend.service.CatalogService;
+import com.example.vtkbackend.service.DatasetEventService;
+import com.example.vtkbackend.service.EncodedDataCache;
 import com.example.vtkbackend.service.GeologicalFileService;
+import com.example.vtkbackend.service.MemoryAdmissionService;
+import com.example.vtkbackend.service.MemoryBudgetExceededException;
+import com.example.vtkbackend.service.MeshLodService;
+import com.example.vtkbackend.service.ReprojectionService;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.ZipException;
 
 @RestController
 @RequestMapping("/api/geological")
@@ -20,9 +53,39 @@ import java.util.List;
 public class GeologicalFileController {
 
     private final GeologicalFileService geologicalFileService;
+    private final BatchIngestService batchIngestService;
+    private final EncodedDataCache encodedDataCache;
+    private final ReprojectionService reprojectionService;
+    private final MeshLodService meshLodService;
+    private final MemoryAdmissionService memoryAdmissionService;
+    private final CatalogService catalogService;
+    private final DatasetEventService datasetEventService;
+    private final ParserRegistry parserRegistry;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
 
-    public GeologicalFileController(GeologicalFileService geologicalFileService) {
+    public GeologicalFileController(GeologicalFileService geologicalFileService,
+                                    BatchIngestService batchIngestService,
+                                    EncodedDataCache encodedDataCache,
+                                    ReprojectionService reprojectionService,
+                                    MeshLodService meshLodService,
+                                    MemoryAdmissionService memoryAdmissionService,
+                                    CatalogService catalogService,
+                                    DatasetEventService datasetEventService,
+                                    ParserRegistry parserRegistry,
+                                    ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry) {
         this.geologicalFileService = geologicalFileService;
+        this.batchIngestService = batchIngestService;
+        this.encodedDataCache = encodedDataCache;
+        this.reprojectionService = reprojectionService;
+        this.meshLodService = meshLodService;
+        this.memoryAdmissionService = memoryAdmissionService;
+        this.catalogService = catalogService;
+        this.datasetEventService = datasetEventService;
+        this.parserRegistry = parserRegistry;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
     }
 
     @GetMapping("/health")
@@ -31,19 +94,59 @@ public class GeologicalFileController {
     }
 
 
+    // crs (e.g. EPSG:32633) declares the CRS of the file's coordinates when the format does not imply one
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<?> uploadGeologicalFile(@RequestPart("file") MultipartFile file) {
+    public ResponseEntity<?> uploadGeologicalFile(@RequestPart("file") MultipartFile file,
+                                                  @RequestParam(required = false) String crs) {
         try {
-            GeologicalFile geologicalFile = geologicalFileService.processGeologicalFile(file);
+            GeologicalFile geologicalFile = geologicalFileService.processGeologicalFile(file, crs);
             return ResponseEntity.status(HttpStatus.CREATED).body(geologicalFile);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Invalid file: " + e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return parsersBusy(e);
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(new ErrorResponse("Failed to process file: " + e.getMessage()));
         }
     }
 
+    /**
+     * Several files in one request; parts named {@code *.zip} are expanded. Files are ingested in
+     * parallel and reported individually, so one bad file does not fail the batch.
+     */
+    @PostMapping(value = "/upload/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> uploadBatch(@RequestPart("files") List<MultipartFile> files,
+                                         @RequestParam(required = false) String crs) {
+        try {
+            return ResponseEntity.ok(batchIngestService.ingest(files, crs));
+        } catch (BatchIngestException e) {
+            return batchFailed(e);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid batch: " + e.getMessage()));
+        }
+    }
+
+    // A ZIP archive as the request body, read entry by entry without multipart buffering or size limit
+    @PostMapping(value = "/upload/batch", consumes = {"application/zip", "application/x-zip-compressed"})
+    public ResponseEntity<?> uploadArchive(InputStream archive, @RequestParam(required = false) String crs) {
+        try {
+            return ResponseEntity.ok(batchIngestService.ingestArchive(archive, crs));
+        } catch (BatchIngestException e) {
+            return batchFailed(e);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid batch: " + e.getMessage()));
+        }
+    }
+
+    // Files read before the request broke off stay ingested, so they are listed along with the error
+    private static ResponseEntity<?> batchFailed(BatchIngestException e) {
+        HttpStatus status = e.getCause() instanceof ZipException
+            ? HttpStatus.BAD_REQUEST
+            : HttpStatus.INTERNAL_SERVER_ERROR;
+        return ResponseEntity.status(status).body(e.result());
+    }
+
     @GetMapping("/files")
     public ResponseEntity<List<GeologicalFile>> listGeologicalFiles() {
         try {
@@ -55,14 +158,15 @@ public class GeologicalFileController {
     }
 
     @GetMapping("/files/{id}")
-    public ResponseEntity<byte[]> downloadGeologicalFile(@PathVariable String id) {
+    public ResponseEntity<Resource> downloadGeologicalFile(@PathVariable String id) {
         try {
             Path filePath = geologicalFileService.findGeologicalFileById(id).orElse(null);
             if (filePath == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            byte[] fileContent = Files.readAllBytes(filePath);
+            // Streamed from disk rather than buffered in memory
+            Resource fileContent = new FileSystemResource(filePath);
             String filename = filePath.getFileName().toString();
             
             // Remove the ID prefix from filename for download
@@ -79,80 +183,285 @@ public class GeologicalFileController {
         }
     }
 
+    // Deletes the file and everything derived from it, including its catalog entry
+    @DeleteMapping("/files/{id}")
+    public ResponseEntity<?> deleteGeologicalFile(@PathVariable String id) {
+        try {
+            return geologicalFileService.delete(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new ErrorResponse("Failed to delete file: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Appends the request body, complete lines of CSV or GeoJSON Lines, to a stored file and
+     * ingests only the new rows; see {@link #refreshGeologicalFile}.
+     */
+    @PostMapping("/files/{id}/append")
+    public ResponseEntity<?> appendToGeologicalFile(@PathVariable String id, InputStream content) {
+        try {
+            return geologicalFileService.append(id, content)
+                .<ResponseEntity<?>>map(append -> ResponseEntity.ok(AppendResponse.of(append)))
+                .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return parsersBusy(e);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new ErrorResponse("Failed to append to file: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Ingests the lines appended to a stored CSV or GeoJSON Lines file since it was last parsed,
+     * parsing and indexing only those. The new rows are pushed to {@code /files/{id}/events}.
+     */
+    @PostMapping("/files/{id}/refresh")
+    public ResponseEntity<?> refreshGeologicalFile(@PathVariable String id) {
+        try {
+            return geologicalFileService.refresh(id)
+                .<ResponseEntity<?>>map(append -> ResponseEntity.ok(AppendResponse.of(append)))
+                .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return parsersBusy(e);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new ErrorResponse("Failed to refresh file: " + e.getMessage()));
+        }
+    }
+
+    // Rows appended to the dataset from now on, with updated statistics and bounding box
+    @GetMapping(path = "/files/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<DatasetAppend>> datasetEvents(@PathVariable String id) {
+        return datasetEventService.appends(id)
+            .map(append -> ServerSentEvent.<DatasetAppend>builder().event("append").data(append).build());
+    }
+
+    /**
+     * Datasets whose extent intersects the viewport {@code bbox} (minX,minY,maxX,maxY), answered
+     * from the catalog without loading any dataset. Each comes with its point count, the points
+     * estimated to be visible and its size at the level of detail suggested for showing at most
+     * {@code pointBudget} points across all of them. {@code crs} is the viewport's CRS (WGS84 by
+     * default); {@code crs=local} matches datasets of unknown CRS in their own coordinates instead.
+     */
+    @GetMapping("/catalog")
+    public ResponseEntity<?> queryCatalog(@RequestParam List<Double> bbox,
+                                          @RequestParam(required = false) String crs,
+                                          @RequestParam(required = false) Long pointBudget,
+                                          @RequestParam(required = false) Integer limit) {
+        try {
+            if (bbox.size() != 4) {
+                throw new IllegalArgumentException("bbox must be minX,minY,maxX,maxY");
+            }
+            SpatialCatalog.Viewport viewport = catalogService.viewport(
+                bbox.get(0), bbox.get(1), bbox.get(2), bbox.get(3), crs, pointBudget, limit);
+            return ResponseEntity.ok(viewport);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid viewport: " + e.getMessage()));
+        }
+    }
+
+    // A dataset's catalog entry, including its coarse density grid
+    @GetMapping("/catalog/{id}")
+    public ResponseEntity<CatalogEntry> getCatalogEntry(@PathVariable String id) {
+        return ResponseEntity.of(catalogService.entry(id));
+    }
+
+    /**
+     * Points, features and attribute columns of a stored file. {@code attributes} limits which
+     * attribute columns are included (comma separated; empty for none); all are included by default.
+     * {@code format=quantized} returns points (or the STL mesh) and attributes in the compact
+     * {@link QuantizedCodec} encoding with {@code bits} (16 or 32) per coordinate instead of JSON.
+     * {@code crs} reprojects the response from the dataset's CRS. For STL meshes, {@code triangles}
+     * returns the precomputed level of detail closest to that triangle budget instead of the full mesh.
+     */
     @GetMapping("/files/{id}/data")
-    public ResponseEntity<?> getGeologicalFileData(@PathVariable String id) {
+    public ResponseEntity<?> getGeologicalFileData(@PathVariable String id,
+                                                   @RequestParam(required = false) List<String> attributes,
+                                                   @RequestParam(defaultValue = "json") String format,
+                                                   @RequestParam(defaultValue = "16") int bits,
+                                                   @RequestParam(required = false) String crs,
+                                                   @RequestParam(required = false) Integer triangles) {
         try {
-            Path filePath = geologicalFileService.findGeologicalFileById(id).orElse(null);
-            if (filePath == null) {
+            DatasetIndex dataset = geologicalFileService.loadDataset(id).orElse(null);
+            if (dataset == null) {
                 return ResponseEntity.notFound().build();
             }
-
-            // Re-process the file to get the geological data
-            String filename = filePath.getFileName().toString();
-            String extension = filename.substring(filename.lastIndexOf(".") + 1);
-            
-            // Create a mock multipart file for processing
-            byte[] fileContent = Files.readAllBytes(filePath);
-            MockMultipartFile mockFile = new MockMultipartFile(filename, fileContent);
-            
-            GeologicalFile geologicalFile = geologicalFileService.processGeologicalFile(mockFile);
-            return ResponseEntity.ok(geologicalFile.data());
+            if (triangles != null) {
+                return serialize(meshLodService.withinBudget(dataset, triangles), attributes, format, bits, crs, null);
+            }
+            return serialize(dataset.data(), attributes, format, bits, crs, dataset);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return parsersBusy(e);
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(new ErrorResponse("Failed to retrieve file data: " + e.getMessage()));
         }
     }
 
+    /**
+     * Points matching all predicates of the query, in the same shape as {@code /data}. The
+     * properties additionally report {@code matchedPoints}, {@code returnedPoints} and {@code queryMillis}.
+     * The query's bounding box is in the dataset's CRS, whatever {@code crs} the response is requested in.
+     */
+    @PostMapping("/files/{id}/query")
+    public ResponseEntity<?> queryGeologicalFile(@PathVariable String id,
+                                                 @RequestBody DatasetQuery query,
+                                                 @RequestParam(required = false) List<String> attributes,
+                                                 @RequestParam(defaultValue = "json") String format,
+                                                 @RequestParam(defaultValue = "16") int bits,
+                                                 @RequestParam(required = false) String crs) {
+        try {
+            DatasetIndex dataset = geologicalFileService.loadDataset(id).orElse(null);
+            if (dataset == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return serialize(QueryEngine.execute(dataset, query), attributes, format, bits, crs, null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid query: " + e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return parsersBusy(e);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new ErrorResponse("Failed to query file data: " + e.getMessage()));
+        }
+    }
+
+    // Column names, types and statistics without the per-point values, e.g. to build a colour legend
+    @GetMapping("/files/{id}/attributes")
+    public ResponseEntity<?> getAttributeSummaries(@PathVariable String id) {
+        try {
+            GeologicalData data = geologicalFileService.loadGeologicalData(id).orElse(null);
+            if (data == null) {
+                return ResponseEntity.notFound().build();
+            }
+            List<AttributeSummary> summaries = data.attributes().stream()
+                .map(c -> new AttributeSummary(c.name(), c.type(), c.dictionary(), c.statistics()))
+                .toList();
+            return ResponseEntity.ok(summaries);
+        } catch (RejectedExecutionException e) {
+            return parsersBusy(e);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new ErrorResponse("Failed to retrieve attributes: " + e.getMessage()));
+        }
+    }
+
+    // parsers lists each format's capabilities and whether its parser has been loaded yet
     @GetMapping("/supported-formats")
     public ResponseEntity<SupportedFormatsResponse> getSupportedFormats() {
         SupportedFormatsResponse response = new SupportedFormatsResponse(
-            List.of("csv", "shp", "kml", "kmz", "dxf", "dwg", "tif", "tiff", "stl", "geojson", "json", "geojsonl"),
-            "Upload geological files for 3D visualization"
+            List.copyOf(parserRegistry.extensions()),
+            "Upload geological files for 3D visualization",
+            parserRegistry.formats()
         );
         return ResponseEntity.ok(response);
     }
 
-    // Helper classes for responses
-    public record ErrorResponse(String message) {}
-    
-    public record SupportedFormatsResponse(List<String> formats, String description) {}
-
-    // Mock MultipartFile for internal processing
-    private static class MockMultipartFile implements MultipartFile {
-        private final String filename;
-        private final byte[] content;
-
-        public MockMultipartFile(String filename, byte[] content) {
-            this.filename = filename;
-            this.content = content;
+    /**
+     * @param crs   CRS to reproject to, or null to keep the dataset's
+     * @param whole the dataset {@code data} comes from when it is the complete dataset, so the
+     *              quantized encoding can be served from {@link EncodedDataCache}; null for subsets
+     */
+    private ResponseEntity<byte[]> serialize(GeologicalData data, List<String> attributes, String format, int bits,
+                                             String crs, DatasetIndex whole) throws IOException {
+        // The whole body is materialized at once; admit it only if there is memory for it
+        int columns = attributes == null
+            ? data.attributes().size()
+            : (int) data.attributes().stream().filter(c -> attributes.contains(c.name())).count();
+        long cost = memoryAdmissionService.serializationCost(format, data.points().size(), columns, bits, crs != null);
+        MemoryAdmissionService.Reservation reservation = memoryAdmissionService.reserve("serialize", cost);
+        try {
+            ResponseEntity<byte[]> response = encode(data, attributes, format, bits, crs, whole);
+            // The body is written out after this returns; keep its memory reserved until the request completes
+            RequestContextHolder.currentRequestAttributes().registerDestructionCallback(
+                MemoryAdmissionService.Reservation.class.getName(), reservation::close, RequestAttributes.SCOPE_REQUEST);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            reservation.close();
+            throw e;
         }
+    }
 
-        @Override
-        public String getName() { return "file"; }
-
-        @Override
-        public String getOriginalFilename() { return filename; }
-
-        @Override
-        public String getContentType() { return null; }
-
-        @Override
-        public boolean isEmpty() { return content.length == 0; }
+    private ResponseEntity<byte[]> encode(GeologicalData data, List<String> attributes, String format, int bits,
+                                          String crs, DatasetIndex whole) throws IOException {
+        if (crs != null) {
+            Object datasetCrs = data.properties().get("crs");
+            if (datasetCrs == null) {
+                throw new IllegalArgumentException("The dataset's CRS is unknown; upload it with a crs to reproject");
+            }
+            data = reprojectionService.reproject(data, datasetCrs.toString(), crs);
+        }
+        if (attributes != null) {
+            data = new GeologicalData(data.points(), data.features(), data.properties(), data.boundingBox(),
+                data.attributes().stream().filter(c -> attributes.contains(c.name())).toList());
+        }
 
-        @Override
-        public long getSize() { return content.length; }
+        // Serialize here rather than in the message converter so the cost can be measured
+        Timer.Sample sample = Timer.start();
+        byte[] body;
+        MediaType contentType;
+        switch (format) {
+            case "json" -> {
+                body = objectMapper.writeValueAsBytes(data);
+                contentType = MediaType.APPLICATION_JSON;
+            }
+            case "quantized" -> {
+                body = whole != null && attributes == null && crs == null
+                    ? encodedDataCache.quantized(whole, bits)
+                    : QuantizedCodec.encode(data, bits);
+                contentType = MediaType.parseMediaType(QuantizedCodec.MEDIA_TYPE);
+            }
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        }
+        sample.stop(Timer.builder("geological.data.serialization")
+            .description("Time to serialize a /data response")
+            .tag("format", format)
+            .register(meterRegistry));
+        DistributionSummary.builder("geological.data.payload")
+            .description("Size of serialized /data responses")
+            .baseUnit("bytes")
+            .tag("format", format)
+            .register(meterRegistry)
+            .record(body.length);
 
-        @Override
-        public byte[] getBytes() { return content; }
+        return ResponseEntity.ok().contentType(contentType).body(body);
+    }
 
-        @Override
-        public java.io.InputStream getInputStream() {
-            return new java.io.ByteArrayInputStream(content);
+    private ResponseEntity<ErrorResponse> parsersBusy(RejectedExecutionException e) {
+        if (e instanceof MemoryBudgetExceededException exceeded) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exceeded.retryAfterSeconds()))
+                .body(new ErrorResponse(exceeded.getMessage()));
         }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "5")
+            .body(new ErrorResponse("All parsers are busy, retry later"));
+    }
 
-        @Override
-        public void transferTo(java.io.File dest) throws IOException {
-            Files.write(dest.toPath(), content);
+    // Helper classes for responses
+    public record ErrorResponse(String message) {}
+    
+    public record AppendResponse(String id, int fromRow, int rows, int totalRows, long parsedBytes) {
+
+        static AppendResponse of(DatasetAppend append) {
+            return new AppendResponse(append.id(), append.fromRow(), append.rows(), append.totalRows(),
+                append.parsedBytes());
         }
     }
+
+    public record SupportedFormatsResponse(List<String> formats, String description,
+                                           List<ParserRegistry.Format> parsers) {}
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record AttributeSummary(String name, AttributeColumn.Type type, List<String> dictionary,
+                                   AttributeColumn.Statistics statistics) {}
 }
@@ -1,7 +1,13 @@
 package com.example.vtkbackend.api;
 
+import com.example.vtkbackend.mesh.MeshLods;
+import com.example.vtkbackend.mesh.StlFiles;
+import com.example.vtkbackend.mesh.TriangleMesh;
+import com.example.vtkbackend.service.MeshLodService;
 import com.example.vtkbackend.storage.ModelInfo;
 import com.example.vtkbackend.storage.StorageService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -9,10 +15,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api")
@@ -20,9 +28,11 @@ import java.util.List;
 public class ModelController {
 
     private final StorageService storageService;
+    private final MeshLodService meshLodService;
 
-    public ModelController(StorageService storageService) {
+    public ModelController(StorageService storageService, MeshLodService meshLodService) {
         this.storageService = storageService;
+        this.meshLodService = meshLodService;
     }
 
     @GetMapping("/health")
@@ -36,6 +46,7 @@ public class ModelController {
             return ResponseEntity.badRequest().build();
         }
         ModelInfo info = storageService.store(file);
+        storageService.findById(info.id()).ifPresent(path -> meshLodService.prepareModel(info.id(), path));
         return ResponseEntity.status(HttpStatus.CREATED).body(info);
     }
 
@@ -45,14 +56,49 @@ public class ModelController {
     }
 
     @GetMapping("/models/{id}")
-    public ResponseEntity<byte[]> download(@PathVariable String id) throws IOException {
+    public ResponseEntity<Resource> download(@PathVariable String id) throws IOException {
         Path path = storageService.findById(id).orElse(null);
         if (path == null) return ResponseEntity.notFound().build();
-        byte[] bytes = java.nio.file.Files.readAllBytes(path);
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + path.getFileName())
                 .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(bytes);
+                .body(new FileSystemResource(path));
+    }
+
+    // For STL models: a binary STL of the level of detail closest to a triangle budget
+    @GetMapping(value = "/models/{id}", params = "triangles")
+    public ResponseEntity<StreamingResponseBody> downloadLod(@PathVariable String id,
+                                                             @RequestParam int triangles) throws IOException {
+        Path path = storageService.findById(id).orElse(null);
+        if (path == null) return ResponseEntity.notFound().build();
+        MeshLods lods = meshLodService.modelLods(id, path).orElse(null);
+        if (lods == null) return ResponseEntity.badRequest().build();
+        int level = lods.levelFor(triangles);
+        TriangleMesh mesh = lods.levels().get(level);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + path.getFileName())
+                .header("X-Lod-Level", String.valueOf(level))
+                .header("X-Lod-Triangles", String.valueOf(mesh.triangleCount()))
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(out -> StlFiles.writeBinary(mesh, out));
+    }
+
+    // Triangle count of each level of detail of an STL model, most detailed first
+    @GetMapping("/models/{id}/lods")
+    public ResponseEntity<List<Integer>> lods(@PathVariable String id) throws IOException {
+        Path path = storageService.findById(id).orElse(null);
+        if (path == null) return ResponseEntity.notFound().build();
+        return meshLodService.modelLods(id, path)
+                .map(lods -> ResponseEntity.ok(lods.triangleCounts()))
+                .orElseGet(() -> ResponseEntity.badRequest().build());
+    }
+
+    // Levels of detail are built on the parsing pool; tell the client to come back when it is full
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> parsersBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body("All parsers are busy, retry later");
     }
 }
 
@@ -1,7 +1,10 @@
 package com.example.vtkbackend.api;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -18,41 +21,70 @@ public class ProxyTileController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProxyTileController.class);
     private final WebClient webClient = WebClient.builder().build();
+    private final MeterRegistry meterRegistry;
+    private final String osmUrlTemplate;
+    private final String terrariumUrlTemplate;
+
+    // Templates use {z}, {x} and {y}; pointed at a local stub by the load tests
+    public ProxyTileController(MeterRegistry meterRegistry,
+                               @Value("${tiles.osm.url-template:https://tile.openstreetmap.org/{z}/{x}/{y}.png}")
+                               String osmUrlTemplate,
+                               @Value("${tiles.terrarium.url-template:https://s3.amazonaws.com/elevation-tiles-prod/terrarium/{z}/{x}/{y}.png}")
+                               String terrariumUrlTemplate) {
+        this.meterRegistry = meterRegistry;
+        this.osmUrlTemplate = osmUrlTemplate;
+        this.terrariumUrlTemplate = terrariumUrlTemplate;
+    }
 
     // OpenStreetMap raster tiles
     @GetMapping(value = "/osm/{z}/{x}/{y}.png", produces = MediaType.IMAGE_PNG_VALUE)
-    @Cacheable(cacheNames = "tiles", key = "'osm-'+#z+'-'+#x+'-'+#y")
+    @Cacheable(cacheNames = "tiles", key = "'osm-'+#z+'-'+#x+'-'+#y", unless = "!#result.statusCode.is2xxSuccessful()")
     public Mono<ResponseEntity<byte[]>> osm(@PathVariable int z, @PathVariable int x, @PathVariable int y) {
-        String url = String.format("https://tile.openstreetmap.org/%d/%d/%d.png", z, x, y);
+        String url = tileUrl(osmUrlTemplate, z, x, y);
         logger.info("🗺️ Fetching OSM tile: z={}, x={}, y={} from {}", z, x, y, url);
         return fetchPng(url, "OSM");
     }
 
     // Terrarium elevation PNG (encoded height in RGB)
     @GetMapping(value = "/terrarium/{z}/{x}/{y}.png", produces = MediaType.IMAGE_PNG_VALUE)
-    @Cacheable(cacheNames = "tiles", key = "'terrarium-'+#z+'-'+#x+'-'+#y")
+    @Cacheable(cacheNames = "tiles", key = "'terrarium-'+#z+'-'+#x+'-'+#y", unless = "!#result.statusCode.is2xxSuccessful()")
     public Mono<ResponseEntity<byte[]>> terrarium(@PathVariable int z, @PathVariable int x, @PathVariable int y) {
-        String url = String.format("https://s3.amazonaws.com/elevation-tiles-prod/terrarium/%d/%d/%d.png", z, x, y);
+        String url = tileUrl(terrariumUrlTemplate, z, x, y);
         logger.info("🏔️ Fetching Terrarium tile: z={}, x={}, y={} from {}", z, x, y, url);
         return fetchPng(url, "Terrarium");
     }
 
+    private static String tileUrl(String template, int z, int x, int y) {
+        return template.replace("{z}", String.valueOf(z))
+                .replace("{x}", String.valueOf(x))
+                .replace("{y}", String.valueOf(y));
+    }
+
+    // Only reached on a cache miss, so this also measures upstream latency. Failures come back as
+    // error statuses, which the @Cacheable conditions keep out of the cache so the tile is fetched again
     private Mono<ResponseEntity<byte[]>> fetchPng(String url, String tileType) {
-        return webClient.get().uri(url)
-                .retrieve()
-                .bodyToMono(byte[].class)
-                .map(bytes -> {
-                    logger.info("✅ Successfully fetched {} tile: {} bytes", tileType, bytes.length);
-                    return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).body(bytes);
-                })
-                .onErrorResume(WebClientResponseException.class, ex -> {
-                    logger.error("❌ Failed to fetch {} tile from {}: {} - {}", tileType, url, ex.getStatusCode(), ex.getMessage());
-                    return Mono.just(ResponseEntity.status(ex.getStatusCode()).build());
-                })
-                .onErrorResume(Exception.class, ex -> {
-                    logger.error("❌ Unexpected error fetching {} tile from {}: {}", tileType, url, ex.getMessage());
-                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
-                });
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return webClient.get().uri(url)
+                    .retrieve()
+                    .bodyToMono(byte[].class)
+                    .map(bytes -> {
+                        logger.info("✅ Successfully fetched {} tile: {} bytes", tileType, bytes.length);
+                        return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).body(bytes);
+                    })
+                    .onErrorResume(WebClientResponseException.class, ex -> {
+                        logger.error("❌ Failed to fetch {} tile from {}: {} - {}", tileType, url, ex.getStatusCode(), ex.getMessage());
+                        return Mono.just(ResponseEntity.status(ex.getStatusCode()).build());
+                    })
+                    .onErrorResume(Exception.class, ex -> {
+                        logger.error("❌ Unexpected error fetching {} tile from {}: {}", tileType, url, ex.getMessage());
+                        return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                    })
+                    .doOnNext(response -> sample.stop(Timer.builder("tiles.upstream")
+                            .description("Latency of upstream tile fetches")
+                            .tags("source", tileType, "status", String.valueOf(response.getStatusCode().value()))
+                            .register(meterRegistry)));
+        });
     }
 }
 
@@ -1,5 +1,7 @@
 package com.example.vtkbackend.api;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -18,11 +20,20 @@ import java.io.ByteArrayOutputStream;
 @CrossOrigin(origins = "*")
 public class TileController {
 
+    private final Timer renderTimer;
+
+    public TileController(MeterRegistry meterRegistry) {
+        this.renderTimer = Timer.builder("tiles.render")
+                .description("Time to draw and PNG-encode a procedural tile")
+                .register(meterRegistry);
+    }
+
     @GetMapping(value = "/{layer}/{z}/{x}/{y}.png", produces = MediaType.IMAGE_PNG_VALUE)
     public ResponseEntity<byte[]> xyz(@PathVariable String layer,
                                       @PathVariable int z,
                                       @PathVariable int x,
                                       @PathVariable int y) throws Exception {
+        Timer.Sample sample = Timer.start();
         // Placeholder: procedural tile image with grid + coordinates
         int size = 256;
         BufferedImage img = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
@@ -40,6 +51,7 @@ public class TileController {
 
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         ImageIO.write(img, "png", baos);
+        sample.stop(renderTimer);
         return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).body(baos.toByteArray());
     }
 }
@@ -1,35 +1,68 @@
 package com.example.vtkbackend.api;
 
+import com.example.vtkbackend.model.TrackPoint;
+import com.example.vtkbackend.service.TrackService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
-import org.springframework.web.bind.annotation.CrossOrigin;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 
-import java.time.Duration;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/tracks")
 @CrossOrigin(origins = "*")
 public class TrackSseController {
 
+    private final TrackService trackService;
+
+    public TrackSseController(TrackService trackService) {
+        this.trackService = trackService;
+    }
+
+    // Late joiners first receive recent history, then live fixes as they are ingested
     @GetMapping(path = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<ServerSentEvent<String>> stream() {
-        AtomicLong counter = new AtomicLong();
-        // Dummy circular track around (lat,lon) with altitude changes
-        return Flux.interval(Duration.ofMillis(250)).map(i -> {
-            long t = counter.incrementAndGet();
-            double angle = (t % 360) * Math.PI / 180.0;
-            double lat = 28.6139 + 0.05 * Math.sin(angle);
-            double lon = 77.2090 + 0.05 * Math.cos(angle);
-            double alt = 1000 + 100 * Math.sin(angle * 3);
-            String json = String.format("{\"t\":%d,\"lat\":%.6f,\"lon\":%.6f,\"alt\":%.2f}", t, lat, lon, alt);
-            return ServerSentEvent.<String>builder().event("track").data(json).build();
-        });
+    public Flux<ServerSentEvent<TrackPoint>> stream(@RequestParam(required = false) String trackId,
+                                                    @RequestParam(defaultValue = "100") int history) {
+        return trackService.historyThenLive(trackId, history)
+            .map(p -> ServerSentEvent.<TrackPoint>builder().event("track").data(p).build());
     }
-}
 
+    @PostMapping(path = "/{trackId}/points", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> ingest(@PathVariable String trackId, @RequestBody List<PositionRequest> positions) {
+        long now = System.currentTimeMillis();
+        List<TrackPoint> points = positions.stream()
+            .map(p -> new TrackPoint(trackId, p.t() != null ? p.t() : now, p.lat(), p.lon(), p.alt()))
+            .toList();
+        try {
+            int accepted = trackService.ingest(trackId, points);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(new IngestResponse(trackId, accepted, points.size() - accepted));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(new GeologicalFileController.ErrorResponse(e.getMessage()));
+        }
+    }
 
+    @GetMapping
+    public List<String> tracks() {
+        return trackService.trackIds();
+    }
+
+    // Replay of a time window, evenly downsampled to at most maxPoints fixes
+    @GetMapping("/{trackId}")
+    public ResponseEntity<List<TrackPoint>> replay(@PathVariable String trackId,
+                                                   @RequestParam(defaultValue = "" + Long.MIN_VALUE) long from,
+                                                   @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to,
+                                                   @RequestParam(defaultValue = "1000") int maxPoints) {
+        return trackService.window(trackId, from, to, maxPoints)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    public record PositionRequest(Long t, double lat, double lon, double alt) {}
+
+    public record IngestResponse(String trackId, int accepted, int rejected) {}
+}
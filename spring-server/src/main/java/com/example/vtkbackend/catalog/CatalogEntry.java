@@ -0,0 +1,25 @@
+package com.example.vtkbackend.catalog;
+
+import com.example.vtkbackend.model.GeologicalData;
+
+/**
+ * What the catalog knows about one stored dataset without loading it.
+ *
+ * @param crs           the dataset's CRS, or null if unknown
+ * @param georeferenced whether {@code extent} and {@code density} are in WGS84 longitude/latitude;
+ *                      otherwise they are in the dataset's own coordinates
+ * @param triangles     triangle count for STL meshes, else null
+ */
+public record CatalogEntry(
+    String id,
+    String filename,
+    String format,
+    String crs,
+    boolean georeferenced,
+    int points,
+    int features,
+    Integer triangles,
+    GeologicalData.BoundingBox extent,
+    DensityGrid density
+) {
+}
@@ -0,0 +1,83 @@
+package com.example.vtkbackend.catalog;
+
+import com.example.vtkbackend.model.GeologicalData;
+
+/**
+ * Coarse summary of where a dataset's points lie: point counts on a {@code size} x {@code size}
+ * grid over its extent, row by row from the minimum y. Enough to estimate how many points fall in
+ * a viewport without loading the dataset.
+ */
+public record DensityGrid(int size, int[] counts) {
+
+    public static final int DEFAULT_SIZE = 8;
+
+    /**
+     * Counts interleaved x, y pairs into a grid over {@code extent}. Each pair stands for
+     * {@code weight} points, so a sample can summarize a larger dataset.
+     */
+    public static DensityGrid of(double[] xy, GeologicalData.BoundingBox extent, double weight) {
+        double[] counts = new double[DEFAULT_SIZE * DEFAULT_SIZE];
+        for (int i = 0; i + 1 < xy.length; i += 2) {
+            int column = cell(xy[i], extent.minX(), extent.maxX(), DEFAULT_SIZE);
+            int row = cell(xy[i + 1], extent.minY(), extent.maxY(), DEFAULT_SIZE);
+            counts[row * DEFAULT_SIZE + column] += weight;
+        }
+        int[] rounded = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            rounded[i] = (int) Math.min(Integer.MAX_VALUE, Math.round(counts[i]));
+        }
+        return new DensityGrid(DEFAULT_SIZE, rounded);
+    }
+
+    /**
+     * Points estimated to lie in the rectangle: each overlapping cell contributes in proportion to
+     * the fraction of its area the rectangle covers.
+     */
+    public long estimate(GeologicalData.BoundingBox extent, double minX, double minY, double maxX, double maxY) {
+        double cellWidth = (extent.maxX() - extent.minX()) / size;
+        double cellHeight = (extent.maxY() - extent.minY()) / size;
+        int fromColumn = cell(minX, extent.minX(), extent.maxX(), size);
+        int toColumn = cell(maxX, extent.minX(), extent.maxX(), size);
+        int fromRow = cell(minY, extent.minY(), extent.maxY(), size);
+        int toRow = cell(maxY, extent.minY(), extent.maxY(), size);
+        double[] columnFractions = new double[toColumn - fromColumn + 1];
+        for (int column = fromColumn; column <= toColumn; column++) {
+            columnFractions[column - fromColumn] = overlap(extent.minX() + column * cellWidth, cellWidth, minX, maxX);
+        }
+        double total = 0;
+        for (int row = fromRow; row <= toRow; row++) {
+            double rowFraction = overlap(extent.minY() + row * cellHeight, cellHeight, minY, maxY);
+            double rowTotal = 0;
+            for (int column = fromColumn; column <= toColumn; column++) {
+                rowTotal += counts[row * size + column] * columnFractions[column - fromColumn];
+            }
+            total += rowTotal * rowFraction;
+        }
+        return Math.round(total);
+    }
+
+    public long total() {
+        long total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    // Fraction of [start, start + length] inside [min, max]; a degenerate cell counts as fully inside
+    private static double overlap(double start, double length, double min, double max) {
+        if (length <= 0) {
+            return 1;
+        }
+        double covered = Math.min(start + length, max) - Math.max(start, min);
+        return Math.max(0, Math.min(1, covered / length));
+    }
+
+    private static int cell(double value, double min, double max, int size) {
+        if (!(max > min)) {
+            return 0;
+        }
+        int cell = (int) ((value - min) / (max - min) * size);
+        return Math.max(0, Math.min(size - 1, cell));
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.vtkbackend.catalog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Two dimensional R-tree (Guttman, quadratic split) of values by their bounding rectangle. Node
+ * rectangles are kept in flat arrays so a search touches few objects. Not thread safe.
+ */
+final class RTree<T> {
+
+    private static final int MAX_ENTRIES = 16;
+    private static final int MIN_ENTRIES = 6;
+
+    private Node root = new Node(true);
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    void insert(double minX, double minY, double maxX, double maxY, T value) {
+        Node split = insert(root, minX, minY, maxX, maxY, value);
+        if (split != null) {
+            Node grown = new Node(false);
+            grown.add(root.bounds(), root);
+            grown.add(split.bounds(), split);
+            root = grown;
+        }
+        size++;
+    }
+
+    /**
+     * Removes {@code value}, which must have been inserted with a rectangle containing the given
+     * one (usually the same rectangle).
+     *
+     * @return whether it was found
+     */
+    boolean remove(double minX, double minY, double maxX, double maxY, T value) {
+        List<Object[]> orphans = new ArrayList<>();
+        if (!remove(root, minX, minY, maxX, maxY, value, orphans)) {
+            return false;
+        }
+        size--;
+        if (!root.leaf && root.count == 1) {
+            root = (Node) root.children[0];
+        }
+        // Entries of underfull nodes that were dropped on the way up
+        for (Object[] orphan : orphans) {
+            double[] box = (double[]) orphan[0];
+            @SuppressWarnings("unchecked")
+            T orphanValue = (T) orphan[1];
+            size--;
+            insert(box[0], box[1], box[2], box[3], orphanValue);
+        }
+        return true;
+    }
+
+    /** Calls {@code visitor} with every value whose rectangle intersects the given one. */
+    @SuppressWarnings("unchecked")
+    void search(double minX, double minY, double maxX, double maxY, Consumer<T> visitor) {
+        List<Node> pending = new ArrayList<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.remove(pending.size() - 1);
+            double[] b = node.boxes;
+            for (int i = 0, o = 0; i < node.count; i++, o += 4) {
+                if (b[o] <= maxX && b[o + 2] >= minX && b[o + 1] <= maxY && b[o + 3] >= minY) {
+                    if (node.leaf) {
+                        visitor.accept((T) node.children[i]);
+                    } else {
+                        pending.add((Node) node.children[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    private Node insert(Node node, double minX, double minY, double maxX, double maxY, T value) {
+        if (node.leaf) {
+            node.add(new double[]{minX, minY, maxX, maxY}, value);
+        } else {
+            int i = chooseSubtree(node, minX, minY, maxX, maxY);
+            Node child = (Node) node.children[i];
+            Node split = insert(child, minX, minY, maxX, maxY, value);
+            node.setBox(i, child.bounds());
+            if (split != null) {
+                node.add(split.bounds(), split);
+            }
+        }
+        return node.count > MAX_ENTRIES ? split(node) : null;
+    }
+
+    // The child whose rectangle grows least, ties going to the smaller one
+    private static int chooseSubtree(Node node, double minX, double minY, double maxX, double maxY) {
+        int best = 0;
+        double bestGrowth = Double.POSITIVE_INFINITY;
+        double bestArea = Double.POSITIVE_INFINITY;
+        double[] b = node.boxes;
+        for (int i = 0, o = 0; i < node.count; i++, o += 4) {
+            double area = area(b[o], b[o + 1], b[o + 2], b[o + 3]);
+            double growth = area(Math.min(b[o], minX), Math.min(b[o + 1], minY),
+                Math.max(b[o + 2], maxX), Math.max(b[o + 3], maxY)) - area;
+            if (growth < bestGrowth || growth == bestGrowth && area < bestArea) {
+                best = i;
+                bestGrowth = growth;
+                bestArea = area;
+            }
+        }
+        return best;
+    }
+
+    private boolean remove(Node node, double minX, double minY, double maxX, double maxY, T value,
+                           List<Object[]> orphans) {
+        double[] b = node.boxes;
+        for (int i = 0, o = 0; i < node.count; i++, o += 4) {
+            if (node.leaf) {
+                if (value.equals(node.children[i])) {
+                    node.removeAt(i);
+                    return true;
+                }
+                continue;
+            }
+            if (b[o] > minX || b[o + 1] > minY || b[o + 2] < maxX || b[o + 3] < maxY) {
+                continue;
+            }
+            Node child = (Node) node.children[i];
+            if (remove(child, minX, minY, maxX, maxY, value, orphans)) {
+                if (child.count < MIN_ENTRIES) {
+                    node.removeAt(i);
+                    collect(child, orphans);
+                } else {
+                    node.setBox(i, child.bounds());
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void collect(Node node, List<Object[]> entries) {
+        for (int i = 0; i < node.count; i++) {
+            if (node.leaf) {
+                entries.add(new Object[]{node.box(i), node.children[i]});
+            } else {
+                collect((Node) node.children[i], entries);
+            }
+        }
+    }
+
+    /**
+     * Quadratic split: seeds are the pair wasting most area together, then each remaining entry
+     * goes where it causes the least growth. Leaves the first group in {@code node}.
+     */
+    private static Node split(Node node) {
+        int n = node.count;
+        double[] boxes = node.boxes.clone();
+        Object[] children = node.children.clone();
+
+        int seedA = 0, seedB = 1;
+        double worst = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double waste = area(union(boxes, i, boxes, j)) - area(boxes, i) - area(boxes, j);
+                if (waste > worst) {
+                    worst = waste;
+                    seedA = i;
+                    seedB = j;
+                }
+            }
+        }
+
+        Node sibling = new Node(node.leaf);
+        node.count = 0;
+        node.add(box(boxes, seedA), children[seedA]);
+        sibling.add(box(boxes, seedB), children[seedB]);
+        double[] boundsA = box(boxes, seedA);
+        double[] boundsB = box(boxes, seedB);
+        boolean[] assigned = new boolean[n];
+        assigned[seedA] = assigned[seedB] = true;
+        int remaining = n - 2;
+
+        while (remaining > 0) {
+            // Top up a group that needs every remaining entry to reach the minimum
+            Node forced = node.count + remaining == MIN_ENTRIES ? node
+                : sibling.count + remaining == MIN_ENTRIES ? sibling : null;
+            int pick = -1;
+            double growthA = 0, growthB = 0;
+            double strongest = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (assigned[i]) {
+                    continue;
+                }
+                double a = area(union(boundsA, 0, boxes, i)) - area(boundsA, 0);
+                double b = area(union(boundsB, 0, boxes, i)) - area(boundsB, 0);
+                if (forced != null || Math.abs(a - b) > strongest) {
+                    pick = i;
+                    growthA = a;
+                    growthB = b;
+                    strongest = Math.abs(a - b);
+                    if (forced != null) {
+                        break;
+                    }
+                }
+            }
+            boolean toA = forced != null ? forced == node
+                : growthA != growthB ? growthA < growthB
+                : area(boundsA, 0) != area(boundsB, 0) ? area(boundsA, 0) < area(boundsB, 0)
+                : node.count <= sibling.count;
+            if (toA) {
+                node.add(box(boxes, pick), children[pick]);
+                boundsA = union(boundsA, 0, boxes, pick);
+            } else {
+                sibling.add(box(boxes, pick), children[pick]);
+                boundsB = union(boundsB, 0, boxes, pick);
+            }
+            assigned[pick] = true;
+            remaining--;
+        }
+        for (int i = node.count; i < children.length; i++) {
+            node.children[i] = null;
+        }
+        return sibling;
+    }
+
+    private static double[] box(double[] boxes, int i) {
+        return new double[]{boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3]};
+    }
+
+    private static double[] union(double[] a, int i, double[] b, int j) {
+        return new double[]{
+            Math.min(a[i * 4], b[j * 4]), Math.min(a[i * 4 + 1], b[j * 4 + 1]),
+            Math.max(a[i * 4 + 2], b[j * 4 + 2]), Math.max(a[i * 4 + 3], b[j * 4 + 3])};
+    }
+
+    private static double area(double[] boxes, int i) {
+        return area(boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3]);
+    }
+
+    private static double area(double[] box) {
+        return area(box, 0);
+    }
+
+    private static double area(double minX, double minY, double maxX, double maxY) {
+        return (maxX - minX) * (maxY - minY);
+    }
+
+    // Holds one entry more than the maximum until it is split
+    private static final class Node {
+        final boolean leaf;
+        final double[] boxes = new double[(MAX_ENTRIES + 1) * 4];
+        final Object[] children = new Object[MAX_ENTRIES + 1];
+        int count;
+
+        Node(boolean leaf) {
+            this.leaf = leaf;
+        }
+
+        void add(double[] box, Object child) {
+            setBox(count, box);
+            children[count++] = child;
+        }
+
+        void removeAt(int i) {
+            count--;
+            System.arraycopy(boxes, (i + 1) * 4, boxes, i * 4, (count - i) * 4);
+            System.arraycopy(children, i + 1, children, i, count - i);
+            children[count] = null;
+        }
+
+        void setBox(int i, double[] box) {
+            System.arraycopy(box, 0, boxes, i * 4, 4);
+        }
+
+        double[] box(int i) {
+            return RTree.box(boxes, i);
+        }
+
+        double[] bounds() {
+            double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            for (int i = 0, o = 0; i < count; i++, o += 4) {
+                bounds[0] = Math.min(bounds[0], boxes[o]);
+                bounds[1] = Math.min(bounds[1], boxes[o + 1]);
+                bounds[2] = Math.max(bounds[2], boxes[o + 2]);
+                bounds[3] = Math.max(bounds[3], boxes[o + 3]);
+            }
+            return bounds;
+        }
+    }
+}
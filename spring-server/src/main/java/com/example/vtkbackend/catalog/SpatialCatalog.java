@@ -0,0 +1,166 @@
+package com.example.vtkbackend.catalog;
+
+import com.example.vtkbackend.model.GeologicalData;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index of all datasets by extent, so a viewport can be matched against every dataset without
+ * loading any of them. Georeferenced datasets share one R-tree in WGS84; datasets of unknown CRS
+ * are only comparable in their own coordinates and get a separate one. Safe for concurrent use;
+ * queries only wait for writers.
+ */
+public final class SpatialCatalog {
+
+    // Beyond this many halvings the suggested level is as coarse as it usefully gets
+    private static final int MAX_LOD_LEVEL = 30;
+
+    private final Map<String, CatalogEntry> entries = new HashMap<>();
+    private final RTree<CatalogEntry> georeferenced = new RTree<>();
+    private final RTree<CatalogEntry> local = new RTree<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Adds the entry, replacing any with the same id. */
+    public void put(CatalogEntry entry) {
+        lock.writeLock().lock();
+        try {
+            CatalogEntry previous = entries.put(entry.id(), entry);
+            if (previous != null) {
+                unindex(previous);
+            }
+            GeologicalData.BoundingBox e = entry.extent();
+            tree(entry.georeferenced()).insert(e.minX(), e.minY(), e.maxX(), e.maxY(), entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Optional<CatalogEntry> remove(String id) {
+        lock.writeLock().lock();
+        try {
+            CatalogEntry removed = entries.remove(id);
+            if (removed != null) {
+                unindex(removed);
+            }
+            return Optional.ofNullable(removed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Optional<CatalogEntry> get(String id) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(entries.get(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Datasets whose extent intersects the viewport, with the points estimated to be visible in it,
+     * most visible first and at most {@code limit} of them. The suggested level of detail is how
+     * many times the returned datasets must be halved to show at most {@code pointBudget} points
+     * between them: level {@code n} keeps 1/2<sup>n</sup> of the points, like the mesh levels of detail.
+     *
+     * @param georeferenced whether the viewport is in WGS84 longitude/latitude, matching
+     *                      georeferenced datasets, or in local coordinates, matching the others
+     */
+    public Viewport viewport(boolean georeferenced, double minX, double minY, double maxX, double maxY,
+                             long pointBudget, int limit) {
+        List<Visible> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            tree(georeferenced).search(minX, minY, maxX, maxY, entry -> {
+                GeologicalData.BoundingBox e = entry.extent();
+                // Datasets entirely in view, usually most of them, need not touch their density grid
+                boolean inside = minX <= e.minX() && minY <= e.minY() && maxX >= e.maxX() && maxY >= e.maxY();
+                matches.add(new Visible(entry,
+                    inside ? entry.points() : entry.density().estimate(e, minX, minY, maxX, maxY)));
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Visible> returned = mostVisible(matches, limit);
+
+        long visiblePoints = returned.stream().mapToLong(Visible::points).sum();
+        int level = 0;
+        while (level < MAX_LOD_LEVEL && visiblePoints > pointBudget << level) {
+            level++;
+        }
+        int lodLevel = level;
+        List<ViewportDataset> datasets = returned.stream().map(v -> {
+            CatalogEntry e = v.entry();
+            return new ViewportDataset(e.id(), e.filename(), e.format(), e.crs(), e.extent(), e.points(),
+                e.features(), e.triangles(), v.points(), halve(e.points(), lodLevel),
+                e.triangles() != null ? halve(e.triangles(), lodLevel) : null);
+        }).toList();
+        return new Viewport(matches.size(), visiblePoints, lodLevel, datasets);
+    }
+
+    // Selects with a bounded heap rather than sorting every match, which dominates for wide viewports
+    private static List<Visible> mostVisible(List<Visible> matches, int limit) {
+        Comparator<Visible> byPoints = Comparator.comparingLong(Visible::points);
+        if (matches.size() > limit) {
+            PriorityQueue<Visible> top = new PriorityQueue<>(limit + 1, byPoints);
+            for (Visible visible : matches) {
+                if (top.size() < limit) {
+                    top.add(visible);
+                } else if (visible.points() > top.peek().points()) {
+                    top.poll();
+                    top.add(visible);
+                }
+            }
+            matches = new ArrayList<>(top);
+        }
+        matches.sort(byPoints.reversed());
+        return matches;
+    }
+
+    private void unindex(CatalogEntry entry) {
+        GeologicalData.BoundingBox e = entry.extent();
+        tree(entry.georeferenced()).remove(e.minX(), e.minY(), e.maxX(), e.maxY(), entry);
+    }
+
+    private RTree<CatalogEntry> tree(boolean georeferenced) {
+        return georeferenced ? this.georeferenced : local;
+    }
+
+    private static int halve(int count, int level) {
+        return (int) ((count + (1L << level) - 1) >> level);
+    }
+
+    private record Visible(CatalogEntry entry, long points) {}
+
+    /**
+     * @param matched       datasets intersecting the viewport, including any beyond the limit
+     * @param visiblePoints estimated points in the viewport across the returned datasets
+     * @param lodLevel      suggested level of detail for all returned datasets
+     */
+    public record Viewport(int matched, long visiblePoints, int lodLevel, List<ViewportDataset> datasets) {}
+
+    /**
+     * @param lodPoints    points left at the suggested level of detail
+     * @param lodTriangles for meshes, the triangle budget to request at the suggested level
+     */
+    public record ViewportDataset(String id, String filename, String format, String crs,
+                                  GeologicalData.BoundingBox extent, int points, int features, Integer triangles,
+                                  long visiblePoints, int lodPoints, Integer lodTriangles) {}
+}
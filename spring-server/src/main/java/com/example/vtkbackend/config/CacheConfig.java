@@ -15,9 +15,12 @@ public class CacheConfig {
     @Bean
     public CacheManager cacheManager() {
         CaffeineCacheManager manager = new CaffeineCacheManager("tiles");
+        // Async mode is required for @Cacheable on Mono-returning handlers
+        manager.setAsyncCacheMode(true);
         manager.setCaffeine(Caffeine.newBuilder()
                 .maximumSize(10_000)
-                .expireAfterWrite(6, TimeUnit.HOURS));
+                .expireAfterWrite(6, TimeUnit.HOURS)
+                .recordStats());
         return manager;
     }
 }
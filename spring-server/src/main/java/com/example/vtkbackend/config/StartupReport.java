@@ -0,0 +1,43 @@
+package com.example.vtkbackend.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Records what it cost to get to ready: heap in use and classes loaded at that moment, next to
+ * Boot's own application.ready.time. Logged once so cold-start regressions show up without a
+ * metrics scrape.
+ */
+@Component
+public class StartupReport {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupReport.class);
+
+    private final MeterRegistry meterRegistry;
+
+    public StartupReport(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report(ApplicationReadyEvent event) {
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        int classes = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+        Gauge.builder("application.ready.heap.used", () -> heapUsed)
+            .description("Heap in use when the application became ready")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("application.ready.classes.loaded", () -> classes)
+            .description("Classes loaded when the application became ready")
+            .register(meterRegistry);
+        log.info("Ready in {} ms: {} MB heap used, {} classes loaded",
+            event.getTimeTaken().toMillis(), heapUsed >> 20, classes);
+    }
+}
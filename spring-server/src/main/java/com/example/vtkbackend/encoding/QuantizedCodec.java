@@ -0,0 +1,502 @@
+package com.example.vtkbackend.encoding;
+
+import com.example.vtkbackend.model.AttributeColumn;
+import com.example.vtkbackend.model.GeologicalData;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary encoding of a dataset's points (or STL mesh) and attribute columns.
+ * <p>
+ * Coordinates are quantized to 16 or 32 bits relative to the bounding box. Point clouds are
+ * reordered along a Morton curve so consecutive points are spatial neighbours, and each coordinate
+ * is written as a zigzag varint delta from the previous point. Meshes keep their triangle order;
+ * duplicate vertices are merged and triangles are written as delta-coded vertex indices. The whole
+ * payload is then zlib compressed at the fastest level, which browsers decode natively with
+ * {@code new DecompressionStream("deflate")}.
+ * <p>
+ * Layout before compression (little endian, varints are LEB128):
+ * <pre>
+ * "VTKQ" u8 version u8 bits u8 layout(0 = points, 1 = mesh)
+ * varint vertexCount, f64 minX minY minZ maxX maxY maxZ
+ * per vertex: varint zigzag(dx), zigzag(dy), zigzag(dz)       coordinate = min + q * (max - min) / (2^bits - 1)
+ * mesh only: varint indexCount, per index varint zigzag(index - previousIndex)
+ * varint attributeCount, per attribute: string name, u8 type(0 = numeric, 1 = categorical, 2 = text)
+ *   numeric: f32 per vertex (NaN = missing)
+ *   categorical: varint dictionarySize, strings, then varint (code + 1) per vertex (0 = missing)
+ *   text: per vertex varint (byteLength + 1), UTF-8 bytes (0 = missing)
+ * string = varint byteLength, UTF-8 bytes
+ * </pre>
+ * Attribute values follow the encoded vertex order, so they stay aligned with the reordered points.
+ */
+public final class QuantizedCodec {
+
+    public static final String MEDIA_TYPE = "application/vnd.vtk.quantized+zlib";
+
+    private static final byte[] MAGIC = {'V', 'T', 'K', 'Q'};
+    private static final int VERSION = 1;
+    private static final int LAYOUT_POINTS = 0;
+    private static final int LAYOUT_MESH = 1;
+    // Bits per axis of the Morton key; finer ordering gains little once neighbours share a cell
+    private static final int MORTON_BITS = 10;
+
+    private QuantizedCodec() {
+    }
+
+    public record Decoded(int bits, double[] positions, int[] indices, List<AttributeColumn> attributes) {
+
+        public int vertexCount() {
+            return positions.length / 3;
+        }
+    }
+
+    /**
+     * @param bits 16 or 32
+     */
+    public static byte[] encode(GeologicalData data, int bits) {
+        if (bits != 16 && bits != 32) {
+            throw new IllegalArgumentException("bits must be 16 or 32");
+        }
+        List<GeologicalData.Point3D> points = data.points();
+        GeologicalData.BoundingBox box = data.boundingBox();
+        long maxQ = (1L << bits) - 1;
+        double scaleX = scale(box.minX(), box.maxX(), maxQ);
+        double scaleY = scale(box.minY(), box.maxY(), maxQ);
+        double scaleZ = scale(box.minZ(), box.maxZ(), maxQ);
+
+        int n = points.size();
+        long[] qx = new long[n];
+        long[] qy = new long[n];
+        long[] qz = new long[n];
+        for (int i = 0; i < n; i++) {
+            GeologicalData.Point3D p = points.get(i);
+            qx[i] = quantize(p.x(), box.minX(), scaleX, maxQ);
+            qy[i] = quantize(p.y(), box.minY(), scaleY, maxQ);
+            qz[i] = quantize(p.z(), box.minZ(), scaleZ, maxQ);
+        }
+
+        boolean mesh = "STL".equals(data.properties().get("type")) && n % 3 == 0;
+        int[] vertexRows;
+        int[] indices = null;
+        if (mesh) {
+            VertexTable table = new VertexTable(n);
+            indices = new int[n];
+            for (int i = 0; i < n; i++) {
+                indices[i] = table.indexOf(qx[i], qy[i], qz[i], i);
+            }
+            vertexRows = table.rows();
+        } else {
+            vertexRows = mortonOrder(qx, qy, qz, bits);
+        }
+
+        Buffer out = new Buffer(n * 4 + 64);
+        out.bytes(MAGIC);
+        out.u8(VERSION);
+        out.u8(bits);
+        out.u8(mesh ? LAYOUT_MESH : LAYOUT_POINTS);
+        out.varint(vertexRows.length);
+        out.f64(box.minX());
+        out.f64(box.minY());
+        out.f64(box.minZ());
+        out.f64(box.maxX());
+        out.f64(box.maxY());
+        out.f64(box.maxZ());
+
+        long px = 0;
+        long py = 0;
+        long pz = 0;
+        for (int row : vertexRows) {
+            out.varint(zigzag(qx[row] - px));
+            out.varint(zigzag(qy[row] - py));
+            out.varint(zigzag(qz[row] - pz));
+            px = qx[row];
+            py = qy[row];
+            pz = qz[row];
+        }
+
+        if (mesh) {
+            out.varint(indices.length);
+            long previous = 0;
+            for (int index : indices) {
+                out.varint(zigzag(index - previous));
+                previous = index;
+            }
+        }
+
+        List<AttributeColumn> columns = data.attributes().stream().filter(c -> c.size() == n).toList();
+        out.varint(columns.size());
+        for (AttributeColumn column : columns) {
+            out.string(column.name());
+            switch (column.type()) {
+                case NUMERIC -> {
+                    out.u8(0);
+                    for (int row : vertexRows) {
+                        out.f32((float) column.values()[row]);
+                    }
+                }
+                case CATEGORICAL -> {
+                    out.u8(1);
+                    out.varint(column.dictionary().size());
+                    for (String value : column.dictionary()) {
+                        out.string(value);
+                    }
+                    for (int row : vertexRows) {
+                        out.varint(column.codes()[row] + 1L);
+                    }
+                }
+                case TEXT -> {
+                    out.u8(2);
+                    for (int row : vertexRows) {
+                        out.optionalString(column.texts()[row]);
+                    }
+                }
+            }
+        }
+        return deflate(out.array(), out.size());
+    }
+
+    public static Decoded decode(byte[] payload) {
+        Reader in = new Reader(inflate(payload));
+        for (byte b : MAGIC) {
+            if (in.u8() != b) {
+                throw new IllegalArgumentException("Not a quantized payload");
+            }
+        }
+        if (in.u8() != VERSION) {
+            throw new IllegalArgumentException("Unsupported quantized payload version");
+        }
+        int bits = in.u8();
+        boolean mesh = in.u8() == LAYOUT_MESH;
+        int count = (int) in.varint();
+        double minX = in.f64();
+        double minY = in.f64();
+        double minZ = in.f64();
+        double maxX = in.f64();
+        double maxY = in.f64();
+        double maxZ = in.f64();
+        long maxQ = (1L << bits) - 1;
+        double stepX = (maxX - minX) / maxQ;
+        double stepY = (maxY - minY) / maxQ;
+        double stepZ = (maxZ - minZ) / maxQ;
+
+        double[] positions = new double[count * 3];
+        long qx = 0;
+        long qy = 0;
+        long qz = 0;
+        for (int i = 0; i < count; i++) {
+            qx += unzigzag(in.varint());
+            qy += unzigzag(in.varint());
+            qz += unzigzag(in.varint());
+            positions[3 * i] = minX + qx * stepX;
+            positions[3 * i + 1] = minY + qy * stepY;
+            positions[3 * i + 2] = minZ + qz * stepZ;
+        }
+
+        int[] indices = null;
+        if (mesh) {
+            indices = new int[(int) in.varint()];
+            long index = 0;
+            for (int i = 0; i < indices.length; i++) {
+                index += unzigzag(in.varint());
+                indices[i] = (int) index;
+            }
+        }
+
+        int columnCount = (int) in.varint();
+        List<AttributeColumn> attributes = new ArrayList<>(columnCount);
+        for (int c = 0; c < columnCount; c++) {
+            String name = in.string();
+            int type = in.u8();
+            if (type == 0) {
+                double[] values = new double[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = in.f32();
+                }
+                attributes.add(new AttributeColumn(name, AttributeColumn.Type.NUMERIC, values, null, null, null));
+            } else if (type == 2) {
+                String[] texts = new String[count];
+                for (int i = 0; i < count; i++) {
+                    texts[i] = in.optionalString();
+                }
+                attributes.add(new AttributeColumn(name, AttributeColumn.Type.TEXT, null, null, null, texts, null));
+            } else {
+                List<String> dictionary = new ArrayList<>();
+                int size = (int) in.varint();
+                for (int i = 0; i < size; i++) {
+                    dictionary.add(in.string());
+                }
+                int[] codes = new int[count];
+                for (int i = 0; i < count; i++) {
+                    codes[i] = (int) in.varint() - 1;
+                }
+                attributes.add(new AttributeColumn(name, AttributeColumn.Type.CATEGORICAL, null, codes, dictionary, null));
+            }
+        }
+        return new Decoded(bits, positions, indices, attributes);
+    }
+
+    private static double scale(double min, double max, long maxQ) {
+        return max > min ? maxQ / (max - min) : 0;
+    }
+
+    private static long quantize(double v, double min, double scale, long maxQ) {
+        long q = Math.round((v - min) * scale);
+        return Math.max(0, Math.min(maxQ, q));
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    // Rows sorted by Morton key; the key and the row share one long so a primitive sort suffices
+    private static int[] mortonOrder(long[] qx, long[] qy, long[] qz, int bits) {
+        int shift = bits - MORTON_BITS;
+        long[] keys = new long[qx.length];
+        for (int i = 0; i < keys.length; i++) {
+            long morton = spread(qx[i] >>> shift) | spread(qy[i] >>> shift) << 1 | spread(qz[i] >>> shift) << 2;
+            keys[i] = morton << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] rows = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            rows[i] = (int) keys[i];
+        }
+        return rows;
+    }
+
+    // Inserts two zero bits between each of the low 10 bits
+    private static long spread(long v) {
+        v &= 0x3FF;
+        v = (v | v << 16) & 0x30000FFL;
+        v = (v | v << 8) & 0x300F00FL;
+        v = (v | v << 4) & 0x30C30C3L;
+        v = (v | v << 2) & 0x9249249L;
+        return v;
+    }
+
+    private static byte[] deflate(byte[] input, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 2));
+            byte[] chunk = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] payload) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length * 2);
+            byte[] chunk = new byte[64 * 1024];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(chunk);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated quantized payload");
+                }
+                out.write(chunk, 0, read);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt quantized payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** Open-addressing map from a quantized vertex to its index in first-seen order. */
+    private static final class VertexTable {
+        private final long[] xs;
+        private final long[] ys;
+        private final long[] zs;
+        private final int[] slots;
+        private final int[] rows;
+        private int size;
+
+        VertexTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+            slots = new int[capacity];
+            Arrays.fill(slots, -1);
+            xs = new long[expected];
+            ys = new long[expected];
+            zs = new long[expected];
+            rows = new int[expected];
+        }
+
+        int indexOf(long x, long y, long z, int row) {
+            int mask = slots.length - 1;
+            long h = x * 0x9E3779B97F4A7C15L ^ y * 0xC2B2AE3D27D4EB4FL ^ z * 0x165667B19E3779F9L;
+            int slot = (int) (h ^ h >>> 32) & mask;
+            while (slots[slot] >= 0) {
+                int index = slots[slot];
+                if (xs[index] == x && ys[index] == y && zs[index] == z) {
+                    return index;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = size;
+            xs[size] = x;
+            ys[size] = y;
+            zs[size] = z;
+            rows[size] = row;
+            return size++;
+        }
+
+        int[] rows() {
+            return Arrays.copyOf(rows, size);
+        }
+    }
+
+    private static final class Buffer {
+        private byte[] bytes;
+        private int size;
+
+        Buffer(int capacity) {
+            bytes = new byte[Math.max(64, capacity)];
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        void u8(int v) {
+            ensure(1);
+            bytes[size++] = (byte) v;
+        }
+
+        void bytes(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+        }
+
+        void varint(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[size++] = (byte) v;
+        }
+
+        void f32(float v) {
+            int bitsOf = Float.floatToRawIntBits(v);
+            ensure(4);
+            for (int i = 0; i < 4; i++) {
+                bytes[size++] = (byte) (bitsOf >>> (8 * i));
+            }
+        }
+
+        void f64(double v) {
+            long bitsOf = Double.doubleToRawLongBits(v);
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                bytes[size++] = (byte) (bitsOf >>> (8 * i));
+            }
+        }
+
+        void string(String s) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length);
+            bytes(utf8);
+        }
+
+        // Like string, with the length offset by one so that 0 can mark a missing value
+        void optionalString(String s) {
+            if (s == null) {
+                varint(0);
+                return;
+            }
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length + 1L);
+            bytes(utf8);
+        }
+
+        byte[] array() {
+            return bytes;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int u8() {
+            return bytes[position++] & 0xFF;
+        }
+
+        long varint() {
+            long result = 0;
+            int shift = 0;
+            while (true) {
+                byte b = bytes[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+                shift += 7;
+            }
+        }
+
+        float f32() {
+            int v = 0;
+            for (int i = 0; i < 4; i++) {
+                v |= (bytes[position++] & 0xFF) << (8 * i);
+            }
+            return Float.intBitsToFloat(v);
+        }
+
+        double f64() {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v |= (bytes[position++] & 0xFFL) << (8 * i);
+            }
+            return Double.longBitsToDouble(v);
+        }
+
+        String string() {
+            int length = (int) varint();
+            String s = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return s;
+        }
+
+        String optionalString() {
+            int length = (int) varint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            String s = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return s;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.vtkbackend.mesh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Levels of detail of one mesh, from the full mesh (level 0) down, each with about half the
+ * triangles of the one before.
+ */
+public record MeshLods(List<TriangleMesh> levels) {
+
+    /**
+     * Simplifies {@code mesh} to half, a quarter, ... of its triangles, stopping before a level
+     * would drop below {@code minTriangles}. All levels come out of one progressive
+     * simplification, whose passes are spread over the common fork-join pool.
+     */
+    public static MeshLods build(TriangleMesh mesh, int minTriangles, int maxLevels) {
+        int[] targets = IntStream.iterate(mesh.triangleCount() / 2, t -> t >= minTriangles, t -> t / 2)
+            .limit(Math.max(0, maxLevels - 1))
+            .toArray();
+        List<TriangleMesh> levels = new ArrayList<>(targets.length + 1);
+        levels.add(mesh);
+        if (targets.length > 0) {
+            levels.addAll(QuadricSimplifier.simplify(mesh, targets));
+        }
+        return new MeshLods(List.copyOf(levels));
+    }
+
+    /**
+     * Index of the most detailed level with at most {@code triangleBudget} triangles, or of the
+     * coarsest level if even that is over budget.
+     */
+    public int levelFor(int triangleBudget) {
+        for (int i = 0; i < levels.size(); i++) {
+            if (levels.get(i).triangleCount() <= triangleBudget) {
+                return i;
+            }
+        }
+        return levels.size() - 1;
+    }
+
+    public List<Integer> triangleCounts() {
+        return levels.stream().map(TriangleMesh::triangleCount).toList();
+    }
+
+    public long sizeBytes() {
+        return levels.stream().mapToLong(TriangleMesh::sizeBytes).sum();
+    }
+}
@@ -0,0 +1,404 @@
+package com.example.vtkbackend.mesh;
+
+import com.example.vtkbackend.model.GeologicalData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Quadric error metric edge-collapse simplification (Garland and Heckbert).
+ * <p>
+ * Each vertex carries the sum of the squared-distance quadrics of its triangles' planes, weighted
+ * by area; boundary edges add a perpendicular plane so open surfaces keep their outline. Instead
+ * of a priority queue updated after every collapse, the simplifier works in passes: all edges are
+ * costed (in parallel) and sorted, then the cheapest are collapsed greedily, each collapse locking
+ * the one-ring around it so every cost and flip test in the pass stays valid. Triangles are then
+ * rebuilt and the next pass starts. This keeps memory flat arrays and scales to millions of
+ * triangles.
+ */
+public final class QuadricSimplifier {
+
+    private static final double BOUNDARY_WEIGHT = 10;
+    // Below this determinant (relative to the quadric's scale) the optimal position is ill-defined
+    private static final double SINGULAR_EPSILON = 1e-12;
+
+    private QuadricSimplifier() {
+    }
+
+    /**
+     * Returns a mesh with at most about {@code targetTriangles} triangles, or fewer collapses if
+     * every remaining one would fold the surface over. The input mesh is not modified.
+     */
+    public static TriangleMesh simplify(TriangleMesh mesh, int targetTriangles) {
+        return simplify(mesh, new int[]{targetTriangles}).get(0);
+    }
+
+    /**
+     * Simplifies {@code mesh} progressively, taking a snapshot each time it gets down to the next
+     * of {@code targets} (in decreasing order). Costs the same as simplifying to the last target
+     * alone, and coarser levels keep the error accumulated by the finer ones.
+     */
+    public static List<TriangleMesh> simplify(TriangleMesh mesh, int[] targets) {
+        // Work relative to the centre so quadrics of projected (e.g. UTM) coordinates keep their precision
+        GeologicalData.BoundingBox box = mesh.boundingBox();
+        double[] origin = {(box.minX() + box.maxX()) / 2, (box.minY() + box.maxY()) / 2, (box.minZ() + box.maxZ()) / 2};
+        double[] positions = mesh.positions().clone();
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] -= origin[i % 3];
+        }
+        int[] triangles = mesh.indices().clone();
+        int vertexCount = mesh.vertexCount();
+        double[] quadrics = quadrics(positions, triangles, vertexCount);
+
+        List<TriangleMesh> levels = new ArrayList<>(targets.length);
+        int triangleCount = triangles.length / 3;
+        boolean stuck = false;
+        for (int target : targets) {
+            while (!stuck && triangleCount > target) {
+                int removed = collapsePass(positions, triangles, triangleCount, vertexCount, quadrics,
+                    triangleCount - target);
+                stuck = removed == 0;
+                triangleCount = rebuild(triangles, triangleCount);
+            }
+            levels.add(levels.isEmpty() && triangleCount == mesh.triangleCount()
+                ? mesh
+                : compact(positions, triangles, triangleCount, vertexCount, origin));
+        }
+        return levels;
+    }
+
+    private static double[] quadrics(double[] positions, int[] triangles, int vertexCount) {
+        double[] quadrics = new double[vertexCount * 10];
+        double[] plane = new double[4];
+        for (int t = 0; t < triangles.length; t += 3) {
+            int a = triangles[t], b = triangles[t + 1], c = triangles[t + 2];
+            double area = plane(positions, a, b, c, plane);
+            if (area == 0) {
+                continue;
+            }
+            addPlane(quadrics, a, plane, area);
+            addPlane(quadrics, b, plane, area);
+            addPlane(quadrics, c, plane, area);
+        }
+
+        // Boundary edges appear in exactly one triangle
+        long[] edges = new long[triangles.length];
+        for (int t = 0; t < triangles.length; t += 3) {
+            for (int k = 0; k < 3; k++) {
+                edges[t + k] = edgeKey(triangles[t + k], triangles[t + (k + 1) % 3]);
+            }
+        }
+        long[] sorted = edges.clone();
+        Arrays.sort(sorted);
+        for (int t = 0; t < triangles.length; t += 3) {
+            for (int k = 0; k < 3; k++) {
+                long key = edges[t + k];
+                int first = Arrays.binarySearch(sorted, key);
+                boolean shared = (first > 0 && sorted[first - 1] == key)
+                    || (first + 1 < sorted.length && sorted[first + 1] == key);
+                if (!shared) {
+                    int a = triangles[t + k], b = triangles[t + (k + 1) % 3], c = triangles[t + (k + 2) % 3];
+                    addBoundaryPlane(quadrics, positions, a, b, c);
+                }
+            }
+        }
+        return quadrics;
+    }
+
+    /**
+     * Costs every edge, then collapses the cheapest non-conflicting ones until about
+     * {@code wanted} triangles are gone. Returns the number of triangles removed, 0 only if no
+     * edge can be collapsed at all.
+     */
+    private static int collapsePass(double[] positions, int[] triangles, int triangleCount, int vertexCount,
+                                    double[] quadrics, int wanted) {
+        long[] keys = new long[triangleCount * 3];
+        for (int t = 0; t < triangleCount; t++) {
+            for (int k = 0; k < 3; k++) {
+                keys[t * 3 + k] = edgeKey(triangles[t * 3 + k], triangles[t * 3 + (k + 1) % 3]);
+            }
+        }
+        Arrays.parallelSort(keys);
+        int edgeCount = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[edgeCount++] = keys[i];
+            }
+        }
+        long[] edges = Arrays.copyOf(keys, edgeCount);
+
+        double[] targets = new double[edgeCount * 3];
+        double[] costs = new double[edgeCount];
+        IntStream.range(0, edgeCount).parallel().forEach(e ->
+            costs[e] = collapseCost(quadrics, positions, (int) (edges[e] >>> 32), (int) edges[e], targets, e * 3));
+
+        // Non-negative floats order like their bit patterns, so (cost, edge) packs into one sortable long
+        long[] order = new long[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            float cost = (float) Math.max(costs[e], 0);
+            order[e] = (long) Float.floatToRawIntBits(cost) << 32 | e;
+        }
+        Arrays.parallelSort(order);
+
+        int[] adjacencyStart = new int[vertexCount + 1];
+        for (int i = 0; i < triangleCount * 3; i++) {
+            adjacencyStart[triangles[i] + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            adjacencyStart[v + 1] += adjacencyStart[v];
+        }
+        int[] adjacency = new int[triangleCount * 3];
+        int[] fill = Arrays.copyOf(adjacencyStart, vertexCount);
+        for (int i = 0; i < triangleCount * 3; i++) {
+            adjacency[fill[triangles[i]]++] = i / 3;
+        }
+
+        boolean[] locked = new boolean[vertexCount];
+        int[] collapseTo = new int[vertexCount];
+        Arrays.fill(collapseTo, -1);
+        int removed = 0;
+        // Cheapest first; edges locked out or folding the surface over are skipped for costlier ones
+        for (int i = 0; i < edgeCount && removed < wanted; i++) {
+            int e = (int) order[i];
+            int a = (int) (edges[e] >>> 32);
+            int b = (int) edges[e];
+            if (locked[a] || locked[b]) {
+                continue;
+            }
+            int target = e * 3;
+            if (flips(positions, triangles, adjacency, adjacencyStart, a, b, targets, target)
+                || flips(positions, triangles, adjacency, adjacencyStart, b, a, targets, target)) {
+                continue;
+            }
+            removed += shared(triangles, adjacency, adjacencyStart, a, b);
+            lockRing(triangles, adjacency, adjacencyStart, a, locked);
+            lockRing(triangles, adjacency, adjacencyStart, b, locked);
+
+            collapseTo[a] = b;
+            positions[b * 3] = targets[target];
+            positions[b * 3 + 1] = targets[target + 1];
+            positions[b * 3 + 2] = targets[target + 2];
+            for (int q = 0; q < 10; q++) {
+                quadrics[b * 10 + q] += quadrics[a * 10 + q];
+            }
+        }
+
+        if (removed > 0) {
+            for (int i = 0; i < triangleCount * 3; i++) {
+                int to = collapseTo[triangles[i]];
+                if (to >= 0) {
+                    triangles[i] = to;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /** Drops triangles that lost a vertex to a collapse; returns the new triangle count. */
+    private static int rebuild(int[] triangles, int triangleCount) {
+        int kept = 0;
+        for (int t = 0; t < triangleCount; t++) {
+            int a = triangles[t * 3], b = triangles[t * 3 + 1], c = triangles[t * 3 + 2];
+            if (a == b || b == c || a == c) {
+                continue;
+            }
+            triangles[kept * 3] = a;
+            triangles[kept * 3 + 1] = b;
+            triangles[kept * 3 + 2] = c;
+            kept++;
+        }
+        return kept;
+    }
+
+    private static TriangleMesh compact(double[] positions, int[] triangles, int triangleCount, int vertexCount,
+                                        double[] origin) {
+        int[] newIndex = new int[vertexCount];
+        Arrays.fill(newIndex, -1);
+        double[] compacted = new double[Math.min(vertexCount, triangleCount * 3) * 3];
+        int[] indices = new int[triangleCount * 3];
+        int next = 0;
+        for (int i = 0; i < indices.length; i++) {
+            int v = triangles[i];
+            if (newIndex[v] < 0) {
+                newIndex[v] = next;
+                for (int k = 0; k < 3; k++) {
+                    compacted[next * 3 + k] = positions[v * 3 + k] + origin[k];
+                }
+                next++;
+            }
+            indices[i] = newIndex[v];
+        }
+        return new TriangleMesh(Arrays.copyOf(compacted, next * 3), indices);
+    }
+
+    /**
+     * Error of collapsing edge (a, b), writing the chosen position to {@code out[at..at+2]}: the
+     * point minimizing the summed quadric when it is well defined, else the best of a, b and the
+     * midpoint.
+     */
+    private static double collapseCost(double[] quadrics, double[] positions, int a, int b, double[] out, int at) {
+        double[] q = new double[10];
+        for (int i = 0; i < 10; i++) {
+            q[i] = quadrics[a * 10 + i] + quadrics[b * 10 + i];
+        }
+        // q = [a2 ab ac ad b2 bc bd c2 cd d2]; solve the 3x3 system A x = -(ad, bd, cd)
+        double a00 = q[0], a01 = q[1], a02 = q[2], a11 = q[4], a12 = q[5], a22 = q[7];
+        double det = a00 * (a11 * a22 - a12 * a12) - a01 * (a01 * a22 - a12 * a02) + a02 * (a01 * a12 - a11 * a02);
+        double scale = Math.abs(a00) + Math.abs(a11) + Math.abs(a22);
+        if (scale > 0 && Math.abs(det) > SINGULAR_EPSILON * scale * scale * scale) {
+            double bx = -q[3], by = -q[6], bz = -q[8];
+            double x = (bx * (a11 * a22 - a12 * a12) - a01 * (by * a22 - a12 * bz) + a02 * (by * a12 - a11 * bz)) / det;
+            double y = (a00 * (by * a22 - a12 * bz) - bx * (a01 * a22 - a12 * a02) + a02 * (a01 * bz - by * a02)) / det;
+            double z = (a00 * (a11 * bz - by * a12) - a01 * (a01 * bz - by * a02) + bx * (a01 * a12 - a11 * a02)) / det;
+            if (Double.isFinite(x) && Double.isFinite(y) && Double.isFinite(z)) {
+                out[at] = x;
+                out[at + 1] = y;
+                out[at + 2] = z;
+                return error(q, x, y, z);
+            }
+        }
+        double ax = positions[a * 3], ay = positions[a * 3 + 1], az = positions[a * 3 + 2];
+        double bx = positions[b * 3], by = positions[b * 3 + 1], bz = positions[b * 3 + 2];
+        double mx = (ax + bx) / 2, my = (ay + by) / 2, mz = (az + bz) / 2;
+        double ea = error(q, ax, ay, az), eb = error(q, bx, by, bz), em = error(q, mx, my, mz);
+        if (ea <= eb && ea <= em) {
+            out[at] = ax;
+            out[at + 1] = ay;
+            out[at + 2] = az;
+            return ea;
+        }
+        if (eb <= em) {
+            out[at] = bx;
+            out[at + 1] = by;
+            out[at + 2] = bz;
+            return eb;
+        }
+        out[at] = mx;
+        out[at + 1] = my;
+        out[at + 2] = mz;
+        return em;
+    }
+
+    private static double error(double[] q, double x, double y, double z) {
+        return q[0] * x * x + 2 * q[1] * x * y + 2 * q[2] * x * z + 2 * q[3] * x
+            + q[4] * y * y + 2 * q[5] * y * z + 2 * q[6] * y
+            + q[7] * z * z + 2 * q[8] * z
+            + q[9];
+    }
+
+    /**
+     * True if moving {@code moved} to the target position would turn any of its triangles (other
+     * than those shared with {@code other}, which disappear) upside down.
+     */
+    private static boolean flips(double[] positions, int[] triangles, int[] adjacency, int[] adjacencyStart,
+                                 int moved, int other, double[] targets, int target) {
+        double tx = targets[target], ty = targets[target + 1], tz = targets[target + 2];
+        for (int i = adjacencyStart[moved]; i < adjacencyStart[moved + 1]; i++) {
+            int t = adjacency[i] * 3;
+            int a = triangles[t], b = triangles[t + 1], c = triangles[t + 2];
+            if (a == other || b == other || c == other) {
+                continue;
+            }
+            // Rotate so the moved vertex comes first; the other two stay put
+            int u = a == moved ? b : b == moved ? c : a;
+            int w = a == moved ? c : b == moved ? a : b;
+            double mx = positions[moved * 3], my = positions[moved * 3 + 1], mz = positions[moved * 3 + 2];
+            double ux = positions[u * 3], uy = positions[u * 3 + 1], uz = positions[u * 3 + 2];
+            double wx = positions[w * 3], wy = positions[w * 3 + 1], wz = positions[w * 3 + 2];
+            // Normals of (m, u, w) before and after m moves: (u - m) x (w - m)
+            double bx = (uy - my) * (wz - mz) - (uz - mz) * (wy - my);
+            double by = (uz - mz) * (wx - mx) - (ux - mx) * (wz - mz);
+            double bz = (ux - mx) * (wy - my) - (uy - my) * (wx - mx);
+            double ax = (uy - ty) * (wz - tz) - (uz - tz) * (wy - ty);
+            double ay = (uz - tz) * (wx - tx) - (ux - tx) * (wz - tz);
+            double az = (ux - tx) * (wy - ty) - (uy - ty) * (wx - tx);
+            if (bx * ax + by * ay + bz * az <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Unnormalized normal (b - a) x (c - a) of triangle (a, b, c)
+    private static double[] normal(double[] positions, int a, int b, int c) {
+        double ux = positions[b * 3] - positions[a * 3];
+        double uy = positions[b * 3 + 1] - positions[a * 3 + 1];
+        double uz = positions[b * 3 + 2] - positions[a * 3 + 2];
+        double vx = positions[c * 3] - positions[a * 3];
+        double vy = positions[c * 3 + 1] - positions[a * 3 + 1];
+        double vz = positions[c * 3 + 2] - positions[a * 3 + 2];
+        return new double[]{uy * vz - uz * vy, uz * vx - ux * vz, ux * vy - uy * vx};
+    }
+
+    private static int shared(int[] triangles, int[] adjacency, int[] adjacencyStart, int a, int b) {
+        int count = 0;
+        for (int i = adjacencyStart[a]; i < adjacencyStart[a + 1]; i++) {
+            int t = adjacency[i] * 3;
+            if (triangles[t] == b || triangles[t + 1] == b || triangles[t + 2] == b) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void lockRing(int[] triangles, int[] adjacency, int[] adjacencyStart, int v, boolean[] locked) {
+        for (int i = adjacencyStart[v]; i < adjacencyStart[v + 1]; i++) {
+            int t = adjacency[i] * 3;
+            locked[triangles[t]] = true;
+            locked[triangles[t + 1]] = true;
+            locked[triangles[t + 2]] = true;
+        }
+    }
+
+    // Unit plane (nx, ny, nz, d) of a triangle; returns its area, 0 if degenerate
+    private static double plane(double[] positions, int a, int b, int c, double[] plane) {
+        double[] n = normal(positions, a, b, c);
+        double length = Math.sqrt(n[0] * n[0] + n[1] * n[1] + n[2] * n[2]);
+        if (length == 0 || !Double.isFinite(length)) {
+            return 0;
+        }
+        plane[0] = n[0] / length;
+        plane[1] = n[1] / length;
+        plane[2] = n[2] / length;
+        plane[3] = -(plane[0] * positions[a * 3] + plane[1] * positions[a * 3 + 1] + plane[2] * positions[a * 3 + 2]);
+        return length / 2;
+    }
+
+    // Plane through boundary edge (a, b) perpendicular to its triangle (a, b, c)
+    private static void addBoundaryPlane(double[] quadrics, double[] positions, int a, int b, int c) {
+        double[] n = normal(positions, a, b, c);
+        double ex = positions[b * 3] - positions[a * 3];
+        double ey = positions[b * 3 + 1] - positions[a * 3 + 1];
+        double ez = positions[b * 3 + 2] - positions[a * 3 + 2];
+        double px = ey * n[2] - ez * n[1], py = ez * n[0] - ex * n[2], pz = ex * n[1] - ey * n[0];
+        double length = Math.sqrt(px * px + py * py + pz * pz);
+        if (length == 0 || !Double.isFinite(length)) {
+            return;
+        }
+        double[] plane = {px / length, py / length, pz / length, 0};
+        plane[3] = -(plane[0] * positions[a * 3] + plane[1] * positions[a * 3 + 1] + plane[2] * positions[a * 3 + 2]);
+        double weight = BOUNDARY_WEIGHT * (ex * ex + ey * ey + ez * ez);
+        addPlane(quadrics, a, plane, weight);
+        addPlane(quadrics, b, plane, weight);
+    }
+
+    private static void addPlane(double[] quadrics, int v, double[] p, double weight) {
+        int q = v * 10;
+        quadrics[q] += weight * p[0] * p[0];
+        quadrics[q + 1] += weight * p[0] * p[1];
+        quadrics[q + 2] += weight * p[0] * p[2];
+        quadrics[q + 3] += weight * p[0] * p[3];
+        quadrics[q + 4] += weight * p[1] * p[1];
+        quadrics[q + 5] += weight * p[1] * p[2];
+        quadrics[q + 6] += weight * p[1] * p[3];
+        quadrics[q + 7] += weight * p[2] * p[2];
+        quadrics[q + 8] += weight * p[2] * p[3];
+        quadrics[q + 9] += weight * p[3] * p[3];
+    }
+
+    private static long edgeKey(int a, int b) {
+        return a < b ? (long) a << 32 | b : (long) b << 32 | a;
+    }
+}
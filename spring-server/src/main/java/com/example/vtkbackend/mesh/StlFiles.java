@@ -0,0 +1,96 @@
+package com.example.vtkbackend.mesh;
+
+import com.example.vtkbackend.parser.StlParser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads ASCII and binary STL files into indexed meshes and writes meshes as binary STL.
+ */
+public final class StlFiles {
+
+    private static final int HEADER_BYTES = 80;
+    private static final int TRIANGLE_BYTES = 50;
+    private static final int WRITE_BATCH = 4096;
+
+    private StlFiles() {
+    }
+
+    /**
+     * Binary STL is recognized by its size matching the triangle count in its header; anything
+     * else is read as ASCII STL.
+     */
+    public static TriangleMesh read(Path file) throws IOException {
+        long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (size >= HEADER_BYTES + 4) {
+                ByteBuffer count = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(count, HEADER_BYTES);
+                long triangles = Integer.toUnsignedLong(count.getInt(0));
+                if (size == HEADER_BYTES + 4 + triangles * TRIANGLE_BYTES) {
+                    return readBinary(channel, size, (int) triangles);
+                }
+            }
+        }
+        return TriangleMesh.fromTriangleSoup(new StlParser().parse(file).points());
+    }
+
+    private static TriangleMesh readBinary(FileChannel channel, long size, int triangles) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        TriangleMesh.VertexWelder welder = new TriangleMesh.VertexWelder(triangles * 3);
+        int[] indices = new int[triangles * 3];
+        for (int t = 0; t < triangles; t++) {
+            // Skip the stored facet normal; it is recomputed on write
+            int at = HEADER_BYTES + 4 + t * TRIANGLE_BYTES + 12;
+            for (int k = 0; k < 3; k++) {
+                int v = at + k * 12;
+                indices[t * 3 + k] = welder.indexOf(buffer.getFloat(v), buffer.getFloat(v + 4), buffer.getFloat(v + 8));
+            }
+        }
+        return new TriangleMesh(welder.positions(), indices);
+    }
+
+    public static void writeBinary(TriangleMesh mesh, OutputStream out) throws IOException {
+        double[] p = mesh.positions();
+        int[] indices = mesh.indices();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + 4).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] title = "vtk-backend simplified mesh".getBytes(StandardCharsets.US_ASCII);
+        header.put(title).position(HEADER_BYTES);
+        header.putInt(mesh.triangleCount());
+        out.write(header.array());
+
+        ByteBuffer batch = ByteBuffer.allocate(WRITE_BATCH * TRIANGLE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int t = 0; t < mesh.triangleCount(); t++) {
+            int a = indices[t * 3] * 3, b = indices[t * 3 + 1] * 3, c = indices[t * 3 + 2] * 3;
+            double ux = p[b] - p[a], uy = p[b + 1] - p[a + 1], uz = p[b + 2] - p[a + 2];
+            double vx = p[c] - p[a], vy = p[c + 1] - p[a + 1], vz = p[c + 2] - p[a + 2];
+            double nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length > 0) {
+                nx /= length;
+                ny /= length;
+                nz /= length;
+            }
+            batch.putFloat((float) nx).putFloat((float) ny).putFloat((float) nz);
+            for (int v : new int[]{a, b, c}) {
+                batch.putFloat((float) p[v]).putFloat((float) p[v + 1]).putFloat((float) p[v + 2]);
+            }
+            batch.putShort((short) 0);
+            if (!batch.hasRemaining()) {
+                out.write(batch.array(), 0, batch.position());
+                batch.clear();
+            }
+        }
+        out.write(batch.array(), 0, batch.position());
+    }
+}
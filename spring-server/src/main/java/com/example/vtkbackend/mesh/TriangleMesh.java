@@ -0,0 +1,141 @@
+package com.example.vtkbackend.mesh;
+
+import com.example.vtkbackend.model.GeologicalData;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Indexed triangle mesh: shared vertex positions ({@code x, y, z} interleaved) and three vertex
+ * indices per triangle. Instances are treated as immutable once built.
+ */
+public final class TriangleMesh {
+
+    private final double[] positions;
+    private final int[] indices;
+
+    public TriangleMesh(double[] positions, int[] indices) {
+        if (positions.length % 3 != 0 || indices.length % 3 != 0) {
+            throw new IllegalArgumentException("Positions and indices must come in triples");
+        }
+        this.positions = positions;
+        this.indices = indices;
+    }
+
+    /**
+     * True if {@code data} is an STL triangle soup as produced by the STL parser: three
+     * consecutive points per triangle.
+     */
+    public static boolean isTriangleSoup(GeologicalData data) {
+        return "STL".equals(data.properties().get("type")) && data.points().size() % 3 == 0;
+    }
+
+    /** Indexes a triangle soup, merging vertices with identical coordinates. */
+    public static TriangleMesh fromTriangleSoup(List<GeologicalData.Point3D> soup) {
+        int n = soup.size() - soup.size() % 3;
+        VertexWelder welder = new VertexWelder(n);
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            GeologicalData.Point3D p = soup.get(i);
+            indices[i] = welder.indexOf(p.x(), p.y(), p.z());
+        }
+        return new TriangleMesh(welder.positions(), indices);
+    }
+
+    /** The triangles as three consecutive points each, the shape the STL parser produces. */
+    public List<GeologicalData.Point3D> toTriangleSoup() {
+        return new AbstractList<>() {
+            @Override
+            public GeologicalData.Point3D get(int i) {
+                int v = indices[i] * 3;
+                return new GeologicalData.Point3D(positions[v], positions[v + 1], positions[v + 2]);
+            }
+
+            @Override
+            public int size() {
+                return indices.length;
+            }
+        };
+    }
+
+    public GeologicalData.BoundingBox boundingBox() {
+        if (positions.length == 0) {
+            return new GeologicalData.BoundingBox(0, 0, 0, 0, 0, 0);
+        }
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < positions.length; i += 3) {
+            minX = Math.min(minX, positions[i]);
+            minY = Math.min(minY, positions[i + 1]);
+            minZ = Math.min(minZ, positions[i + 2]);
+            maxX = Math.max(maxX, positions[i]);
+            maxY = Math.max(maxY, positions[i + 1]);
+            maxZ = Math.max(maxZ, positions[i + 2]);
+        }
+        return new GeologicalData.BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    public int vertexCount() {
+        return positions.length / 3;
+    }
+
+    public int triangleCount() {
+        return indices.length / 3;
+    }
+
+    /** Backing array; do not modify. */
+    public double[] positions() {
+        return positions;
+    }
+
+    /** Backing array; do not modify. */
+    public int[] indices() {
+        return indices;
+    }
+
+    long sizeBytes() {
+        return (long) positions.length * Double.BYTES + (long) indices.length * Integer.BYTES;
+    }
+
+    /** Open-addressing map from exact vertex coordinates to an index in first-seen order. */
+    static final class VertexWelder {
+        private final int[] slots;
+        private double[] positions;
+        private int size;
+
+        VertexWelder(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+            slots = new int[capacity];
+            Arrays.fill(slots, -1);
+            positions = new double[Math.max(3, expected / 2 * 3)];
+        }
+
+        int indexOf(double x, double y, double z) {
+            int mask = slots.length - 1;
+            long h = Double.doubleToLongBits(x) * 0x9E3779B97F4A7C15L
+                ^ Double.doubleToLongBits(y) * 0xC2B2AE3D27D4EB4FL
+                ^ Double.doubleToLongBits(z) * 0x165667B19E3779F9L;
+            int slot = (int) (h ^ h >>> 32) & mask;
+            while (slots[slot] >= 0) {
+                int v = slots[slot] * 3;
+                if (positions[v] == x && positions[v + 1] == y && positions[v + 2] == z) {
+                    return slots[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            if ((size + 1) * 3 > positions.length) {
+                positions = Arrays.copyOf(positions, positions.length * 2);
+            }
+            positions[size * 3] = x;
+            positions[size * 3 + 1] = y;
+            positions[size * 3 + 2] = z;
+            slots[slot] = size;
+            return size++;
+        }
+
+        double[] positions() {
+            return Arrays.copyOf(positions, size * 3);
+        }
+    }
+}
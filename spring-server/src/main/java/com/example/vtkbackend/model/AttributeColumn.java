@@ -0,0 +1,68 @@
+package com.example.vtkbackend.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A non-coordinate column kept alongside the points, one value per point.
+ * Numeric columns use {@code values} (NaN = missing); categorical columns are dictionary
+ * encoded in {@code codes} (-1 = missing) with the distinct strings in {@code dictionary}.
+ * Text columns, strings with too many distinct values to be worth a dictionary (such as sample
+ * ids), keep one string per row in {@code texts} (null = missing) and only count their values.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AttributeColumn(
+    String name,
+    Type type,
+    double[] values,
+    int[] codes,
+    List<String> dictionary,
+    String[] texts,
+    Statistics statistics
+) {
+
+    public enum Type { NUMERIC, CATEGORICAL, TEXT }
+
+    /** A numeric or categorical column. */
+    public AttributeColumn(String name, Type type, double[] values, int[] codes, List<String> dictionary,
+                           Statistics statistics) {
+        this(name, type, values, codes, dictionary, null, statistics);
+    }
+
+    /**
+     * For numeric columns {@code histogram[i]} counts values in {@code [binEdges[i], binEdges[i+1])};
+     * for categorical columns it counts occurrences of {@code dictionary[i]}.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Statistics(
+        int count,
+        int missing,
+        Double min,
+        Double max,
+        Double mean,
+        double[] binEdges,
+        long[] histogram
+    ) {}
+
+    public int size() {
+        return switch (type) {
+            case NUMERIC -> values.length;
+            case CATEGORICAL -> codes.length;
+            case TEXT -> texts.length;
+        };
+    }
+
+    /** Rows {@code fromRow} onwards, with the dictionary and statistics of the whole column. */
+    public AttributeColumn tail(int fromRow) {
+        return switch (type) {
+            case NUMERIC -> new AttributeColumn(name, type, Arrays.copyOfRange(values, fromRow, values.length), null,
+                null, statistics);
+            case CATEGORICAL -> new AttributeColumn(name, type, null, Arrays.copyOfRange(codes, fromRow, codes.length),
+                dictionary, statistics);
+            case TEXT -> new AttributeColumn(name, type, null, null, null,
+                Arrays.copyOfRange(texts, fromRow, texts.length), statistics);
+        };
+    }
+}
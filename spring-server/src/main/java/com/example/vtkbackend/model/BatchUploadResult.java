@@ -0,0 +1,36 @@
+package com.example.vtkbackend.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch upload: one entry per file or archive entry, in upload order, plus the
+ * bounding box enclosing every ingested dataset (null when nothing with points was ingested).
+ * {@code error} is set when reading the upload failed part way; the files read before then are
+ * still listed.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchUploadResult(
+    int ingested,
+    int skipped,
+    int failed,
+    long totalPoints,
+    GeologicalData.BoundingBox boundingBox,
+    long elapsedMillis,
+    List<FileOutcome> files,
+    String error
+) {
+
+    public enum Status { INGESTED, SKIPPED, FAILED, REJECTED }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record FileOutcome(
+        String filename,
+        Status status,
+        String id,
+        Integer points,
+        GeologicalData.BoundingBox boundingBox,
+        String message
+    ) {}
+}
@@ -0,0 +1,27 @@
+package com.example.vtkbackend.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Rows appended to a dataset by an incremental re-ingestion, as pushed to viewers of the dataset.
+ * {@code points} and the attribute values are only the new rows, {@code fromRow} onwards; the
+ * attributes carry their full dictionaries and statistics, and {@code boundingBox} covers the
+ * whole dataset, so a viewer holding the earlier rows can update everything it shows.
+ *
+ * @param parsedBytes how much of the stored file the dataset now covers
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record DatasetAppend(
+    String id,
+    int fromRow,
+    int rows,
+    int totalRows,
+    List<GeologicalData.Point3D> points,
+    List<GeologicalData.Feature> features,
+    List<AttributeColumn> attributes,
+    GeologicalData.BoundingBox boundingBox,
+    long parsedBytes
+) {
+}
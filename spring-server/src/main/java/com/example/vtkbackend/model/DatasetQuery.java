@@ -0,0 +1,31 @@
+package com.example.vtkbackend.model;
+
+import java.util.List;
+
+/**
+ * Filter over a dataset's attribute columns and coordinates; all predicates must match.
+ *
+ * <pre>
+ * {"predicates": [
+ *    {"column": "mineral_type", "op": "eq", "value": "gold"},
+ *    {"column": "concentration", "op": "gt", "value": 1.0},
+ *    {"column": "grade", "op": "in", "values": ["high", "medium"]}],
+ *  "bbox": {"minX": 100, "maxX": 250},
+ *  "limit": 100000}
+ * </pre>
+ */
+public record DatasetQuery(
+    List<Predicate> predicates,
+    Bounds bbox,
+    Integer limit
+) {
+
+    /**
+     * {@code op} is one of eq, ne, in, lt, lte, gt, gte, between. {@code in} and {@code between}
+     * take {@code values}; the others take {@code value}. Ordering operators need a numeric column.
+     */
+    public record Predicate(String column, String op, Object value, List<Object> values) {}
+
+    /** Any bound left null is unbounded. */
+    public record Bounds(Double minX, Double minY, Double minZ, Double maxX, Double maxY, Double maxZ) {}
+}
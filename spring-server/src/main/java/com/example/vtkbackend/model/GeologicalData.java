@@ -7,7 +7,8 @@ public record GeologicalData(
     List<Point3D> points,
     List<Feature> features,
     Map<String, Object> properties,
-    BoundingBox boundingBox
+    BoundingBox boundingBox,
+    List<AttributeColumn> attributes
 ) {
     
     public record Point3D(double x, double y, double z) {}
@@ -27,5 +28,37 @@ public record GeologicalData(
     public record BoundingBox(
         double minX, double minY, double minZ,
         double maxX, double maxY, double maxZ
-    ) {}
+    ) {
+
+        /** Smallest box containing all {@code points}; all zero if there are none. */
+        public static BoundingBox of(List<Point3D> points) {
+            if (points.isEmpty()) {
+                return new BoundingBox(0, 0, 0, 0, 0, 0);
+            }
+
+            double minX = points.get(0).x();
+            double minY = points.get(0).y();
+            double minZ = points.get(0).z();
+            double maxX = minX;
+            double maxY = minY;
+            double maxZ = minZ;
+
+            for (Point3D point : points) {
+                minX = Math.min(minX, point.x());
+                minY = Math.min(minY, point.y());
+                minZ = Math.min(minZ, point.z());
+                maxX = Math.max(maxX, point.x());
+                maxY = Math.max(maxY, point.y());
+                maxZ = Math.max(maxZ, point.z());
+            }
+
+            return new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+        }
+
+        public BoundingBox union(BoundingBox other) {
+            return new BoundingBox(
+                Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+        }
+    }
 }
@@ -0,0 +1,14 @@
+package com.example.vtkbackend.model;
+
+import java.nio.file.Path;
+
+/**
+ * An uploaded file written to storage but not parsed yet.
+ */
+public record StoredFile(
+    String id,
+    String originalFilename,
+    String extension,
+    Path path,
+    long sizeBytes
+) {}
@@ -0,0 +1,6 @@
+package com.example.vtkbackend.model;
+
+/**
+ * A single position fix of a live track. {@code t} is epoch milliseconds.
+ */
+public record TrackPoint(String id, long t, double lat, double lon, double alt) {}
@@ -0,0 +1,23 @@
+package com.example.vtkbackend.model;
+
+import java.util.List;
+
+/**
+ * Progress of a resumable upload. {@code missing} lists the byte ranges still to be sent, so a
+ * client that lost track after a failure can resume with exactly those chunks.
+ */
+public record UploadStatus(
+    String uploadId,
+    String filename,
+    long size,
+    long receivedBytes,
+    List<Range> missing
+) {
+
+    /** Bytes {@code [start, end)}. */
+    public record Range(long start, long end) {}
+
+    public boolean complete() {
+        return missing.isEmpty();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.GeologicalData;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A parser for a line-oriented format that files only grow in by appending lines, e.g. survey
+ * loggers writing rows. Its parses stop after the last complete line and record in
+ * {@link #PARSED_BYTES_PROPERTY} how much of the file they covered, so a later {@link #append}
+ * only reads the lines added since.
+ */
+public interface AppendableParser extends GeologicalFileParser {
+
+    /** Property holding how many bytes of the file the data was parsed from. */
+    String PARSED_BYTES_PROPERTY = "parsedBytes";
+
+    /**
+     * {@code previous} extended with the lines appended to the file since it was parsed: points,
+     * features and attribute columns (with their statistics) continue where it ended, and the
+     * bounding box grows to cover the new points. Only complete lines are read; one still being
+     * written is left for the next call.
+     *
+     * @param previous data this parser produced from the same file, earlier
+     * @return {@code previous} itself if no complete line was appended
+     * @throws IllegalArgumentException if the file is now shorter than what {@code previous} was
+     *                                  parsed from, so it was not only appended to
+     */
+    GeologicalData append(Path file, GeologicalData previous) throws IOException;
+
+    static long parsedBytes(GeologicalData data) {
+        Object parsed = data.properties().get(PARSED_BYTES_PROPERTY);
+        if (!(parsed instanceof Number bytes)) {
+            throw new IllegalArgumentException("Data does not record how much of its file was parsed");
+        }
+        return bytes.longValue();
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.AttributeColumn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates one attribute column while the file is parsed, computing its statistics in the
+ * same pass. A column starts out numeric and is demoted to categorical the first time a
+ * non-empty value does not parse as a number, and from categorical to text once it has more
+ * than {@link #MAX_CATEGORIES} distinct values.
+ */
+final class AttributeColumnBuilder {
+
+    static final int HISTOGRAM_BINS = 32;
+    // Beyond this a column is more like an id than a category: its dictionary, lookup and counts
+    // would grow with the rows, and be sent with every response and append event
+    static final int MAX_CATEGORIES = 4096;
+
+    private final String name;
+    private boolean numeric = true;
+    private int size;
+    private int missing;
+
+    // Numeric storage and running statistics
+    private double[] values = new double[256];
+    private int numericCount;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double mean;
+    private StreamingHistogram histogram = new StreamingHistogram(HISTOGRAM_BINS);
+
+    // Categorical storage, allocated on demotion
+    private int[] codes;
+    private Map<String, Integer> codeByValue;
+    private List<String> dictionary;
+    private long[] categoryCounts;
+
+    // Text storage, replacing the categorical storage once there are too many distinct values
+    private String[] texts;
+
+    AttributeColumnBuilder(String name) {
+        this.name = name;
+    }
+
+    /** Continues a column built earlier, so rows appended to its file extend it and its statistics. */
+    static AttributeColumnBuilder resume(AttributeColumn column) {
+        AttributeColumnBuilder builder = new AttributeColumnBuilder(column.name());
+        AttributeColumn.Statistics stats = column.statistics();
+        builder.size = column.size();
+        builder.missing = stats.missing();
+        if (column.type() == AttributeColumn.Type.NUMERIC) {
+            builder.values = Arrays.copyOf(column.values(), Math.max(16, builder.size));
+            builder.numericCount = stats.count();
+            if (stats.count() > 0) {
+                builder.min = stats.min();
+                builder.max = stats.max();
+                builder.mean = stats.mean();
+            }
+            builder.histogram = StreamingHistogram.resume(HISTOGRAM_BINS, stats.binEdges(), stats.histogram());
+            return builder;
+        }
+        builder.numeric = false;
+        builder.values = null;
+        builder.histogram = null;
+        if (column.type() == AttributeColumn.Type.TEXT) {
+            builder.texts = Arrays.copyOf(column.texts(), Math.max(16, builder.size));
+            return builder;
+        }
+        builder.codes = Arrays.copyOf(column.codes(), Math.max(16, builder.size));
+        builder.dictionary = new ArrayList<>(column.dictionary());
+        builder.codeByValue = HashMap.newHashMap(builder.dictionary.size());
+        for (int code = 0; code < builder.dictionary.size(); code++) {
+            builder.codeByValue.put(builder.dictionary.get(code), code);
+        }
+        builder.categoryCounts = Arrays.copyOf(stats.histogram(), Math.max(16, builder.dictionary.size()));
+        return builder;
+    }
+
+    void add(String raw) {
+        String value = raw == null ? "" : raw.trim();
+        if (numeric) {
+            if (value.isEmpty()) {
+                appendNumeric(Double.NaN);
+                return;
+            }
+            try {
+                appendNumeric(Double.parseDouble(value));
+                return;
+            } catch (NumberFormatException e) {
+                demoteToCategorical();
+            }
+        }
+        appendString(value);
+    }
+
+    AttributeColumn build() {
+        if (numeric) {
+            double[] column = Arrays.copyOf(values, size);
+            AttributeColumn.Statistics stats = new AttributeColumn.Statistics(
+                numericCount, missing,
+                numericCount > 0 ? min : null,
+                numericCount > 0 ? max : null,
+                numericCount > 0 ? mean : null,
+                histogram.edges(), histogram.counts());
+            return new AttributeColumn(name, AttributeColumn.Type.NUMERIC, column, null, null, stats);
+        }
+        if (texts != null) {
+            AttributeColumn.Statistics stats = new AttributeColumn.Statistics(
+                size - missing, missing, null, null, null, null, null);
+            return new AttributeColumn(name, AttributeColumn.Type.TEXT, null, null, null,
+                Arrays.copyOf(texts, size), stats);
+        }
+        int[] column = Arrays.copyOf(codes, size);
+        AttributeColumn.Statistics stats = new AttributeColumn.Statistics(
+            size - missing, missing, null, null, null, null,
+            Arrays.copyOf(categoryCounts, dictionary.size()));
+        return new AttributeColumn(name, AttributeColumn.Type.CATEGORICAL, null, column, List.copyOf(dictionary), stats);
+    }
+
+    private void appendNumeric(double v) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        if (Double.isNaN(v) || Double.isInfinite(v)) {
+            values[size++] = Double.NaN;
+            missing++;
+            return;
+        }
+        values[size++] = v;
+        numericCount++;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+        mean += (v - mean) / numericCount;
+        histogram.add(v);
+    }
+
+    private void appendString(String value) {
+        if (texts != null) {
+            appendText(value);
+        } else {
+            appendCategorical(value);
+        }
+    }
+
+    private void appendCategorical(String value) {
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, size * 2);
+        }
+        if (value.isEmpty()) {
+            codes[size++] = -1;
+            missing++;
+            return;
+        }
+        Integer code = codeByValue.get(value);
+        if (code == null) {
+            if (dictionary.size() == MAX_CATEGORIES) {
+                demoteToText();
+                appendText(value);
+                return;
+            }
+            code = dictionary.size();
+            codeByValue.put(value, code);
+            dictionary.add(value);
+            if (code == categoryCounts.length) {
+                categoryCounts = Arrays.copyOf(categoryCounts, categoryCounts.length * 2);
+            }
+        }
+        codes[size++] = code;
+        categoryCounts[code]++;
+    }
+
+    // Re-encodes the numbers seen so far as strings; numeric statistics are discarded
+    private void demoteToCategorical() {
+        numeric = false;
+        codes = new int[Math.max(values.length, 16)];
+        codeByValue = new HashMap<>();
+        dictionary = new ArrayList<>();
+        categoryCounts = new long[16];
+        double[] previous = values;
+        int count = size;
+        size = 0;
+        missing = 0;
+        for (int i = 0; i < count; i++) {
+            appendString(Double.isNaN(previous[i]) ? "" : format(previous[i]));
+        }
+        values = null;
+        histogram = null;
+    }
+
+    // Decodes the codes seen so far into strings; the dictionary and its counts are discarded
+    private void demoteToText() {
+        texts = new String[codes.length];
+        for (int i = 0; i < size; i++) {
+            texts[i] = codes[i] < 0 ? null : dictionary.get(codes[i]);
+        }
+        codes = null;
+        codeByValue = null;
+        dictionary = null;
+        categoryCounts = null;
+    }
+
+    private void appendText(String value) {
+        if (size == texts.length) {
+            texts = Arrays.copyOf(texts, size * 2);
+        }
+        if (value.isEmpty()) {
+            texts[size++] = null;
+            missing++;
+            return;
+        }
+        texts[size++] = value;
+    }
+
+    private static String format(double v) {
+        if (v == Math.rint(v) && Math.abs(v) < 1e15) {
+            return Long.toString((long) v);
+        }
+        return Double.toString(v);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.AttributeColumn;
+import com.example.vtkbackend.model.GeologicalData;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Point tables with X/Y(/Z) columns found by name; every other column becomes a typed attribute.
+ * One row per line, so rows appended to a file can be parsed on their own.
+ */
+@ParserFormat(name = "CSV", extensions = "csv", streaming = true, indexed = true, heapPerByte = 10)
+public class CsvParser implements AppendableParser {
+
+    @Override
+    public GeologicalData parse(Path filePath) throws IOException {
+        // A last line without its newline may still be being written; append() picks it up once complete
+        return read(filePath, 0, Parsers.completeLinesEnd(filePath, 0), null);
+    }
+
+    @Override
+    public GeologicalData append(Path filePath, GeologicalData previous) throws IOException {
+        long from = AppendableParser.parsedBytes(previous);
+        long to = Parsers.completeLinesEnd(filePath, from);
+        return to > from ? read(filePath, from, to, previous) : previous;
+    }
+
+    /**
+     * Parses bytes {@code [from, to)} of the file: the header and rows from the start, or rows
+     * appended to {@code previous} otherwise.
+     */
+    private GeologicalData read(Path filePath, long from, long to, GeologicalData previous) throws IOException {
+        List<GeologicalData.Point3D> points = previous == null ? new ArrayList<>() : new ArrayList<>(previous.points());
+        Map<String, Object> properties = previous == null ? new HashMap<>() : new HashMap<>(previous.properties());
+        List<AttributeColumn> attributes = new ArrayList<>();
+
+        try (CSVReader reader = new CSVReader(new InputStreamReader(Parsers.range(filePath, from, to)))) {
+            String[] headers = from == 0 ? reader.readNext() : readHeaders(filePath);
+            if (headers == null) {
+                throw new IOException("CSV file is empty");
+            }
+            
+            // Find coordinate columns
+            int xCol = findColumnIndex(headers, "x", "longitude", "lon", "easting");
+            int yCol = findColumnIndex(headers, "y", "latitude", "lat", "northing");
+            int zCol = findColumnIndex(headers, "z", "elevation", "height", "altitude");
+            
+            if (xCol == -1 || yCol == -1) {
+                throw new IOException("CSV must contain X/Y coordinate columns");
+            }
+
+            // Every other column is kept as a typed attribute column aligned with the points
+            int[] attributeCols = new int[headers.length];
+            List<AttributeColumnBuilder> builders = new ArrayList<>();
+            for (int i = 0; i < headers.length; i++) {
+                if (i != xCol && i != yCol && i != zCol) {
+                    attributeCols[builders.size()] = i;
+                    builders.add(previous == null
+                        ? new AttributeColumnBuilder(headers[i].trim())
+                        : AttributeColumnBuilder.resume(previous.attributes().get(builders.size())));
+                }
+            }
+            
+            String[] line;
+            int rowsRead = 0;
+            int rowsSkipped = 0;
+            while ((line = reader.readNext()) != null) {
+                rowsRead++;
+                try {
+                    double x = Double.parseDouble(line[xCol]);
+                    double y = Double.parseDouble(line[yCol]);
+                    double z = zCol != -1 ? Double.parseDouble(line[zCol]) : 0.0;
+                    points.add(new GeologicalData.Point3D(x, y, z));
+                    for (int a = 0; a < builders.size(); a++) {
+                        int col = attributeCols[a];
+                        builders.get(a).add(col < line.length ? line[col] : null);
+                    }
+                } catch (NumberFormatException e) {
+                    // Skip invalid rows
+                    rowsSkipped++;
+                }
+            }
+
+            for (AttributeColumnBuilder builder : builders) {
+                attributes.add(builder.build());
+            }
+            
+            properties.put("totalPoints", points.size());
+            properties.merge("rowsRead", rowsRead, (a, b) -> (Integer) a + (Integer) b);
+            properties.merge("rowsSkipped", rowsSkipped, (a, b) -> (Integer) a + (Integer) b);
+            properties.put("headers", Arrays.asList(headers));
+            properties.put(PARSED_BYTES_PROPERTY, to);
+            // Longitude/latitude columns are WGS84; eastings/northings need a CRS given at upload
+            if (previous == null && headers[xCol].toLowerCase().contains("lon")) {
+                properties.put(CRS_PROPERTY, WGS84);
+            }
+        } catch (CsvValidationException e) {
+            throw new IOException("Invalid CSV format: " + e.getMessage(), e);
+        }
+        
+        int previousPoints = previous == null ? 0 : previous.points().size();
+        return new GeologicalData(
+            points,
+            Collections.emptyList(),
+            properties,
+            previous == null
+                ? GeologicalData.BoundingBox.of(points)
+                : Parsers.extendBoundingBox(previous.boundingBox(), previousPoints,
+                    points.subList(previousPoints, points.size())),
+            attributes
+        );
+    }
+
+    private static String[] readHeaders(Path filePath) throws IOException, CsvValidationException {
+        try (CSVReader reader = new CSVReader(new FileReader(filePath.toFile()))) {
+            return reader.readNext();
+        }
+    }
+
+    private static int findColumnIndex(String[] headers, String... possibleNames) {
+        for (int i = 0; i < headers.length; i++) {
+            for (String name : possibleNames) {
+                if (headers[i].toLowerCase().contains(name.toLowerCase())) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+}
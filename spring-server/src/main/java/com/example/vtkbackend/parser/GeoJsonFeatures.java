@@ -0,0 +1,83 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.GeologicalData;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/** Feature decoding shared by the GeoJSON and GeoJSON Lines parsers. */
+final class GeoJsonFeatures {
+
+    private GeoJsonFeatures() {
+    }
+
+    static GeologicalData.Feature parseFeature(JsonNode featureNode) {
+        String id = featureNode.has("id") ? featureNode.get("id").asText() : UUID.randomUUID().toString();
+        String type = featureNode.has("type") ? featureNode.get("type").asText() : "Feature";
+        
+        GeologicalData.Geometry geometry = null;
+        JsonNode geometryNode = featureNode.path("geometry");
+        if (geometryNode.isObject()) {
+            String geometryType = geometryNode.path("type").asText();
+            List<List<Double>> coordinates = new ArrayList<>();
+            
+            if (geometryNode.has("coordinates")) {
+                // Parse coordinates based on geometry type
+                coordinates = parseCoordinates(geometryNode.get("coordinates"));
+            }
+            
+            geometry = new GeologicalData.Geometry(geometryType, coordinates);
+        }
+        
+        Map<String, Object> properties = new HashMap<>();
+        if (featureNode.has("properties")) {
+            JsonNode propertiesNode = featureNode.get("properties");
+            propertiesNode.fields().forEachRemaining(entry -> {
+                properties.put(entry.getKey(), entry.getValue().asText());
+            });
+        }
+        
+        return new GeologicalData.Feature(id, type, geometry, properties);
+    }
+
+    private static List<List<Double>> parseCoordinates(JsonNode coordinatesNode) {
+        List<List<Double>> coordinates = new ArrayList<>();
+        
+        if (coordinatesNode.isArray()) {
+            for (JsonNode coordNode : coordinatesNode) {
+                if (coordNode.isArray()) {
+                    List<Double> coord = new ArrayList<>();
+                    for (JsonNode valueNode : coordNode) {
+                        if (valueNode.isNumber()) {
+                            coord.add(valueNode.asDouble());
+                        }
+                    }
+                    if (!coord.isEmpty()) {
+                        coordinates.add(coord);
+                    }
+                }
+            }
+        }
+        
+        return coordinates;
+    }
+
+    static List<GeologicalData.Point3D> extractPoints(GeologicalData.Geometry geometry) {
+        List<GeologicalData.Point3D> points = new ArrayList<>();
+        
+        for (List<Double> coord : geometry.coordinates()) {
+            if (coord.size() >= 2) {
+                double x = coord.get(0);
+                double y = coord.get(1);
+                double z = coord.size() > 2 ? coord.get(2) : 0.0;
+                points.add(new GeologicalData.Point3D(x, y, z));
+            }
+        }
+        
+        return points;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.GeologicalData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Newline-delimited GeoJSON, one feature per line. Lines are independent, so lines appended to a
+ * file can be parsed on their own, and a line that is not a JSON object is skipped and counted
+ * in {@code rowsSkipped} instead of failing the whole file.
+ */
+@ParserFormat(name = "GeoJSON Lines", extensions = "geojsonl", streaming = true, heapPerByte = 6)
+public class GeoJsonLParser implements AppendableParser {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public GeologicalData parse(Path filePath) throws IOException {
+        // A last line without its newline may still be being written; append() picks it up once complete
+        return read(filePath, 0, Parsers.completeLinesEnd(filePath, 0), null);
+    }
+
+    @Override
+    public GeologicalData append(Path filePath, GeologicalData previous) throws IOException {
+        long from = AppendableParser.parsedBytes(previous);
+        long to = Parsers.completeLinesEnd(filePath, from);
+        return to > from ? read(filePath, from, to, previous) : previous;
+    }
+
+    // Parses bytes [from, to) of the file, as features following those of `previous` if given
+    private GeologicalData read(Path filePath, long from, long to, GeologicalData previous) throws IOException {
+        List<GeologicalData.Feature> features = new ArrayList<>();
+        int rowsRead = 0;
+        int rowsSkipped = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Parsers.range(filePath, from, to), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                rowsRead++;
+                JsonNode node;
+                try {
+                    node = objectMapper.readTree(line);
+                } catch (JsonProcessingException e) {
+                    // Skip invalid lines
+                    rowsSkipped++;
+                    continue;
+                }
+                if (!node.isObject()) {
+                    rowsSkipped++;
+                    continue;
+                }
+                features.add(GeoJsonFeatures.parseFeature(node));
+            }
+        }
+
+        List<GeologicalData.Point3D> points = previous == null ? new ArrayList<>() : new ArrayList<>(previous.points());
+        int previousPoints = points.size();
+        for (GeologicalData.Feature feature : features) {
+            if (feature.geometry() != null) {
+                points.addAll(GeoJsonFeatures.extractPoints(feature.geometry()));
+            }
+        }
+        if (previous != null) {
+            List<GeologicalData.Feature> appended = new ArrayList<>(previous.features());
+            appended.addAll(features);
+            features = appended;
+        }
+        
+        Map<String, Object> properties = previous == null ? new HashMap<>() : new HashMap<>(previous.properties());
+        properties.put("type", "FeatureCollection");
+        properties.put("featureCount", features.size());
+        properties.merge("rowsRead", rowsRead, (a, b) -> (Integer) a + (Integer) b);
+        properties.merge("rowsSkipped", rowsSkipped, (a, b) -> (Integer) a + (Integer) b);
+        properties.put(PARSED_BYTES_PROPERTY, to);
+        properties.putIfAbsent(CRS_PROPERTY, WGS84);
+        
+        return new GeologicalData(
+            points,
+            features,
+            properties,
+            previous == null
+                ? GeologicalData.BoundingBox.of(points)
+                : Parsers.extendBoundingBox(previous.boundingBox(), previousPoints,
+                    points.subList(previousPoints, points.size())),
+            Collections.emptyList()
+        );
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.GeologicalData;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GeoJSON FeatureCollections, read as one tree.
+ */
+@ParserFormat(name = "GeoJSON", extensions = {"geojson", "json"}, heapPerByte = 12)
+public class GeoJsonParser implements GeologicalFileParser {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public GeologicalData parse(Path filePath) throws IOException {
+        JsonNode rootNode = objectMapper.readTree(filePath.toFile());
+        List<GeologicalData.Point3D> points = new ArrayList<>();
+        List<GeologicalData.Feature> features = new ArrayList<>();
+        
+        if (rootNode.has("features")) {
+            for (JsonNode featureNode : rootNode.get("features")) {
+                GeologicalData.Feature feature = GeoJsonFeatures.parseFeature(featureNode);
+                features.add(feature);
+                
+                // Extract points from geometry
+                if (feature.geometry() != null) {
+                    points.addAll(GeoJsonFeatures.extractPoints(feature.geometry()));
+                }
+            }
+        }
+        
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("type", rootNode.get("type").asText());
+        properties.put("featureCount", features.size());
+        properties.put(CRS_PROPERTY, WGS84);
+        
+        return new GeologicalData(
+            points,
+            features,
+            properties,
+            GeologicalData.BoundingBox.of(points),
+            Collections.emptyList()
+        );
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.GeologicalData;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Parses one file format into {@link GeologicalData}. Implementations are discovered with
+ * {@link java.util.ServiceLoader} (listed in {@code META-INF/services}) and must be annotated
+ * with {@link ParserFormat}, which the {@link ParserRegistry} reads without instantiating the
+ * parser. A parser is created on the first upload of its format and then shared, so it must be
+ * thread safe and have a public no-argument constructor.
+ */
+public interface GeologicalFileParser {
+
+    /** Property naming the CRS of the parsed coordinates, set when the format implies one. */
+    String CRS_PROPERTY = "crs";
+
+    /** CRS of formats that are longitude/latitude by definition (GeoJSON, KML). */
+    String WGS84 = "EPSG:4326";
+
+    GeologicalData parse(Path file) throws IOException;
+}
@@ -0,0 +1,74 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.GeologicalData;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * KML documents; only the {@code <coordinates>} of placemarks are read.
+ */
+@ParserFormat(name = "KML", extensions = "kml", heapPerByte = 8)
+public class KmlParser implements GeologicalFileParser {
+
+    private static final Pattern COORDINATES = Pattern.compile(
+        "<coordinates>([^<]+)</coordinates>", 
+        Pattern.CASE_INSENSITIVE
+    );
+
+    @Override
+    public GeologicalData parse(Path filePath) throws IOException {
+        // Basic KML parsing - extract coordinates from placemark elements
+        List<GeologicalData.Point3D> points = new ArrayList<>();
+        String content = Files.readString(filePath);
+        
+        // Simple regex-based extraction for coordinates
+        Matcher matcher = COORDINATES.matcher(content);
+        int rowsRead = 0;
+        int rowsSkipped = 0;
+        
+        while (matcher.find()) {
+            String coordinates = matcher.group(1).trim();
+            String[] coordPairs = coordinates.split("\\s+");
+            
+            for (String coordPair : coordPairs) {
+                String[] coords = coordPair.split(",");
+                if (coords.length >= 2) {
+                    rowsRead++;
+                    try {
+                        double x = Double.parseDouble(coords[0]);
+                        double y = Double.parseDouble(coords[1]);
+                        double z = coords.length > 2 ? Double.parseDouble(coords[2]) : 0.0;
+                        points.add(new GeologicalData.Point3D(x, y, z));
+                    } catch (NumberFormatException e) {
+                        // Skip invalid coordinates
+                        rowsSkipped++;
+                    }
+                }
+            }
+        }
+        
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("type", "KML");
+        properties.put("totalPoints", points.size());
+        properties.put("rowsRead", rowsRead);
+        properties.put("rowsSkipped", rowsSkipped);
+        properties.put(CRS_PROPERTY, WGS84);
+        
+        return new GeologicalData(
+            points,
+            Collections.emptyList(),
+            properties,
+            GeologicalData.BoundingBox.of(points),
+            Collections.emptyList()
+        );
+    }
+}
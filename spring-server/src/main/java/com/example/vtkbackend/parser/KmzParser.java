@@ -0,0 +1,40 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.GeologicalData;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Zipped KML; the first {@code .kml} entry is extracted and parsed as KML.
+ */
+@ParserFormat(name = "KMZ", extensions = "kmz", heapPerByte = 80)
+public class KmzParser implements GeologicalFileParser {
+
+    private final KmlParser kmlParser = new KmlParser();
+
+    @Override
+    public GeologicalData parse(Path filePath) throws IOException {
+        // Extract KML from KMZ (ZIP) file
+        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(filePath))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (entry.getName().toLowerCase().endsWith(".kml")) {
+                    // Create temporary KML file
+                    Path tempKml = Files.createTempFile("temp", ".kml");
+                    Files.copy(zis, tempKml, StandardCopyOption.REPLACE_EXISTING);
+                    
+                    GeologicalData result = kmlParser.parse(tempKml);
+                    Files.delete(tempKml);
+                    return result;
+                }
+            }
+        }
+        
+        throw new IOException("No KML file found in KMZ archive");
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.vtkbackend.parser;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Describes the format a {@link GeologicalFileParser} handles. Read from the class before the
+ * parser (and whatever libraries it uses) is loaded, and reported by {@code /supported-formats}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ParserFormat {
+
+    String name();
+
+    /** Lower-case file extensions, without the dot. */
+    String[] extensions();
+
+    /** Reads the file incrementally instead of holding all of it in memory while parsing. */
+    boolean streaming() default false;
+
+    /** Splits the file and parses the parts on several cores. */
+    boolean parallel() default false;
+
+    /** Yields attribute columns that {@code /query} can filter on with bitmap and range indexes. */
+    boolean indexed() default false;
+
+    /**
+     * Rough peak heap needed to parse and index a file, per byte of the file, so ingestion can be
+     * admitted only while there is memory for it. Erring high only makes admission cautious.
+     */
+    double heapPerByte() default 8;
+}
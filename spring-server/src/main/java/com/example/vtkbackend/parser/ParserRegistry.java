@@ -0,0 +1,130 @@
+package com.example.vtkbackend.parser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link GeologicalFileParser}s on the classpath, by file extension. Discovery only reads
+ * each parser's {@link ParserFormat}; a parser is instantiated the first time its format is
+ * parsed, so formats nobody uploads never load their libraries.
+ */
+@Component
+public class ParserRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ParserRegistry.class);
+
+    /**
+     * A registered format and whether its parser has been loaded yet.
+     *
+     * @param appendable whether files can be re-ingested incrementally after lines are appended,
+     *                   i.e. the parser is an {@link AppendableParser}
+     */
+    public record Format(String name, List<String> extensions, boolean streaming, boolean parallel,
+                         boolean indexed, boolean appendable, boolean loaded) {}
+
+    private final List<Registration> registrations = new ArrayList<>();
+    private final Map<String, Registration> byExtension = new LinkedHashMap<>();
+
+    public ParserRegistry() {
+        ServiceLoader.load(GeologicalFileParser.class, GeologicalFileParser.class.getClassLoader())
+            .stream()
+            .forEach(this::register);
+    }
+
+    private void register(ServiceLoader.Provider<GeologicalFileParser> provider) {
+        // Provider.type() loads the class without initializing it or instantiating the parser
+        ParserFormat format = provider.type().getAnnotation(ParserFormat.class);
+        if (format == null) {
+            throw new IllegalStateException(provider.type().getName() + " is not annotated with @ParserFormat");
+        }
+        Registration registration = new Registration(provider, format);
+        registrations.add(registration);
+        for (String extension : format.extensions()) {
+            Registration previous = byExtension.putIfAbsent(extension.toLowerCase(Locale.ROOT), registration);
+            if (previous != null) {
+                throw new IllegalStateException("Extension " + extension + " is claimed by both "
+                    + previous.format.name() + " and " + format.name());
+            }
+        }
+    }
+
+    public boolean supports(String extension) {
+        return byExtension.containsKey(extension.toLowerCase(Locale.ROOT));
+    }
+
+    public Set<String> extensions() {
+        return byExtension.keySet();
+    }
+
+    /**
+     * @throws IllegalArgumentException if no parser handles the extension
+     */
+    public GeologicalFileParser parser(String extension) {
+        Registration registration = byExtension.get(extension.toLowerCase(Locale.ROOT));
+        if (registration == null) {
+            throw new IllegalArgumentException("File type not supported: " + extension);
+        }
+        return registration.parser();
+    }
+
+    /**
+     * Rough peak heap to parse and index a file of the extension, per byte of the file; see
+     * {@link ParserFormat#heapPerByte}.
+     *
+     * @throws IllegalArgumentException if no parser handles the extension
+     */
+    public double heapPerByte(String extension) {
+        Registration registration = byExtension.get(extension.toLowerCase(Locale.ROOT));
+        if (registration == null) {
+            throw new IllegalArgumentException("File type not supported: " + extension);
+        }
+        return registration.format.heapPerByte();
+    }
+
+    public List<Format> formats() {
+        return registrations.stream()
+            .map(r -> new Format(r.format.name(), List.of(r.format.extensions()), r.format.streaming(),
+                r.format.parallel(), r.format.indexed(),
+                AppendableParser.class.isAssignableFrom(r.provider.type()), r.parser != null))
+            .toList();
+    }
+
+    private static final class Registration {
+
+        private final ServiceLoader.Provider<GeologicalFileParser> provider;
+        private final ParserFormat format;
+        private volatile GeologicalFileParser parser;
+
+        Registration(ServiceLoader.Provider<GeologicalFileParser> provider, ParserFormat format) {
+            this.provider = provider;
+            this.format = format;
+        }
+
+        GeologicalFileParser parser() {
+            GeologicalFileParser loaded = parser;
+            if (loaded == null) {
+                synchronized (this) {
+                    loaded = parser;
+                    if (loaded == null) {
+                        long start = System.nanoTime();
+                        loaded = provider.get();
+                        parser = loaded;
+                        log.info("Loaded {} parser in {} ms", format.name(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    }
+                }
+            }
+            return loaded;
+        }
+    }
+}
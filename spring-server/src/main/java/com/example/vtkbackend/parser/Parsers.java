@@ -0,0 +1,117 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.GeologicalData;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+final class Parsers {
+
+    private Parsers() {
+    }
+
+    /**
+     * Bounding box of {@code previous} extended by {@code appended}, which are points added after
+     * the ones {@code previous} was computed from (out of {@code previousPoints} in total).
+     */
+    static GeologicalData.BoundingBox extendBoundingBox(GeologicalData.BoundingBox previous, int previousPoints,
+                                                        List<GeologicalData.Point3D> appended) {
+        if (appended.isEmpty()) {
+            return previous;
+        }
+        GeologicalData.BoundingBox box = GeologicalData.BoundingBox.of(appended);
+        return previousPoints == 0 ? box : previous.union(box);
+    }
+
+    /**
+     * Where the complete lines of a file starting at {@code from} end: just past its last newline,
+     * or {@code from} if there is none after it.
+     *
+     * @throws IllegalArgumentException if the file is shorter than {@code from}
+     */
+    static long completeLinesEnd(Path file, long from) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < from) {
+                throw new IllegalArgumentException(
+                    "File is shorter than when it was last parsed (" + size + " < " + from + " bytes); re-upload it");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            long end = size;
+            while (end > from) {
+                int length = (int) Math.min(buffer.capacity(), end - from);
+                buffer.clear().limit(length);
+                long start = end - length;
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, start + buffer.position()) < 0) {
+                        throw new IOException("File shrank while being read");
+                    }
+                }
+                for (int i = length - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        return start + i + 1;
+                    }
+                }
+                end = start;
+            }
+            return from;
+        }
+    }
+
+    /** Bytes {@code [from, to)} of a file. */
+    static InputStream range(Path file, long from, long to) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        try {
+            in.skipNBytes(from);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new FilterInputStream(in) {
+            private long remaining = to - from;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = super.read();
+                if (b >= 0) {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int n = super.read(b, off, (int) Math.min(len, remaining));
+                if (n > 0) {
+                    remaining -= n;
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(Math.min(n, remaining));
+                remaining -= skipped;
+                return skipped;
+            }
+
+            @Override
+            public int available() throws IOException {
+                return (int) Math.min(super.available(), remaining);
+            }
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.GeologicalData;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ASCII STL meshes; every three vertices form one triangle.
+ */
+@ParserFormat(name = "STL", extensions = "stl", streaming = true, heapPerByte = 8)
+public class StlParser implements GeologicalFileParser {
+
+    @Override
+    public GeologicalData parse(Path filePath) throws IOException {
+        // Basic STL parsing - extract vertices from triangular meshes
+        List<GeologicalData.Point3D> points = new ArrayList<>();
+        int rowsRead = 0;
+        int rowsSkipped = 0;
+        
+        try (BufferedReader reader = Files.newBufferedReader(filePath)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.startsWith("vertex")) {
+                    String[] parts = line.split("\\s+");
+                    if (parts.length >= 4) {
+                        rowsRead++;
+                        try {
+                            double x = Double.parseDouble(parts[1]);
+                            double y = Double.parseDouble(parts[2]);
+                            double z = Double.parseDouble(parts[3]);
+                            points.add(new GeologicalData.Point3D(x, y, z));
+                        } catch (NumberFormatException e) {
+                            // Skip invalid vertices
+                            rowsSkipped++;
+                        }
+                    }
+                }
+            }
+        }
+        
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("type", "STL");
+        properties.put("totalVertices", points.size());
+        properties.put("rowsRead", rowsRead);
+        properties.put("rowsSkipped", rowsSkipped);
+        
+        return new GeologicalData(
+            points,
+            Collections.emptyList(),
+            properties,
+            GeologicalData.BoundingBox.of(points),
+            Collections.emptyList()
+        );
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.GeologicalData;
+
+import java.nio.file.Path;
+import java.util.Collections;
+
+/**
+ * Formats that are accepted and stored but not parsed yet; they yield an empty dataset.
+ */
+@ParserFormat(name = "Stored only", extensions = {"shp", "dxf", "dwg"}, heapPerByte = 0)
+public class StoredOnlyParser implements GeologicalFileParser {
+
+    @Override
+    public GeologicalData parse(Path filePath) {
+        return new GeologicalData(
+            Collections.emptyList(),
+            Collections.emptyList(),
+            Collections.emptyMap(),
+            new GeologicalData.BoundingBox(0, 0, 0, 0, 0, 0),
+            Collections.emptyList()
+        );
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.vtkbackend.parser;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-bin-count histogram filled in a single pass without knowing the value range up front.
+ * When a value falls outside the current range, the bin width doubles and adjacent bins are
+ * merged, so each value costs O(1) amortized and no values need to be retained.
+ */
+final class StreamingHistogram {
+
+    private final long[] counts;
+    private double low;
+    private double width;
+    // Until two distinct values are seen there is no range to bin over
+    private double firstValue = Double.NaN;
+    private long firstValueCount;
+
+    StreamingHistogram(int bins) {
+        if (bins < 2 || bins % 2 != 0) {
+            throw new IllegalArgumentException("Bin count must be even and at least 2");
+        }
+        this.counts = new long[bins];
+    }
+
+    /**
+     * Continues a histogram from its {@link #edges()} and {@link #counts()}, e.g. to add values
+     * appended to a column after it was built.
+     */
+    static StreamingHistogram resume(int bins, double[] edges, long[] counts) {
+        StreamingHistogram histogram = new StreamingHistogram(bins);
+        if (counts.length == 0) {
+            return histogram;
+        }
+        if (edges[0] == edges[edges.length - 1]) {
+            histogram.firstValue = edges[0];
+            histogram.firstValueCount = counts[0];
+            return histogram;
+        }
+        histogram.low = edges[0];
+        histogram.width = edges[1] - edges[0];
+        System.arraycopy(counts, 0, histogram.counts, 0, counts.length);
+        return histogram;
+    }
+
+    void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        if (width == 0) {
+            if (firstValueCount == 0 || value == firstValue) {
+                firstValue = value;
+                firstValueCount++;
+                return;
+            }
+            double lo = Math.min(firstValue, value);
+            double hi = Math.max(firstValue, value);
+            low = lo;
+            // Slightly wider than the span so the maximum lands inside the last bin
+            width = Math.nextUp((hi - lo) / counts.length * (1 + 1e-9));
+            counts[binOf(firstValue)] += firstValueCount;
+        }
+        while (value < low) {
+            growDown();
+        }
+        while (value >= low + width * counts.length) {
+            growUp();
+        }
+        counts[binOf(value)]++;
+    }
+
+    /**
+     * Bin edges, one more than {@link #counts()}. Empty leading and trailing bins left over from
+     * range growth are trimmed; a single degenerate bin if at most one distinct value was seen.
+     */
+    double[] edges() {
+        if (width == 0) {
+            return firstValueCount == 0 ? new double[0] : new double[] {firstValue, firstValue};
+        }
+        int first = firstOccupied();
+        int last = lastOccupied();
+        double[] edges = new double[last - first + 2];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = low + (first + i) * width;
+        }
+        return edges;
+    }
+
+    long[] counts() {
+        if (width == 0) {
+            return firstValueCount == 0 ? new long[0] : new long[] {firstValueCount};
+        }
+        return Arrays.copyOfRange(counts, firstOccupied(), lastOccupied() + 1);
+    }
+
+    private int firstOccupied() {
+        int i = 0;
+        while (i < counts.length - 1 && counts[i] == 0) {
+            i++;
+        }
+        return i;
+    }
+
+    private int lastOccupied() {
+        int i = counts.length - 1;
+        while (i > 0 && counts[i] == 0) {
+            i--;
+        }
+        return i;
+    }
+
+    private int binOf(double value) {
+        int bin = (int) ((value - low) / width);
+        return Math.min(Math.max(bin, 0), counts.length - 1);
+    }
+
+    // Doubles the width keeping `low`: old bins 2i, 2i+1 become bin i
+    private void growUp() {
+        int half = counts.length / 2;
+        for (int i = 0; i < half; i++) {
+            counts[i] = counts[2 * i] + counts[2 * i + 1];
+        }
+        Arrays.fill(counts, half, counts.length, 0);
+        width *= 2;
+    }
+
+    // Doubles the width keeping the upper edge: old bins 2i, 2i+1 become bin half + i
+    private void growDown() {
+        int half = counts.length / 2;
+        for (int i = half - 1; i >= 0; i--) {
+            counts[half + i] = counts[2 * i] + counts[2 * i + 1];
+        }
+        Arrays.fill(counts, 0, half, 0);
+        low -= width * counts.length;
+        width *= 2;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.GeologicalData;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Elevation rasters. Placeholder: yields a synthetic grid rather than reading the raster.
+ */
+@ParserFormat(name = "GeoTIFF", extensions = {"tif", "tiff"}, heapPerByte = 1)
+public class TiffParser implements GeologicalFileParser {
+
+    @Override
+    public GeologicalData parse(Path filePath) throws IOException {
+        // Basic TIFF parsing - create grid points for elevation data
+        // This is a simplified implementation
+        List<GeologicalData.Point3D> points = new ArrayList<>();
+        
+        // For demonstration, create a synthetic elevation grid
+        // In a real implementation, you would use a TIFF library like JAI or ImageIO
+        int gridSize = 50;
+        for (int i = 0; i < gridSize; i++) {
+            for (int j = 0; j < gridSize; j++) {
+                double x = i * 10.0;
+                double y = j * 10.0;
+                double z = Math.sin(i * 0.1) * Math.cos(j * 0.1) * 100; // Synthetic elevation
+                points.add(new GeologicalData.Point3D(x, y, z));
+            }
+        }
+        
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("type", "TIFF");
+        properties.put("gridSize", gridSize);
+        properties.put("totalPoints", points.size());
+        
+        return new GeologicalData(
+            points,
+            Collections.emptyList(),
+            properties,
+            GeologicalData.BoundingBox.of(points),
+            Collections.emptyList()
+        );
+    }
+}
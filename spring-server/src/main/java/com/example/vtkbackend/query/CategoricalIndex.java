@@ -0,0 +1,183 @@
+package com.example.vtkbackend.query;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.RoaringBitmapWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One bitmap of row ids per dictionary entry of a categorical column. A column with more than
+ * {@link #MAX_INDEXED_VALUES} distinct values gets no bitmaps, which would be one object per
+ * value; only the row count of each value is kept and matching rows are found by scanning the codes.
+ */
+final class CategoricalIndex {
+
+    static final int MAX_INDEXED_VALUES = 1024;
+
+    private final int[] codes;
+    private final Map<String, Integer> codeByValue;
+    // Null when the column has too many values to index
+    private final RoaringBitmap[] rowsByCode;
+    private final long[] rowCounts;
+
+    CategoricalIndex(int[] codes, List<String> dictionary) {
+        this.codes = codes;
+        this.codeByValue = HashMap.newHashMap(dictionary.size());
+        for (int i = 0; i < dictionary.size(); i++) {
+            codeByValue.put(dictionary.get(i), i);
+        }
+        this.rowCounts = new long[dictionary.size()];
+        for (int code : codes) {
+            if (code >= 0) {
+                rowCounts[code]++;
+            }
+        }
+        if (dictionary.size() > MAX_INDEXED_VALUES) {
+            this.rowsByCode = null;
+            return;
+        }
+        List<RoaringBitmapWriter<RoaringBitmap>> writers = new ArrayList<>(dictionary.size());
+        for (int i = 0; i < dictionary.size(); i++) {
+            writers.add(RoaringBitmapWriter.writer().runCompress(true).get());
+        }
+        // Rows are visited in order, so every writer appends and never has to search
+        for (int row = 0; row < codes.length; row++) {
+            if (codes[row] >= 0) {
+                writers.get(codes[row]).add(row);
+            }
+        }
+        rowsByCode = new RoaringBitmap[writers.size()];
+        for (int i = 0; i < rowsByCode.length; i++) {
+            rowsByCode[i] = writers.get(i).get();
+        }
+    }
+
+    private CategoricalIndex(int[] codes, Map<String, Integer> codeByValue, RoaringBitmap[] rowsByCode,
+                             long[] rowCounts) {
+        this.codes = codes;
+        this.codeByValue = codeByValue;
+        this.rowsByCode = rowsByCode;
+        this.rowCounts = rowCounts;
+    }
+
+    /**
+     * The index of {@code codes}, which are this index's codes with rows appended, over a
+     * dictionary that this one's is a prefix of. Bitmaps of values without new rows are shared;
+     * the others are copied, since this index may still be in use.
+     */
+    CategoricalIndex appended(int[] codes, List<String> dictionary) {
+        long[] counts = Arrays.copyOf(rowCounts, dictionary.size());
+        for (int row = this.codes.length; row < codes.length; row++) {
+            if (codes[row] >= 0) {
+                counts[codes[row]]++;
+            }
+        }
+        // Never modified once built, so unless new values were added the lookup is shared too
+        Map<String, Integer> lookup = codeByValue;
+        if (dictionary.size() > rowCounts.length) {
+            lookup = HashMap.newHashMap(dictionary.size());
+            lookup.putAll(codeByValue);
+            for (int code = rowCounts.length; code < dictionary.size(); code++) {
+                lookup.put(dictionary.get(code), code);
+            }
+        }
+        if (rowsByCode == null || dictionary.size() > MAX_INDEXED_VALUES) {
+            return new CategoricalIndex(codes, lookup, null, counts);
+        }
+
+        RoaringBitmap[] bitmaps = Arrays.copyOf(rowsByCode, dictionary.size());
+        boolean[] copied = new boolean[bitmaps.length];
+        for (int row = this.codes.length; row < codes.length; row++) {
+            int code = codes[row];
+            if (code < 0) {
+                continue;
+            }
+            if (!copied[code]) {
+                bitmaps[code] = bitmaps[code] != null ? bitmaps[code].clone() : new RoaringBitmap();
+                copied[code] = true;
+            }
+            bitmaps[code].add(row);
+        }
+        for (int code = 0; code < bitmaps.length; code++) {
+            if (copied[code]) {
+                bitmaps[code].runOptimize();
+            } else if (bitmaps[code] == null) {
+                bitmaps[code] = new RoaringBitmap();
+            }
+        }
+        return new CategoricalIndex(codes, lookup, bitmaps, counts);
+    }
+
+    /** Whether matching rows come from per-value bitmaps rather than a scan of the codes. */
+    boolean indexed() {
+        return rowsByCode != null;
+    }
+
+    /** Rows equal to any of {@code values}; values not in the dictionary match nothing. */
+    RowFilter anyOf(List<String> values) {
+        boolean[] wanted = new boolean[rowCounts.length];
+        for (String value : values) {
+            Integer code = codeByValue.get(value);
+            if (code != null) {
+                wanted[code] = true;
+            }
+        }
+        return codes(wanted);
+    }
+
+    /** Rows with a value other than {@code value}; missing values never match. */
+    RowFilter notEqual(String value) {
+        boolean[] wanted = new boolean[rowCounts.length];
+        Arrays.fill(wanted, true);
+        Integer code = codeByValue.get(value);
+        if (code != null) {
+            wanted[code] = false;
+        }
+        return codes(wanted);
+    }
+
+    private RowFilter codes(boolean[] wanted) {
+        return new RowFilter() {
+            @Override
+            public long estimate() {
+                long rows = 0;
+                for (int code = 0; code < wanted.length; code++) {
+                    if (wanted[code]) {
+                        rows += rowCounts[code];
+                    }
+                }
+                return rows;
+            }
+
+            @Override
+            public RoaringBitmap matching() {
+                if (rowsByCode == null) {
+                    RoaringBitmapWriter<RoaringBitmap> writer = RoaringBitmapWriter.writer().runCompress(true).get();
+                    for (int row = 0; row < codes.length; row++) {
+                        if (test(row)) {
+                            writer.add(row);
+                        }
+                    }
+                    return writer.get();
+                }
+                RoaringBitmap result = new RoaringBitmap();
+                for (int code = 0; code < wanted.length; code++) {
+                    if (wanted[code]) {
+                        result.or(rowsByCode[code]);
+                    }
+                }
+                return result;
+            }
+
+            @Override
+            public boolean test(int row) {
+                int code = codes[row];
+                return code >= 0 && wanted[code];
+            }
+        };
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.vtkbackend.query;
+
+import com.example.vtkbackend.model.AttributeColumn;
+import com.example.vtkbackend.model.GeologicalData;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsed dataset together with the indexes used to evaluate {@link QueryEngine} filters.
+ * Coordinates get zone maps only; numeric attributes are additionally sorted so range counts are
+ * exact; categorical attributes get a bitmap per distinct value. Text attributes are not indexed
+ * and are filtered by comparing every row.
+ */
+public final class DatasetIndex {
+
+    private final GeologicalData data;
+    private final NumericIndex x;
+    private final NumericIndex y;
+    private final NumericIndex z;
+    private final Map<String, NumericIndex> numeric = new HashMap<>();
+    private final Map<String, CategoricalIndex> categorical = new HashMap<>();
+    private final Map<String, String[]> text = new HashMap<>();
+
+    private DatasetIndex(GeologicalData data) {
+        this.data = data;
+        List<GeologicalData.Point3D> points = data.points();
+        double[] xs = new double[points.size()];
+        double[] ys = new double[points.size()];
+        double[] zs = new double[points.size()];
+        for (int i = 0; i < xs.length; i++) {
+            GeologicalData.Point3D p = points.get(i);
+            xs[i] = p.x();
+            ys[i] = p.y();
+            zs[i] = p.z();
+        }
+        x = NumericIndex.zonesOnly(xs);
+        y = NumericIndex.zonesOnly(ys);
+        z = NumericIndex.zonesOnly(zs);
+
+        for (AttributeColumn column : data.attributes()) {
+            if (column.size() != xs.length) {
+                continue; // not aligned with the points, cannot be filtered row by row
+            }
+            switch (column.type()) {
+                case NUMERIC -> numeric.put(column.name(), NumericIndex.sorted(column.values()));
+                case CATEGORICAL -> categorical.put(column.name(),
+                    new CategoricalIndex(column.codes(), column.dictionary()));
+                case TEXT -> text.put(column.name(), column.texts());
+            }
+        }
+    }
+
+    // Extends `previous` with the rows `data` has beyond it
+    private DatasetIndex(DatasetIndex previous, GeologicalData data) {
+        this.data = data;
+        List<GeologicalData.Point3D> points = data.points();
+        int from = previous.rows();
+        double[] xs = Arrays.copyOf(previous.x.values(), points.size());
+        double[] ys = Arrays.copyOf(previous.y.values(), points.size());
+        double[] zs = Arrays.copyOf(previous.z.values(), points.size());
+        for (int i = from; i < xs.length; i++) {
+            GeologicalData.Point3D p = points.get(i);
+            xs[i] = p.x();
+            ys[i] = p.y();
+            zs[i] = p.z();
+        }
+        x = NumericIndex.appended(previous.x, xs);
+        y = NumericIndex.appended(previous.y, ys);
+        z = NumericIndex.appended(previous.z, zs);
+
+        for (AttributeColumn column : data.attributes()) {
+            if (column.size() != xs.length) {
+                continue;
+            }
+            // A column demoted by the new rows, or newly aligned, is indexed afresh
+            switch (column.type()) {
+                case NUMERIC -> {
+                    NumericIndex index = previous.numeric.get(column.name());
+                    numeric.put(column.name(), index != null
+                        ? NumericIndex.appended(index, column.values())
+                        : NumericIndex.sorted(column.values()));
+                }
+                case CATEGORICAL -> {
+                    CategoricalIndex index = previous.categorical.get(column.name());
+                    categorical.put(column.name(), index != null
+                        ? index.appended(column.codes(), column.dictionary())
+                        : new CategoricalIndex(column.codes(), column.dictionary()));
+                }
+                case TEXT -> text.put(column.name(), column.texts());
+            }
+        }
+    }
+
+    public static DatasetIndex build(GeologicalData data) {
+        return new DatasetIndex(data);
+    }
+
+    /**
+     * The index of {@code data}, which is {@code previous}'s data with rows appended (see
+     * {@link com.example.vtkbackend.parser.AppendableParser}); only the new rows are indexed.
+     *
+     * @throws IllegalArgumentException if {@code data} has fewer rows than {@code previous}
+     */
+    public static DatasetIndex append(DatasetIndex previous, GeologicalData data) {
+        if (data.points().size() < previous.rows()) {
+            throw new IllegalArgumentException("Appended data has fewer rows than the indexed data");
+        }
+        return new DatasetIndex(previous, data);
+    }
+
+    public GeologicalData data() {
+        return data;
+    }
+
+    public int rows() {
+        return x.rows();
+    }
+
+    NumericIndex coordinate(char axis) {
+        return switch (axis) {
+            case 'x' -> x;
+            case 'y' -> y;
+            default -> z;
+        };
+    }
+
+    NumericIndex numeric(String column) {
+        return numeric.get(column);
+    }
+
+    CategoricalIndex categorical(String column) {
+        return categorical.get(column);
+    }
+
+    String[] text(String column) {
+        return text.get(column);
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.vtkbackend.query;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.RoaringBitmapWriter;
+
+import java.util.Arrays;
+
+/**
+ * Range index over a double column. Zone maps (min/max per block of rows) let scans skip or
+ * bulk-accept whole blocks; the optional sorted order (row ids by value, NaN excluded) gives
+ * exact match counts and direct access to the rows of selective ranges.
+ */
+final class NumericIndex {
+
+    // Aligned with roaring containers so fully matching zones become run containers
+    static final int ZONE_SHIFT = 16;
+    static final int ZONE_SIZE = 1 << ZONE_SHIFT;
+
+    // Ranges matching at most this fraction of rows are read from the sorted order rather than scanned
+    private static final int SORTED_ACCESS_DIVISOR = 8;
+
+    private final double[] values;
+    private final double[] zoneMin;
+    private final double[] zoneMax;
+    private final boolean[] zoneHasNaN;
+    private final int[] order;
+
+    private NumericIndex(double[] values, int[] order) {
+        this(values, order, null);
+    }
+
+    // Zones entirely within `previous`, whose values are a prefix of these, are copied from it
+    private NumericIndex(double[] values, int[] order, NumericIndex previous) {
+        this.values = values;
+        this.order = order;
+        int zones = (values.length + ZONE_SIZE - 1) >>> ZONE_SHIFT;
+        zoneMin = new double[zones];
+        zoneMax = new double[zones];
+        zoneHasNaN = new boolean[zones];
+        int complete = previous == null ? 0 : previous.values.length >>> ZONE_SHIFT;
+        if (complete > 0) {
+            System.arraycopy(previous.zoneMin, 0, zoneMin, 0, complete);
+            System.arraycopy(previous.zoneMax, 0, zoneMax, 0, complete);
+            System.arraycopy(previous.zoneHasNaN, 0, zoneHasNaN, 0, complete);
+        }
+        for (int z = complete; z < zones; z++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            int end = Math.min(values.length, (z + 1) << ZONE_SHIFT);
+            for (int row = z << ZONE_SHIFT; row < end; row++) {
+                double v = values[row];
+                if (Double.isNaN(v)) {
+                    zoneHasNaN[z] = true;
+                } else {
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                }
+            }
+            zoneMin[z] = min;
+            zoneMax[z] = max;
+        }
+    }
+
+    /** Zone maps only, for columns that are queried by scan (e.g. coordinates). */
+    static NumericIndex zonesOnly(double[] values) {
+        return new NumericIndex(values, null);
+    }
+
+    static NumericIndex sorted(double[] values) {
+        return new NumericIndex(values, sortedOrder(values));
+    }
+
+    /**
+     * The index of {@code values}, which are {@code previous}'s values with rows appended: complete
+     * zones are reused, and if {@code previous} is sorted only the new rows are sorted and then
+     * merged into its order.
+     */
+    static NumericIndex appended(NumericIndex previous, double[] values) {
+        int[] order = null;
+        if (previous.order != null) {
+            order = merge(values, previous.order, sortedOrder(values, previous.values.length));
+        }
+        return new NumericIndex(values, order, previous);
+    }
+
+    int rows() {
+        return values.length;
+    }
+
+    double[] values() {
+        return values;
+    }
+
+    double value(int row) {
+        return values[row];
+    }
+
+    RowFilter range(double low, boolean lowInclusive, double high, boolean highInclusive) {
+        return new RowFilter() {
+            @Override
+            public long estimate() {
+                return order != null ? sortedCount(low, lowInclusive, high, highInclusive) : zoneEstimate(low, high);
+            }
+
+            @Override
+            public RoaringBitmap matching() {
+                if (order != null) {
+                    int from = lowerBound(low, lowInclusive);
+                    // An empty range (low above high) also comes out as to <= from
+                    int to = Math.max(from, upperBound(high, highInclusive));
+                    if (to - from <= values.length / SORTED_ACCESS_DIVISOR) {
+                        return fromSorted(from, to);
+                    }
+                }
+                return scan(low, lowInclusive, high, highInclusive);
+            }
+
+            @Override
+            public boolean test(int row) {
+                return inRange(values[row], low, lowInclusive, high, highInclusive);
+            }
+        };
+    }
+
+    private static boolean inRange(double v, double low, boolean lowInclusive, double high, boolean highInclusive) {
+        return (lowInclusive ? v >= low : v > low) && (highInclusive ? v <= high : v < high);
+    }
+
+    private long sortedCount(double low, boolean lowInclusive, double high, boolean highInclusive) {
+        return Math.max(0, upperBound(high, highInclusive) - lowerBound(low, lowInclusive));
+    }
+
+    private long zoneEstimate(double low, double high) {
+        long rows = 0;
+        for (int z = 0; z < zoneMin.length; z++) {
+            if (zoneMax[z] >= low && zoneMin[z] <= high) {
+                rows += Math.min(ZONE_SIZE, values.length - ((long) z << ZONE_SHIFT));
+            }
+        }
+        return rows;
+    }
+
+    private RoaringBitmap scan(double low, boolean lowInclusive, double high, boolean highInclusive) {
+        RoaringBitmapWriter<RoaringBitmap> writer = RoaringBitmapWriter.writer().runCompress(true).get();
+        for (int z = 0; z < zoneMin.length; z++) {
+            int start = z << ZONE_SHIFT;
+            int end = Math.min(values.length, start + ZONE_SIZE);
+            if (zoneMin[z] > zoneMax[z]) {
+                continue; // all NaN
+            }
+            if (!(lowInclusive ? zoneMax[z] >= low : zoneMax[z] > low)
+                || !(highInclusive ? zoneMin[z] <= high : zoneMin[z] < high)) {
+                continue;
+            }
+            if (!zoneHasNaN[z]
+                && inRange(zoneMin[z], low, lowInclusive, high, highInclusive)
+                && inRange(zoneMax[z], low, lowInclusive, high, highInclusive)) {
+                writer.add(start, end);
+                continue;
+            }
+            for (int row = start; row < end; row++) {
+                if (inRange(values[row], low, lowInclusive, high, highInclusive)) {
+                    writer.add(row);
+                }
+            }
+        }
+        return writer.get();
+    }
+
+    private RoaringBitmap fromSorted(int from, int to) {
+        int[] rows = Arrays.copyOfRange(order, from, to);
+        Arrays.sort(rows);
+        return RoaringBitmap.bitmapOf(rows);
+    }
+
+    // First position in the sorted order whose value is >= low (> low if exclusive)
+    private int lowerBound(double low, boolean inclusive) {
+        int lo = 0;
+        int hi = order.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            double v = values[order[mid]];
+            if (inclusive ? v < low : v <= low) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // First position in the sorted order whose value is > high (>= high if exclusive)
+    private int upperBound(double high, boolean inclusive) {
+        int lo = 0;
+        int hi = order.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            double v = values[order[mid]];
+            if (inclusive ? v <= high : v < high) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Row ids of the non-NaN values ordered by value, via an LSD radix sort on order-preserving
+     * 64-bit keys (four 16-bit passes), which avoids boxing and comparator sorts on large columns.
+     */
+    static int[] sortedOrder(double[] values) {
+        return sortedOrder(values, 0);
+    }
+
+    // As above, for rows `from` onwards only
+    private static int[] sortedOrder(double[] values, int from) {
+        int n = 0;
+        for (int row = from; row < values.length; row++) {
+            if (!Double.isNaN(values[row])) {
+                n++;
+            }
+        }
+        long[] keys = new long[n];
+        int[] rows = new int[n];
+        int i = 0;
+        for (int row = from; row < values.length; row++) {
+            double v = values[row];
+            if (!Double.isNaN(v)) {
+                // +0.0 and -0.0 must compare equal
+                long bits = Double.doubleToLongBits(v == 0.0 ? 0.0 : v);
+                keys[i] = bits ^ ((bits >> 63) | Long.MIN_VALUE);
+                rows[i] = row;
+                i++;
+            }
+        }
+
+        long[] keyBuffer = new long[n];
+        int[] rowBuffer = new int[n];
+        int[] counts = new int[1 << 16];
+        for (int shift = 0; shift < 64; shift += 16) {
+            Arrays.fill(counts, 0);
+            for (int k = 0; k < n; k++) {
+                counts[(int) (keys[k] >>> shift) & 0xFFFF]++;
+            }
+            int sum = 0;
+            for (int d = 0; d < counts.length; d++) {
+                int c = counts[d];
+                counts[d] = sum;
+                sum += c;
+            }
+            for (int k = 0; k < n; k++) {
+                int pos = counts[(int) (keys[k] >>> shift) & 0xFFFF]++;
+                keyBuffer[pos] = keys[k];
+                rowBuffer[pos] = rows[k];
+            }
+            long[] tk = keys;
+            keys = keyBuffer;
+            keyBuffer = tk;
+            int[] tr = rows;
+            rows = rowBuffer;
+            rowBuffer = tr;
+        }
+        return rows;
+    }
+
+    // Merges two row orders, each sorted by value; on ties the earlier rows of `first` come first
+    private static int[] merge(double[] values, int[] first, int[] second) {
+        int[] merged = new int[first.length + second.length];
+        int a = 0;
+        int b = 0;
+        int out = 0;
+        while (a < first.length && b < second.length) {
+            merged[out++] = values[second[b]] < values[first[a]] ? second[b++] : first[a++];
+        }
+        System.arraycopy(first, a, merged, out, first.length - a);
+        System.arraycopy(second, b, merged, out + first.length - a, second.length - b);
+        return merged;
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.vtkbackend.query;
+
+import com.example.vtkbackend.model.AttributeColumn;
+import com.example.vtkbackend.model.DatasetQuery;
+import com.example.vtkbackend.model.GeologicalData;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates a {@link DatasetQuery} against a {@link DatasetIndex} and projects the matching rows.
+ * <p>
+ * Predicates are evaluated most selective first. Each one is intersected as a bitmap while the
+ * candidate set is large; once it has shrunk below {@code rows / 64} the remaining predicates are
+ * checked row by row on the candidates instead of materializing their (larger) bitmaps.
+ */
+public final class QueryEngine {
+
+    private static final int LATE_MATERIALIZATION_DIVISOR = 64;
+
+    private QueryEngine() {
+    }
+
+    /**
+     * Returns the matching subset of the dataset: points and attribute values of the matching rows,
+     * in file order. Attribute statistics and dictionaries are those of the whole dataset, so a colour
+     * scale stays stable while filtering. Features are not carried over since they are not row aligned.
+     *
+     * @throws IllegalArgumentException if the query references an unknown column or is malformed
+     */
+    public static GeologicalData execute(DatasetIndex index, DatasetQuery query) {
+        long start = System.nanoTime();
+        List<RowFilter> filters = filters(index, query);
+        filters.sort(Comparator.comparingLong(RowFilter::estimate));
+
+        RoaringBitmap rows;
+        if (filters.isEmpty()) {
+            rows = new RoaringBitmap();
+            rows.add(0L, index.rows());
+        } else {
+            rows = filters.get(0).matching();
+            for (RowFilter filter : filters.subList(1, filters.size())) {
+                if (rows.isEmpty()) {
+                    break;
+                }
+                if (rows.getCardinality() <= index.rows() / LATE_MATERIALIZATION_DIVISOR) {
+                    RoaringBitmap kept = new RoaringBitmap();
+                    PeekableIntIterator it = rows.getIntIterator();
+                    while (it.hasNext()) {
+                        int row = it.next();
+                        if (filter.test(row)) {
+                            kept.add(row);
+                        }
+                    }
+                    rows = kept;
+                } else {
+                    rows.and(filter.matching());
+                }
+            }
+        }
+
+        int matched = rows.getCardinality();
+        if (query.limit() != null) {
+            if (query.limit() < 0) {
+                throw new IllegalArgumentException("limit must not be negative");
+            }
+            if (matched > query.limit()) {
+                rows = query.limit() == 0 ? new RoaringBitmap() : rows.limit(query.limit());
+            }
+        }
+
+        GeologicalData subset = project(index.data(), rows.toArray());
+        subset.properties().put("matchedPoints", matched);
+        subset.properties().put("returnedPoints", rows.getCardinality());
+        subset.properties().put("queryMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return subset;
+    }
+
+    private static List<RowFilter> filters(DatasetIndex index, DatasetQuery query) {
+        List<RowFilter> filters = new ArrayList<>();
+        if (query.predicates() != null) {
+            for (DatasetQuery.Predicate predicate : query.predicates()) {
+                filters.add(filter(index, predicate));
+            }
+        }
+        DatasetQuery.Bounds bbox = query.bbox();
+        if (bbox != null) {
+            addBounds(filters, index.coordinate('x'), bbox.minX(), bbox.maxX());
+            addBounds(filters, index.coordinate('y'), bbox.minY(), bbox.maxY());
+            addBounds(filters, index.coordinate('z'), bbox.minZ(), bbox.maxZ());
+        }
+        return filters;
+    }
+
+    private static void addBounds(List<RowFilter> filters, NumericIndex axis, Double min, Double max) {
+        if (min != null || max != null) {
+            filters.add(axis.range(min != null ? min : Double.NEGATIVE_INFINITY, true,
+                max != null ? max : Double.POSITIVE_INFINITY, true));
+        }
+    }
+
+    private static RowFilter filter(DatasetIndex index, DatasetQuery.Predicate predicate) {
+        if (predicate.column() == null || predicate.op() == null) {
+            throw new IllegalArgumentException("Each predicate needs a column and an op");
+        }
+        String column = predicate.column();
+        String op = predicate.op().toLowerCase(Locale.ROOT);
+
+        NumericIndex numeric = numericColumn(index, column);
+        if (numeric != null) {
+            return switch (op) {
+                case "eq" -> {
+                    double v = number(predicate.value(), column);
+                    yield numeric.range(v, true, v, true);
+                }
+                case "ne" -> {
+                    double v = number(predicate.value(), column);
+                    yield anyOf(List.of(
+                        numeric.range(Double.NEGATIVE_INFINITY, true, v, false),
+                        numeric.range(v, false, Double.POSITIVE_INFINITY, true)));
+                }
+                case "in" -> anyOf(values(predicate).stream()
+                    .map(value -> {
+                        double v = number(value, column);
+                        return numeric.range(v, true, v, true);
+                    })
+                    .toList());
+                case "lt" -> numeric.range(Double.NEGATIVE_INFINITY, true, number(predicate.value(), column), false);
+                case "lte" -> numeric.range(Double.NEGATIVE_INFINITY, true, number(predicate.value(), column), true);
+                case "gt" -> numeric.range(number(predicate.value(), column), false, Double.POSITIVE_INFINITY, true);
+                case "gte" -> numeric.range(number(predicate.value(), column), true, Double.POSITIVE_INFINITY, true);
+                case "between" -> {
+                    List<Object> bounds = values(predicate);
+                    if (bounds.size() != 2) {
+                        throw new IllegalArgumentException("between on " + column + " needs exactly two values");
+                    }
+                    yield numeric.range(number(bounds.get(0), column), true, number(bounds.get(1), column), true);
+                }
+                default -> throw new IllegalArgumentException("Unknown operator: " + predicate.op());
+            };
+        }
+
+        String[] texts = index.text(column);
+        if (texts != null) {
+            return switch (op) {
+                case "eq" -> TextScan.anyOf(texts, List.of(String.valueOf(predicate.value())));
+                case "ne" -> TextScan.notEqual(texts, String.valueOf(predicate.value()));
+                case "in" -> TextScan.anyOf(texts, values(predicate).stream().map(String::valueOf).toList());
+                case "lt", "lte", "gt", "gte", "between" ->
+                    throw new IllegalArgumentException(predicate.op() + " needs a numeric column, " + column + " is text");
+                default -> throw new IllegalArgumentException("Unknown operator: " + predicate.op());
+            };
+        }
+
+        CategoricalIndex categorical = index.categorical(column);
+        if (categorical == null) {
+            throw new IllegalArgumentException("Unknown column: " + column);
+        }
+        return switch (op) {
+            case "eq" -> categorical.anyOf(List.of(String.valueOf(predicate.value())));
+            case "ne" -> categorical.notEqual(String.valueOf(predicate.value()));
+            case "in" -> categorical.anyOf(values(predicate).stream().map(String::valueOf).toList());
+            case "lt", "lte", "gt", "gte", "between" ->
+                throw new IllegalArgumentException(predicate.op() + " needs a numeric column, " + column + " is categorical");
+            default -> throw new IllegalArgumentException("Unknown operator: " + predicate.op());
+        };
+    }
+
+    // Attribute columns first; x, y and z otherwise refer to the coordinates
+    private static NumericIndex numericColumn(DatasetIndex index, String column) {
+        NumericIndex attribute = index.numeric(column);
+        if (attribute == null && (column.equals("x") || column.equals("y") || column.equals("z"))) {
+            return index.coordinate(column.charAt(0));
+        }
+        return attribute;
+    }
+
+    private static List<Object> values(DatasetQuery.Predicate predicate) {
+        if (predicate.values() == null) {
+            throw new IllegalArgumentException(predicate.op() + " on " + predicate.column() + " needs values");
+        }
+        return predicate.values();
+    }
+
+    private static double number(Object value, String column) {
+        if (value instanceof Number n) {
+            return n.doubleValue();
+        }
+        if (value instanceof String s) {
+            try {
+                return Double.parseDouble(s.trim());
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+        }
+        throw new IllegalArgumentException("Column " + column + " is numeric, got: " + value);
+    }
+
+    private static RowFilter anyOf(List<RowFilter> alternatives) {
+        return new RowFilter() {
+            @Override
+            public long estimate() {
+                return alternatives.stream().mapToLong(RowFilter::estimate).sum();
+            }
+
+            @Override
+            public RoaringBitmap matching() {
+                RoaringBitmap result = new RoaringBitmap();
+                for (RowFilter alternative : alternatives) {
+                    result.or(alternative.matching());
+                }
+                return result;
+            }
+
+            @Override
+            public boolean test(int row) {
+                for (RowFilter alternative : alternatives) {
+                    if (alternative.test(row)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    private static GeologicalData project(GeologicalData data, int[] rows) {
+        List<GeologicalData.Point3D> points = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            points.add(data.points().get(row));
+        }
+
+        List<AttributeColumn> attributes = new ArrayList<>(data.attributes().size());
+        for (AttributeColumn column : data.attributes()) {
+            if (column.size() != data.points().size()) {
+                continue;
+            }
+            switch (column.type()) {
+                case NUMERIC -> {
+                    double[] values = new double[rows.length];
+                    for (int i = 0; i < rows.length; i++) {
+                        values[i] = column.values()[rows[i]];
+                    }
+                    attributes.add(new AttributeColumn(column.name(), column.type(), values, null,
+                        column.dictionary(), column.statistics()));
+                }
+                case CATEGORICAL -> {
+                    int[] codes = new int[rows.length];
+                    for (int i = 0; i < rows.length; i++) {
+                        codes[i] = column.codes()[rows[i]];
+                    }
+                    attributes.add(new AttributeColumn(column.name(), column.type(), null, codes,
+                        column.dictionary(), column.statistics()));
+                }
+                case TEXT -> {
+                    String[] texts = new String[rows.length];
+                    for (int i = 0; i < rows.length; i++) {
+                        texts[i] = column.texts()[rows[i]];
+                    }
+                    attributes.add(new AttributeColumn(column.name(), column.type(), null, null, null, texts,
+                        column.statistics()));
+                }
+            }
+        }
+
+        Map<String, Object> properties = new LinkedHashMap<>(data.properties());
+        return new GeologicalData(points, Collections.emptyList(), properties, data.boundingBox(), attributes);
+    }
+}
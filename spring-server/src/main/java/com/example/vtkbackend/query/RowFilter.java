@@ -0,0 +1,16 @@
+package com.example.vtkbackend.query;
+
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * One predicate of a query, evaluated either in bulk from an index or row by row.
+ */
+interface RowFilter {
+
+    /** Upper bound on the number of matching rows, used to order evaluation. */
+    long estimate();
+
+    RoaringBitmap matching();
+
+    boolean test(int row);
+}
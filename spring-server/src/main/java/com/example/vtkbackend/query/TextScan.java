@@ -0,0 +1,57 @@
+package com.example.vtkbackend.query;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.RoaringBitmapWriter;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Filters on a text column, which has too many distinct values to index: every row is compared.
+ * Estimated to match every row, so more selective predicates are evaluated first and this one
+ * is usually only tested on their candidates.
+ */
+final class TextScan {
+
+    private TextScan() {
+    }
+
+    /** Rows equal to any of {@code values}. */
+    static RowFilter anyOf(String[] texts, List<String> values) {
+        Set<String> wanted = new HashSet<>(values);
+        return rows(texts, wanted::contains);
+    }
+
+    /** Rows with a value other than {@code value}; missing values never match. */
+    static RowFilter notEqual(String[] texts, String value) {
+        return rows(texts, text -> !text.equals(value));
+    }
+
+    private static RowFilter rows(String[] texts, Predicate<String> wanted) {
+        return new RowFilter() {
+            @Override
+            public long estimate() {
+                return texts.length;
+            }
+
+            @Override
+            public RoaringBitmap matching() {
+                RoaringBitmapWriter<RoaringBitmap> writer = RoaringBitmapWriter.writer().runCompress(true).get();
+                for (int row = 0; row < texts.length; row++) {
+                    if (test(row)) {
+                        writer.add(row);
+                    }
+                }
+                return writer.get();
+            }
+
+            @Override
+            public boolean test(int row) {
+                String text = texts[row];
+                return text != null && wanted.test(text);
+            }
+        };
+    }
+}
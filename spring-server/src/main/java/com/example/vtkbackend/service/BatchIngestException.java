@@ -0,0 +1,23 @@
+package com.example.vtkbackend.service;
+
+import com.example.vtkbackend.model.BatchUploadResult;
+
+import java.io.IOException;
+
+/**
+ * Reading a batch upload failed part way, for example on a truncated archive. Files read before
+ * the failure stay stored and ingested; {@link #result()} lists them along with the error.
+ */
+public class BatchIngestException extends IOException {
+
+    private final transient BatchUploadResult result;
+
+    public BatchIngestException(IOException cause, BatchUploadResult result) {
+        super(cause.getMessage(), cause);
+        this.result = result;
+    }
+
+    public BatchUploadResult result() {
+        return result;
+    }
+}
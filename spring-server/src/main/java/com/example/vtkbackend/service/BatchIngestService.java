@@ -0,0 +1,234 @@
+package com.example.vtkbackend.service;
+
+import com.example.vtkbackend.model.BatchUploadResult;
+import com.example.vtkbackend.model.BatchUploadResult.FileOutcome;
+import com.example.vtkbackend.model.BatchUploadResult.Status;
+import com.example.vtkbackend.model.GeologicalData;
+import com.example.vtkbackend.model.GeologicalFile;
+import com.example.vtkbackend.model.StoredFile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Ingests many files from one request. Files (and ZIP entries, read straight from the request
+ * stream) are written to storage one after another as they arrive, and each stored file is parsed
+ * in the background while the next one is read. At most {@code ingest.batch.concurrency} files of a
+ * batch are parsing at once; reading further entries waits for a slot, so a large archive
+ * cannot flood the shared parsing pool.
+ */
+@Service
+public class BatchIngestService {
+
+    private final GeologicalFileService geologicalFileService;
+    private final ReprojectionService reprojectionService;
+    private final int concurrency;
+
+    public BatchIngestService(GeologicalFileService geologicalFileService,
+                              ReprojectionService reprojectionService,
+                              @Value("${ingest.batch.concurrency:0}") int concurrency) {
+        this.geologicalFileService = geologicalFileService;
+        this.reprojectionService = reprojectionService;
+        this.concurrency = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Multipart upload; parts named {@code *.zip} are expanded.
+     *
+     * @param crs CRS of every file's coordinates, or null to go by each file's format
+     * @throws IllegalArgumentException if the CRS cannot be resolved
+     * @throws BatchIngestException if reading the upload failed part way
+     */
+    public BatchUploadResult ingest(List<MultipartFile> files, String crs) throws BatchIngestException {
+        try (Batch batch = new Batch(crs)) {
+            try {
+                for (MultipartFile file : files) {
+                    String filename = file.getOriginalFilename();
+                    try (InputStream content = file.getInputStream()) {
+                        if (filename != null && filename.toLowerCase().endsWith(".zip")) {
+                            batch.addArchive(content);
+                        } else {
+                            batch.add(filename, content);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw batch.failed(e);
+            }
+            return batch.finish(null);
+        }
+    }
+
+    /**
+     * A ZIP archive as the raw request body.
+     *
+     * @throws BatchIngestException if the archive is invalid or reading it failed part way
+     */
+    public BatchUploadResult ingestArchive(InputStream archive, String crs) throws BatchIngestException {
+        try (Batch batch = new Batch(crs)) {
+            try {
+                batch.addArchive(archive);
+            } catch (IOException e) {
+                throw batch.failed(e);
+            }
+            return batch.finish(null);
+        }
+    }
+
+    private final class Batch implements AutoCloseable {
+        private final long start = System.nanoTime();
+        private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+        private final Semaphore slots = new Semaphore(concurrency);
+        private final List<CompletableFuture<FileOutcome>> outcomes = new ArrayList<>();
+        private final String crs;
+
+        Batch(String crs) {
+            if (crs != null) {
+                reprojectionService.validate(crs);
+            }
+            this.crs = crs;
+        }
+
+        void addArchive(InputStream archive) throws IOException {
+            ZipInputStream zip = new ZipInputStream(archive);
+            ZipEntry entry = zip.getNextEntry();
+            if (entry == null) {
+                // ZipInputStream reports anything that is not an archive as an empty one
+                throw new ZipException("No entries found");
+            }
+            for (; entry != null; entry = zip.getNextEntry()) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                String name = entry.getName();
+                String filename = GeologicalFileService.basename(name);
+                // Archiver metadata such as __MACOSX/._foo.csv or .DS_Store
+                if (filename.startsWith(".") || name.startsWith("__MACOSX/")) {
+                    continue;
+                }
+                add(filename, zip);
+            }
+        }
+
+        void add(String filename, InputStream content) throws IOException {
+            StoredFile stored;
+            try {
+                stored = geologicalFileService.store(filename, content);
+                if (crs != null) {
+                    geologicalFileService.declareSourceCrs(stored, crs);
+                }
+            } catch (IllegalArgumentException e) {
+                outcomes.add(CompletableFuture.completedFuture(
+                    new FileOutcome(filename, Status.SKIPPED, null, null, null, e.getMessage())));
+                return;
+            } catch (IOException e) {
+                // The request broke off inside this file; store() has deleted what was written
+                outcomes.add(CompletableFuture.completedFuture(
+                    new FileOutcome(filename, Status.FAILED, null, null, null, e.getMessage())));
+                throw e;
+            }
+
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting to ingest " + filename, e);
+            }
+            outcomes.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return ingest(stored);
+                } finally {
+                    slots.release();
+                }
+            }, workers));
+        }
+
+        private FileOutcome ingest(StoredFile stored) {
+            String filename = stored.originalFilename();
+            try {
+                GeologicalFile file = geologicalFileService.ingest(stored);
+                GeologicalData data = file.data();
+                return new FileOutcome(filename, Status.INGESTED, file.id(), data.points().size(),
+                    data.points().isEmpty() ? null : data.boundingBox(), null);
+            } catch (RejectedExecutionException e) {
+                deleteQuietly(stored);
+                String message = e instanceof MemoryBudgetExceededException
+                    ? e.getMessage()
+                    : "All parsers are busy, retry later";
+                return new FileOutcome(filename, Status.REJECTED, null, null, null, message);
+            } catch (IOException | RuntimeException e) {
+                return new FileOutcome(filename, Status.FAILED, stored.id(), null, null, e.getMessage());
+            }
+        }
+
+        /** The outcome of the files read before {@code cause}, once their ingestion has finished. */
+        BatchIngestException failed(IOException cause) {
+            String error = cause instanceof ZipException
+                ? "Invalid archive: " + cause.getMessage()
+                : "Failed to read upload: " + cause.getMessage();
+            return new BatchIngestException(cause, finish(error));
+        }
+
+        BatchUploadResult finish(String error) {
+            List<FileOutcome> files = outcomes.stream().map(CompletableFuture::join).toList();
+            int ingested = 0;
+            int skipped = 0;
+            long totalPoints = 0;
+            GeologicalData.BoundingBox box = null;
+            for (FileOutcome outcome : files) {
+                switch (outcome.status()) {
+                    case INGESTED -> {
+                        ingested++;
+                        totalPoints += outcome.points();
+                        box = union(box, outcome.boundingBox());
+                    }
+                    case SKIPPED -> skipped++;
+                    default -> { }
+                }
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            return new BatchUploadResult(ingested, skipped, files.size() - ingested - skipped, totalPoints, box,
+                elapsedMillis, files, error);
+        }
+
+        @Override
+        public void close() {
+            // Waits for ingestions still running when reading the request failed part way
+            workers.close();
+        }
+    }
+
+    private static void deleteQuietly(StoredFile stored) {
+        try {
+            Files.deleteIfExists(stored.path());
+        } catch (IOException e) {
+            // Left behind like any other stored file that was never ingested
+        }
+    }
+
+    private static GeologicalData.BoundingBox union(GeologicalData.BoundingBox a, GeologicalData.BoundingBox b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return new GeologicalData.BoundingBox(
+            Math.min(a.minX(), b.minX()), Math.min(a.minY(), b.minY()), Math.min(a.minZ(), b.minZ()),
+            Math.max(a.maxX(), b.maxX()), Math.max(a.maxY(), b.maxY()), Math.max(a.maxZ(), b.maxZ()));
+    }
+}
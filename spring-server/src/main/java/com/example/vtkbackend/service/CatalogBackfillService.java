@@ -0,0 +1,70 @@
+package com.example.vtkbackend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Catalogs, in the background after startup, the stored datasets that have no catalog entry, so
+ * viewport queries find them without each one being loaded first. Datasets are parsed one at a
+ * time on the parsing pool, waiting whenever it or the memory budget is busy with requests.
+ */
+@Service
+public class CatalogBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogBackfillService.class);
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    private final CatalogService catalogService;
+    private final GeologicalFileService geologicalFileService;
+
+    public CatalogBackfillService(CatalogService catalogService, GeologicalFileService geologicalFileService) {
+        this.catalogService = catalogService;
+        this.geologicalFileService = geologicalFileService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        Thread.ofVirtual().name("catalog-backfill").start(() -> {
+            List<String> ids = catalogService.uncataloged();
+            if (ids.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+            int cataloged = 0;
+            try {
+                for (String id : ids) {
+                    if (catalog(id)) {
+                        cataloged++;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            logger.info("Cataloged {} of {} uncataloged datasets in {} ms", cataloged, ids.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        });
+    }
+
+    private boolean catalog(String id) throws InterruptedException {
+        while (true) {
+            try {
+                return geologicalFileService.catalog(id);
+            } catch (RejectedExecutionException e) {
+                // Requests come first; try again once they have made room
+                Thread.sleep(RETRY_DELAY);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not catalog dataset {}: {}", id, e.getMessage());
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.vtkbackend.service;
+
+import com.example.vtkbackend.catalog.CatalogEntry;
+import com.example.vtkbackend.catalog.DensityGrid;
+import com.example.vtkbackend.catalog.SpatialCatalog;
+import com.example.vtkbackend.mesh.TriangleMesh;
+import com.example.vtkbackend.model.GeologicalData;
+import com.example.vtkbackend.parser.GeologicalFileParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the {@link SpatialCatalog} in step with the stored datasets and answers viewport queries
+ * from it. Each dataset is summarized once at ingestion (extent in WGS84 when its CRS is known, a
+ * coarse {@link DensityGrid} from a sample of its points) and the summary is persisted as a JSON
+ * sidecar, {@code .catalog/<id>} next to the stored files. Sidecars are read back in the
+ * background at startup, so the catalog covers every dataset without parsing any of them;
+ * requests that need the catalog wait for that to finish. Sidecars of datasets no longer stored
+ * are deleted then, and stored datasets without one are left to {@link CatalogBackfillService}.
+ */
+@Service
+public class CatalogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogService.class);
+
+    /** Viewport CRS for datasets of unknown CRS, compared in their own coordinates. */
+    public static final String LOCAL_CRS = "local";
+
+    private static final String CATALOG_DIRECTORY = ".catalog";
+    // Points summarized per dataset; the density grid only needs their rough distribution
+    private static final int SAMPLE_POINTS = 1 << 14;
+
+    private final SpatialCatalog catalog = new SpatialCatalog();
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    private final Instant started = Instant.now();
+    private final Path storageRoot;
+    private final Path directory;
+    // Stored before startup but without a sidecar, in storage order
+    private volatile List<String> uncataloged = List.of();
+    private final ReprojectionService reprojectionService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final long defaultPointBudget;
+    private final int maxResults;
+
+    public CatalogService(@Value("${storage.root:uploads}") String storageRoot,
+                          @Value("${catalog.point-budget:2000000}") long defaultPointBudget,
+                          @Value("${catalog.max-results:1000}") int maxResults,
+                          ReprojectionService reprojectionService,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry) {
+        this.storageRoot = Paths.get(storageRoot);
+        this.directory = this.storageRoot.resolve(CATALOG_DIRECTORY);
+        this.defaultPointBudget = defaultPointBudget;
+        this.maxResults = maxResults;
+        this.reprojectionService = reprojectionService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("catalog.datasets", catalog, SpatialCatalog::size)
+            .description("Datasets in the spatial catalog")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Thread.ofVirtual().name("catalog-load").start(() -> {
+            long start = System.nanoTime();
+            try {
+                List<Path> sidecars = new ArrayList<>();
+                if (Files.isDirectory(directory)) {
+                    try (var stream = Files.list(directory)) {
+                        stream.filter(Files::isRegularFile)
+                            .filter(path -> !path.getFileName().toString().endsWith(".tmp"))
+                            .forEach(sidecars::add);
+                    }
+                }
+                // Listed after the sidecars: a dataset is stored before its sidecar is written, so a
+                // sidecar without a stored file here is one whose file has been deleted
+                Map<String, Instant> stored = storedFiles();
+                AtomicInteger unreadable = new AtomicInteger();
+                AtomicInteger stale = new AtomicInteger();
+                sidecars.parallelStream().forEach(sidecar -> {
+                    try {
+                        if (!stored.containsKey(sidecar.getFileName().toString())) {
+                            stale.incrementAndGet();
+                            Files.deleteIfExists(sidecar);
+                            return;
+                        }
+                        catalog.put(objectMapper.readValue(sidecar.toFile(), CatalogEntry.class));
+                    } catch (IOException e) {
+                        unreadable.incrementAndGet();
+                        logger.warn("Skipping unreadable catalog entry {}: {}", sidecar.getFileName(), e.getMessage());
+                    }
+                });
+                // Files modified since startup may still be being written by an upload, which catalogs them itself
+                uncataloged = stored.entrySet().stream()
+                    .filter(file -> catalog.get(file.getKey()).isEmpty() && file.getValue().isBefore(started))
+                    .map(Map.Entry::getKey)
+                    .toList();
+                logger.info("Loaded {} catalog entries in {} ms, dropped {} of deleted datasets, {} datasets to catalog",
+                    sidecars.size() - unreadable.get() - stale.get(), (System.nanoTime() - start) / 1_000_000,
+                    stale.get(), uncataloged.size());
+            } catch (IOException | UncheckedIOException e) {
+                logger.error("Failed to load the catalog from {}", directory, e);
+            } finally {
+                loaded.complete(null);
+            }
+        });
+    }
+
+    // Stored files are named "<id>_<filename>"; ids mapped to when the file was last modified
+    private Map<String, Instant> storedFiles() throws IOException {
+        Map<String, Instant> stored = new LinkedHashMap<>();
+        if (!Files.isDirectory(storageRoot)) {
+            return stored;
+        }
+        try (var stream = Files.list(storageRoot)) {
+            for (Path file : stream.filter(Files::isRegularFile).toList()) {
+                String name = file.getFileName().toString();
+                if (name.indexOf('_') > 0) {
+                    stored.put(name.substring(0, name.indexOf('_')), Files.getLastModifiedTime(file).toInstant());
+                }
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Ids of datasets that were stored before startup without a catalog entry, for example because
+     * they predate the catalog or their sidecar was lost. Waits for the catalog to be loaded.
+     */
+    public List<String> uncataloged() {
+        awaitLoaded();
+        return uncataloged;
+    }
+
+    /**
+     * Summarizes a parsed dataset and adds it to the catalog, replacing any entry with the same id.
+     * Datasets without points have no extent and are not cataloged.
+     */
+    public void add(String id, String filename, String format, GeologicalData data) throws IOException {
+        if (data.points().isEmpty()) {
+            return;
+        }
+        CatalogEntry entry = summarize(id, filename, format, data);
+        awaitLoaded();
+        Files.createDirectories(directory);
+        Path temporary = directory.resolve(id + ".tmp");
+        objectMapper.writeValue(temporary.toFile(), entry);
+        Files.move(temporary, directory.resolve(id), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        catalog.put(entry);
+    }
+
+    public Optional<CatalogEntry> entry(String id) {
+        awaitLoaded();
+        return catalog.get(id);
+    }
+
+    public void remove(String id) throws IOException {
+        awaitLoaded();
+        catalog.remove(id);
+        Files.deleteIfExists(directory.resolve(id));
+    }
+
+    /**
+     * Datasets intersecting a viewport; see {@link SpatialCatalog#viewport}.
+     *
+     * @param crs         CRS of the viewport, WGS84 if null, or {@link #LOCAL_CRS} to match datasets
+     *                    of unknown CRS in their own coordinates
+     * @param pointBudget points the caller can show at once, or null for {@code catalog.point-budget}
+     * @param limit       most datasets to return, or null for {@code catalog.max-results}
+     * @throws IllegalArgumentException if the viewport is empty, a limit is not positive or the CRS
+     *                                  cannot be resolved
+     */
+    public SpatialCatalog.Viewport viewport(double minX, double minY, double maxX, double maxY, String crs,
+                                            Long pointBudget, Integer limit) {
+        if (!(minX <= maxX && minY <= maxY)) {
+            throw new IllegalArgumentException("bbox must be minX,minY,maxX,maxY");
+        }
+        long budget = pointBudget != null ? pointBudget : defaultPointBudget;
+        int results = limit != null ? Math.min(limit, maxResults) : maxResults;
+        if (budget <= 0 || results <= 0) {
+            throw new IllegalArgumentException("pointBudget and limit must be positive");
+        }
+        awaitLoaded();
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        SpatialCatalog.Viewport viewport;
+        if (LOCAL_CRS.equalsIgnoreCase(crs)) {
+            viewport = catalog.viewport(false, minX, minY, maxX, maxY, budget, results);
+        } else {
+            GeologicalData.BoundingBox box = new GeologicalData.BoundingBox(minX, minY, 0, maxX, maxY, 0);
+            if (crs != null) {
+                box = reprojectionService.reprojectExtent(box, crs, GeologicalFileParser.WGS84);
+            }
+            viewport = catalog.viewport(true, box.minX(), box.minY(), box.maxX(), box.maxY(), budget, results);
+        }
+        sample.stop(Timer.builder("catalog.viewport")
+            .description("Time to match a viewport against the catalog")
+            .register(meterRegistry));
+        return viewport;
+    }
+
+    private CatalogEntry summarize(String id, String filename, String format, GeologicalData data) {
+        List<GeologicalData.Point3D> points = data.points();
+        int stride = Math.max(1, (points.size() + SAMPLE_POINTS - 1) / SAMPLE_POINTS);
+        List<GeologicalData.Point3D> sample = new ArrayList<>(points.size() / stride + 1);
+        for (int i = 0; i < points.size(); i += stride) {
+            sample.add(points.get(i));
+        }
+
+        String crs = (String) data.properties().get(ReprojectionService.CRS_PROPERTY);
+        GeologicalData.BoundingBox extent = data.boundingBox();
+        boolean georeferenced = false;
+        if (crs != null) {
+            try {
+                if (!crs.equals(GeologicalFileParser.WGS84)) {
+                    extent = reprojectionService.reprojectExtent(extent, crs, GeologicalFileParser.WGS84);
+                    sample = reprojectionService.reproject(
+                        new GeologicalData(sample, List.of(), Map.of(), data.boundingBox(), List.of()),
+                        crs, GeologicalFileParser.WGS84).points();
+                }
+                georeferenced = true;
+            } catch (IllegalArgumentException e) {
+                logger.warn("Cataloging {} in its own coordinates: {}", id, e.getMessage());
+                extent = data.boundingBox();
+            }
+        }
+
+        double[] xy = new double[sample.size() * 2];
+        for (int i = 0; i < sample.size(); i++) {
+            xy[2 * i] = sample.get(i).x();
+            xy[2 * i + 1] = sample.get(i).y();
+        }
+        DensityGrid density = DensityGrid.of(xy, extent, points.size() / (double) sample.size());
+        Integer triangles = TriangleMesh.isTriangleSoup(data) ? points.size() / 3 : null;
+        return new CatalogEntry(id, filename, format, crs, georeferenced, points.size(), data.features().size(),
+            triangles, extent, density);
+    }
+
+    private void awaitLoaded() {
+        loaded.join();
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.vtkbackend.service;
+
+import com.example.vtkbackend.model.GeologicalFile;
+import com.example.vtkbackend.model.StoredFile;
+import com.example.vtkbackend.model.UploadStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32C;
+
+/**
+ * Resumable uploads: the client announces a file, sends it in chunks at explicit offsets (in any
+ * order, in parallel, retrying failed ones) and finally asks for ingestion. Each chunk is written
+ * with positional writes straight into a staging file, {@code .partial/<id>_<filename>} in the
+ * storage root, so nothing is buffered in memory or copied again, and there is no size limit other
+ * than the disk. Once complete the file is moved to its storage location, so a half-written upload
+ * is never found by id.
+ * <p>
+ * Sessions live in memory; abandoned ones expire after {@code uploads.session-ttl} and their
+ * partial file is deleted. Partial files left by a restart are deleted at startup.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final String STAGING_DIRECTORY = ".partial";
+
+    private final GeologicalFileService geologicalFileService;
+    private final Path stagingDirectory;
+    private final Cache<String, UploadSession> sessions;
+    private final Counter receivedBytes;
+
+    public ChunkedUploadService(GeologicalFileService geologicalFileService,
+                                @Value("${storage.root:uploads}") String storageRoot,
+                                @Value("${uploads.session-ttl:24h}") Duration sessionTtl,
+                                MeterRegistry meterRegistry) throws IOException {
+        this.geologicalFileService = geologicalFileService;
+        this.stagingDirectory = Paths.get(storageRoot).resolve(STAGING_DIRECTORY);
+        discardOrphans();
+        this.sessions = Caffeine.newBuilder()
+            .expireAfterAccess(sessionTtl)
+            .removalListener((String id, UploadSession session, RemovalCause cause) -> {
+                if (session != null && cause != RemovalCause.EXPLICIT) {
+                    session.discard();
+                }
+            })
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, sessions, "upload-sessions");
+        this.receivedBytes = Counter.builder("uploads.chunks.bytes")
+            .description("Bytes received through resumable uploads")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    // Sessions do not survive a restart, so nothing can complete the partial files it leaves behind
+    private void discardOrphans() throws IOException {
+        if (!Files.isDirectory(stagingDirectory)) {
+            return;
+        }
+        try (var stream = Files.list(stagingDirectory)) {
+            for (Path orphan : stream.toList()) {
+                logger.info("Deleting partial upload {} left by a previous run", orphan.getFileName());
+                Files.deleteIfExists(orphan);
+            }
+        }
+    }
+
+    /**
+     * @param crs CRS of the file's coordinates, or null to go by the file's format
+     * @throws IllegalArgumentException if the file type is not supported, the size is not positive
+     *                                  or the CRS cannot be resolved
+     */
+    public UploadStatus initiate(String filename, long size, String crs) throws IOException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        StoredFile target = geologicalFileService.storageTarget(GeologicalFileService.basename(filename), size);
+        if (crs != null) {
+            geologicalFileService.declareSourceCrs(target, crs);
+        }
+        Files.createDirectories(stagingDirectory);
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), target,
+            stagingDirectory.resolve(target.path().getFileName()));
+        sessions.put(session.uploadId, session);
+        return session.status();
+    }
+
+    public Optional<UploadStatus> status(String uploadId) {
+        return Optional.ofNullable(sessions.getIfPresent(uploadId)).map(UploadSession::status);
+    }
+
+    /**
+     * Writes one chunk at {@code offset}. Chunks may arrive concurrently and out of order; resending
+     * a chunk overwrites the same bytes.
+     *
+     * @param expectedCrc32c CRC32C of the chunk as sent by the client, or null to skip verification
+     * @return the CRC32C of the bytes received, or empty if there is no such upload
+     * @throws IllegalArgumentException if the chunk lies outside the file or its checksum does not match;
+     *                                  the range is then not marked as received
+     * @throws IllegalStateException if the upload is already being completed
+     */
+    public Optional<Long> writeChunk(String uploadId, long offset, InputStream content, Long expectedCrc32c)
+            throws IOException {
+        UploadSession session = sessions.getIfPresent(uploadId);
+        if (session == null) {
+            return Optional.empty();
+        }
+        if (session.ingesting.get() || !session.channel.isOpen()) {
+            throw completing();
+        }
+        long size = session.target.sizeBytes();
+        if (offset < 0 || offset >= size) {
+            throw new IllegalArgumentException("offset must be within [0, " + size + ")");
+        }
+
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        long position = offset;
+        int read;
+        try {
+            while ((read = content.read(buffer.array(), buffer.position(), buffer.remaining())) != -1) {
+                buffer.position(buffer.position() + read);
+                if (position + buffer.position() > size) {
+                    throw new IllegalArgumentException("Chunk at offset " + offset + " extends past the declared size " + size);
+                }
+                if (!buffer.hasRemaining()) {
+                    position += flush(session, buffer, position, crc);
+                }
+            }
+            position += flush(session, buffer, position, crc);
+        } catch (ClosedChannelException e) {
+            // complete() closed the file while this chunk was being written
+            throw completing();
+        }
+
+        long checksum = crc.getValue();
+        if (expectedCrc32c != null && expectedCrc32c != checksum) {
+            throw new IllegalArgumentException(String.format(
+                "Checksum mismatch for chunk at offset %d: expected %08x, received %08x", offset, expectedCrc32c, checksum));
+        }
+        session.received(offset, position);
+        receivedBytes.increment(position - offset);
+        return Optional.of(checksum);
+    }
+
+    private static IllegalStateException completing() {
+        return new IllegalStateException("Upload has been completed and no longer accepts chunks");
+    }
+
+    private static int flush(UploadSession session, ByteBuffer buffer, long position, CRC32C crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        int written = buffer.remaining();
+        long at = position;
+        // Positional writes do not move the channel position, so concurrent chunks do not interfere
+        while (buffer.hasRemaining()) {
+            at += session.channel.write(buffer, at);
+        }
+        buffer.clear();
+        return written;
+    }
+
+    /**
+     * Ingests the assembled file once every byte has been received. If the parsing pool is busy the
+     * session is kept, so completing can be retried without sending the data again.
+     *
+     * @return empty if there is no such upload
+     * @throws IllegalStateException if ranges are still missing or the upload is already being ingested
+     * @throws RejectedExecutionException if the parsing pool's queue is full
+     */
+    public Optional<GeologicalFile> complete(String uploadId) throws IOException {
+        UploadSession session = sessions.getIfPresent(uploadId);
+        if (session == null) {
+            return Optional.empty();
+        }
+        UploadStatus status = session.status();
+        if (!status.complete()) {
+            throw new IllegalStateException("Upload is incomplete, " + (status.size() - status.receivedBytes())
+                + " bytes missing");
+        }
+        if (!session.ingesting.compareAndSet(false, true)) {
+            throw new IllegalStateException("Upload is already being ingested");
+        }
+        try {
+            session.close();
+            session.publish();
+            GeologicalFile file = geologicalFileService.ingest(session.target);
+            sessions.invalidate(uploadId);
+            return Optional.of(file);
+        } catch (RejectedExecutionException e) {
+            session.ingesting.set(false);
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            // The assembled file stays in storage, as for a failed single upload
+            sessions.invalidate(uploadId);
+            throw e;
+        }
+    }
+
+    public boolean abort(String uploadId) {
+        UploadSession session = sessions.asMap().remove(uploadId);
+        if (session == null) {
+            return false;
+        }
+        session.discard();
+        return true;
+    }
+
+    private static final class UploadSession {
+        final String uploadId;
+        final StoredFile target;
+        final Path staging;
+        final FileChannel channel;
+        final AtomicBoolean ingesting = new AtomicBoolean();
+        // Received ranges, start -> end (exclusive), kept merged
+        private final NavigableMap<Long, Long> ranges = new TreeMap<>();
+
+        UploadSession(String uploadId, StoredFile target, Path staging) throws IOException {
+            this.uploadId = uploadId;
+            this.target = target;
+            this.staging = staging;
+            this.channel = FileChannel.open(staging, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+
+        synchronized void received(long start, long end) {
+            if (end <= start) {
+                return;
+            }
+            Map.Entry<Long, Long> before = ranges.floorEntry(start);
+            if (before != null && before.getValue() >= start) {
+                start = before.getKey();
+                end = Math.max(end, before.getValue());
+            }
+            Map.Entry<Long, Long> next;
+            while ((next = ranges.ceilingEntry(start)) != null && next.getKey() <= end) {
+                end = Math.max(end, next.getValue());
+                ranges.remove(next.getKey());
+            }
+            ranges.put(start, end);
+        }
+
+        synchronized UploadStatus status() {
+            List<UploadStatus.Range> missing = new ArrayList<>();
+            long received = 0;
+            long cursor = 0;
+            for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+                if (range.getKey() > cursor) {
+                    missing.add(new UploadStatus.Range(cursor, range.getKey()));
+                }
+                received += range.getValue() - range.getKey();
+                cursor = range.getValue();
+            }
+            if (cursor < target.sizeBytes()) {
+                missing.add(new UploadStatus.Range(cursor, target.sizeBytes()));
+            }
+            return new UploadStatus(uploadId, target.originalFilename(), target.sizeBytes(), received, missing);
+        }
+
+        void close() throws IOException {
+            if (channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        }
+
+        // Moves the assembled file into storage; already done if an earlier completion was rejected
+        void publish() throws IOException {
+            if (Files.exists(staging)) {
+                Files.move(staging, target.path(), StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+
+        void discard() {
+            try {
+                channel.close();
+                Files.deleteIfExists(staging);
+            } catch (IOException e) {
+                logger.warn("Could not delete partial upload {}", staging, e);
+            }
+        }
+    }
+}
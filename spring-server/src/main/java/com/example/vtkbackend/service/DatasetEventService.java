@@ -0,0 +1,53 @@
+package com.example.vtkbackend.service;
+
+import com.example.vtkbackend.model.DatasetAppend;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes the rows appended to datasets to the viewers subscribed to them, as they are ingested.
+ * There is no history: a viewer loads the dataset first, then applies appends whose
+ * {@code fromRow} follows the rows it has. A viewer that falls behind loses the oldest appends
+ * and sees a gap in {@code fromRow}; it then reloads the dataset.
+ */
+@Service
+public class DatasetEventService {
+
+    // Per-subscriber backlog before the oldest undelivered appends are dropped
+    private static final int SUBSCRIBER_BUFFER = 256;
+
+    private final Sinks.Many<DatasetAppend> appendSink = Sinks.many().multicast().directBestEffort();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter published;
+    private final Counter dropped;
+
+    public DatasetEventService(MeterRegistry meterRegistry) {
+        this.published = Counter.builder("datasets.appends.published").register(meterRegistry);
+        this.dropped = Counter.builder("datasets.sse.dropped")
+            .description("Appends dropped because a subscriber fell behind")
+            .register(meterRegistry);
+        Gauge.builder("datasets.sse.subscribers", subscribers, AtomicInteger::get).register(meterRegistry);
+    }
+
+    public void publish(DatasetAppend append) {
+        published.increment();
+        appendSink.emitNext(append, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+
+    /** Appends to the dataset from now on. */
+    public Flux<DatasetAppend> appends(String id) {
+        return appendSink.asFlux()
+            .filter(append -> append.id().equals(id))
+            .onBackpressureBuffer(SUBSCRIBER_BUFFER, append -> dropped.increment(), BufferOverflowStrategy.DROP_OLDEST)
+            .doOnSubscribe(s -> subscribers.incrementAndGet())
+            .doFinally(signal -> subscribers.decrementAndGet());
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.vtkbackend.service;
+
+import com.example.vtkbackend.query.DatasetIndex;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Parsed and indexed datasets kept in memory by file id, so /data and queries do not re-parse
+ * the stored file. Bounded by the total number of points; evicted datasets are re-parsed on demand.
+ * A dataset with more points than the whole bound is still cached, counted as the whole bound,
+ * so it displaces everything else rather than being re-parsed on every request. The heap the
+ * cached datasets hold also counts against the parse admission budget, see {@link MemoryAdmissionService}.
+ */
+@Service
+public class DatasetStore {
+
+    private static final Logger log = LoggerFactory.getLogger(DatasetStore.class);
+
+    private final long maxPoints;
+    private final Cache<String, DatasetIndex> datasets;
+
+    public DatasetStore(@Value("${datasets.cache.max-points:20000000}") long maxPoints,
+                        MeterRegistry meterRegistry) {
+        if (maxPoints <= 0) {
+            throw new IllegalArgumentException("datasets.cache.max-points must be positive: " + maxPoints);
+        }
+        this.maxPoints = maxPoints;
+        // Weights are ints, so a bound above Integer.MAX_VALUE caps the weight of one dataset there
+        int heaviest = (int) Math.min(maxPoints, Integer.MAX_VALUE);
+        // Caffeine evicts an entry heavier than the maximum weight as soon as it is added
+        this.datasets = Caffeine.newBuilder()
+            .maximumWeight(maxPoints)
+            .weigher((String id, DatasetIndex index) -> Math.min(Math.max(1, index.rows()), heaviest))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, datasets, "datasets");
+    }
+
+    public Optional<DatasetIndex> get(String id) {
+        return Optional.ofNullable(datasets.getIfPresent(id));
+    }
+
+    public void put(String id, DatasetIndex index) {
+        if (index.rows() > maxPoints) {
+            log.warn("Dataset {} has {} points, more than datasets.cache.max-points={}; it is cached alone",
+                id, index.rows(), maxPoints);
+        }
+        datasets.put(id, index);
+    }
+
+    /** The datasets cached right now. */
+    public Collection<DatasetIndex> cached() {
+        return List.copyOf(datasets.asMap().values());
+    }
+
+    /** Drops the dataset, returning it if it was cached. */
+    public Optional<DatasetIndex> invalidate(String id) {
+        return Optional.ofNullable(datasets.asMap().remove(id));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.vtkbackend.service;
+
+import com.example.vtkbackend.encoding.QuantizedCodec;
+import com.example.vtkbackend.query.DatasetIndex;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Quantized payloads of whole datasets, encoded once per dataset and bit depth. Entries are keyed
+ * by the {@link DatasetIndex} instance (weakly), so they go away with the dataset they encode.
+ */
+@Service
+public class EncodedDataCache {
+
+    private final Cache<DatasetIndex, Map<Integer, byte[]>> encoded;
+
+    public EncodedDataCache(@Value("${datasets.encoded-cache.max-bytes:512MB}") DataSize maxBytes,
+                            MeterRegistry meterRegistry) {
+        this.encoded = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumWeight(maxBytes.toBytes())
+            .weigher((DatasetIndex dataset, Map<Integer, byte[]> payloads) ->
+                payloads.values().stream().mapToInt(p -> p.length).sum())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, encoded, "encoded-datasets");
+    }
+
+    public byte[] quantized(DatasetIndex dataset, int bits) {
+        Map<Integer, byte[]> payloads = encoded.getIfPresent(dataset);
+        byte[] payload = payloads != null ? payloads.get(bits) : null;
+        if (payload != null) {
+            return payload;
+        }
+        payload = QuantizedCodec.encode(dataset.data(), bits);
+        // Re-put a copy so the entry is weighed again with the new payload
+        Map<Integer, byte[]> updated = new HashMap<>(payloads != null ? payloads : Map.of());
+        updated.put(bits, payload);
+        encoded.put(dataset, Map.copyOf(updated));
+        return payload;
+    }
+
+    /** Bytes of the payloads cached right now. */
+    public long residentBytes() {
+        return encoded.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    public void invalidate(DatasetIndex dataset) {
+        encoded.invalidate(dataset);
+    }
+}
@@ -1,24 +1,41 @@
 package com.example.vtkbackend.service;
 
+import com.example.vtkbackend.model.DatasetAppend;
 import com.example.vtkbackend.model.GeologicalData;
 import com.example.vtkbackend.model.GeologicalFile;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvValidationException;
+import com.example.vtkbackend.model.StoredFile;
+import com.example.vtkbackend.parser.AppendableParser;
+import com.example.vtkbackend.parser.GeologicalFileParser;
+import com.example.vtkbackend.parser.ParserRegistry;
+import com.example.vtkbackend.query.DatasetIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.tika.Tika;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class GeologicalFileService {
@@ -26,419 +43,595 @@ public class GeologicalFileService {
     @Value("${storage.root:uploads}")
     private String storageRoot;
 
-    private final Tika tika = new Tika();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService parsingExecutor;
+    private final DatasetStore datasetStore;
+    private final ReprojectionService reprojectionService;
+    private final ParserRegistry parserRegistry;
+    private final MeshLodService meshLodService;
+    private final CatalogService catalogService;
+    private final EncodedDataCache encodedDataCache;
+    private final DatasetEventService datasetEventService;
+    private final MemoryAdmissionService memoryAdmissionService;
+    // Appends to a dataset are applied one at a time, each on top of the previous one
+    private final Map<String, ReentrantLock> appendLocks = new ConcurrentHashMap<>();
 
-    private static final Set<String> ALLOWED_EXTENSIONS = Set.of(
-        "csv", "shp", "kml", "kmz", "dxf", "dwg", "tif", "tiff", "stl", "geojson", "json", "geojsonl"
-    );
+    private static final String CRS_DIRECTORY = ".crs";
 
-    public GeologicalFile processGeologicalFile(MultipartFile file) throws IOException {
+    public GeologicalFileService(MeterRegistry meterRegistry,
+                                 @Qualifier("parsingExecutor") ExecutorService parsingExecutor,
+                                 DatasetStore datasetStore,
+                                 ReprojectionService reprojectionService,
+                                 ParserRegistry parserRegistry,
+                                 MeshLodService meshLodService,
+                                 CatalogService catalogService,
+                                 EncodedDataCache encodedDataCache,
+                                 DatasetEventService datasetEventService,
+                                 MemoryAdmissionService memoryAdmissionService) {
+        this.meterRegistry = meterRegistry;
+        this.parsingExecutor = parsingExecutor;
+        this.datasetStore = datasetStore;
+        this.reprojectionService = reprojectionService;
+        this.parserRegistry = parserRegistry;
+        this.meshLodService = meshLodService;
+        this.catalogService = catalogService;
+        this.encodedDataCache = encodedDataCache;
+        this.datasetEventService = datasetEventService;
+        this.memoryAdmissionService = memoryAdmissionService;
+    }
+
+    // Building a Tika loads its MIME type registry; defer that to the first upload
+    private static final class TikaHolder {
+        static final Tika TIKA = new Tika();
+    }
+
+    /**
+     * @param crs CRS of the file's coordinates, or null to go by the format (see {@link #declareSourceCrs})
+     */
+    public GeologicalFile processGeologicalFile(MultipartFile file, String crs) throws IOException {
         validateFile(file);
-        
+        if (crs != null) {
+            reprojectionService.validate(crs);
+        }
+        StoredFile stored;
+        try (InputStream content = file.getInputStream()) {
+            stored = store(basename(file.getOriginalFilename()), content);
+        }
+        try {
+            if (crs != null) {
+                declareSourceCrs(stored, crs);
+            }
+            return ingest(stored);
+        } catch (RejectedExecutionException e) {
+            Files.deleteIfExists(stored.path());
+            throw e;
+        }
+    }
+
+    /**
+     * Writes {@code content} to its final storage location under a new id, without parsing it.
+     *
+     * @throws IllegalArgumentException if the name has an unsupported extension or the content is empty
+     */
+    public StoredFile store(String originalFilename, InputStream content) throws IOException {
+        StoredFile target = storageTarget(originalFilename, 0);
+
+        Timer.Sample phase = Timer.start(meterRegistry);
+        long size;
+        try {
+            size = Files.copy(content, target.path(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(target.path());
+            throw e;
+        }
+        phase.stop(phaseTimer(target.extension(), "store"));
+
+        if (size == 0) {
+            Files.deleteIfExists(target.path());
+            throw new IllegalArgumentException("File is empty");
+        }
+        return new StoredFile(target.id(), originalFilename, target.extension(), target.path(), size);
+    }
+
+    /**
+     * Allocates a new id and storage location for a file of the given name, without writing it.
+     *
+     * @throws IllegalArgumentException if the name has an unsupported extension or contains a path
+     */
+    public StoredFile storageTarget(String originalFilename, long sizeBytes) throws IOException {
+        validateFilename(originalFilename);
+        if (originalFilename.contains("/") || originalFilename.contains("\\")
+                || originalFilename.equals(".") || originalFilename.equals("..")) {
+            throw new IllegalArgumentException("Filename must not contain a path: " + originalFilename);
+        }
         String id = UUID.randomUUID().toString();
-        String originalFilename = file.getOriginalFilename();
-        String extension = getFileExtension(originalFilename).toLowerCase();
-        String mimeType = tika.detect(file.getInputStream(), originalFilename);
-        
-        // Store the file
         Path storagePath = Paths.get(storageRoot).resolve(id + "_" + originalFilename);
+        Path root = Paths.get(storageRoot).toAbsolutePath().normalize();
+        Path resolved = storagePath.toAbsolutePath().normalize();
+        if (!resolved.startsWith(root) || resolved.equals(root)) {
+            throw new IllegalArgumentException("Filename resolves outside storage: " + originalFilename);
+        }
         Files.createDirectories(storagePath.getParent());
-        Files.copy(file.getInputStream(), storagePath, StandardCopyOption.REPLACE_EXISTING);
-        
+        return new StoredFile(id, originalFilename, getFileExtension(originalFilename).toLowerCase(), storagePath,
+            sizeBytes);
+    }
+
+    /**
+     * Parses and indexes a stored file on the parsing pool.
+     *
+     * @throws RejectedExecutionException if there is no memory to parse it or the parsing pool's
+     *                                    queue is full
+     */
+    public GeologicalFile ingest(StoredFile stored) throws IOException {
+        String extension = stored.extension();
+
+        Timer.Sample phase = Timer.start(meterRegistry);
+        String mimeType;
+        try (InputStream content = Files.newInputStream(stored.path())) {
+            mimeType = TikaHolder.TIKA.detect(content, stored.originalFilename());
+        }
+        phase.stop(phaseTimer(extension, "detect"));
+
+        // Appendable formats are parsed up to the last newline; an upload's last line is complete
+        if (parserRegistry.parser(extension) instanceof AppendableParser && !endsWithNewline(stored.path())) {
+            Files.write(stored.path(), new byte[] {'\n'}, StandardOpenOption.APPEND);
+        }
+
         // Process the file based on its type
-        GeologicalData geologicalData = parseGeologicalFile(storagePath, extension);
-        
-        Map<String, Object> metadata = extractMetadata(storagePath, extension);
-        
+        DatasetIndex dataset = parseStoredFile(stored.path(), extension);
+        datasetStore.put(stored.id(), dataset);
+        meshLodService.prepare(dataset);
+        catalogService.add(stored.id(), stored.originalFilename(), extension, dataset.data());
+
+        phase = Timer.start(meterRegistry);
+        Map<String, Object> metadata = extractMetadata(stored.path(), extension);
+        phase.stop(phaseTimer(extension, "metadata"));
+
         return new GeologicalFile(
-            id,
-            originalFilename,
+            stored.id(),
+            stored.originalFilename(),
             extension,
             mimeType,
-            file.getSize(),
+            stored.sizeBytes(),
             LocalDateTime.now(),
             metadata,
-            geologicalData
+            dataset.data()
         );
     }
 
-    private void validateFile(MultipartFile file) {
-        if (file.isEmpty()) {
-            throw new IllegalArgumentException("File is empty");
+    public Optional<GeologicalData> loadGeologicalData(String id) throws IOException {
+        return loadDataset(id).map(DatasetIndex::data);
+    }
+
+    /**
+     * Parsed and indexed contents of a stored file, e.g. to serve {@code /data} or a query.
+     * Served from the {@link DatasetStore} when present, otherwise the stored file is parsed again.
+     */
+    public Optional<DatasetIndex> loadDataset(String id) throws IOException {
+        Optional<DatasetIndex> cached = datasetStore.get(id);
+        if (cached.isPresent()) {
+            return cached;
         }
-        
-        String filename = file.getOriginalFilename();
-        if (filename == null || filename.trim().isEmpty()) {
-            throw new IllegalArgumentException("Filename is required");
+        Optional<Path> filePath = findGeologicalFileById(id);
+        if (filePath.isEmpty()) {
+            return Optional.empty();
         }
-        
-        String extension = getFileExtension(filename).toLowerCase();
-        if (!ALLOWED_EXTENSIONS.contains(extension)) {
-            throw new IllegalArgumentException("File type not supported: " + extension);
+        // Concurrent misses may parse twice; that is cheaper than holding a lock for a whole parse
+        String extension = getFileExtension(filePath.get().getFileName().toString()).toLowerCase();
+        DatasetIndex dataset = parseStoredFile(filePath.get(), extension);
+        datasetStore.put(id, dataset);
+        // Files stored before the catalog existed are cataloged the first time they are loaded
+        if (catalogService.entry(id).isEmpty()) {
+            String name = filePath.get().getFileName().toString();
+            catalogService.add(id, name.substring(name.indexOf('_') + 1), extension, dataset.data());
         }
+        return Optional.of(dataset);
     }
 
-    private String getFileExtension(String filename) {
-        int lastDotIndex = filename.lastIndexOf('.');
-        return lastDotIndex > 0 ? filename.substring(lastDotIndex + 1) : "";
+    /**
+     * Catalogs a stored file that has no catalog entry, parsing it unless it is cached. The parsed
+     * dataset is not cached, so cataloging many files does not evict the ones in use.
+     *
+     * @return false if there is no such file or it is cataloged already
+     * @throws RejectedExecutionException if there is no memory to parse it or the parsing pool's
+     *                                    queue is full
+     */
+    public boolean catalog(String id) throws IOException {
+        Optional<Path> filePath = findGeologicalFileById(id);
+        if (filePath.isEmpty() || catalogService.entry(id).isPresent()) {
+            return false;
+        }
+        String name = filePath.get().getFileName().toString();
+        String extension = getFileExtension(name).toLowerCase();
+        Optional<DatasetIndex> cached = datasetStore.get(id);
+        DatasetIndex dataset = cached.isPresent() ? cached.get() : parseStoredFile(filePath.get(), extension);
+        catalogService.add(id, name.substring(name.indexOf('_') + 1), extension, dataset.data());
+        // Deleted while it was being parsed
+        if (findGeologicalFileById(id).isEmpty()) {
+            catalogService.remove(id);
+        }
+        return true;
     }
 
-    private GeologicalData parseGeologicalFile(Path filePath, String extension) throws IOException {
-        return switch (extension.toLowerCase()) {
-            case "csv" -> parseCsvFile(filePath);
-            case "geojson", "json" -> parseGeoJsonFile(filePath);
-            case "geojsonl" -> parseGeoJsonLFile(filePath);
-            case "kml" -> parseKmlFile(filePath);
-            case "kmz" -> parseKmzFile(filePath);
-            case "tif", "tiff" -> parseTiffFile(filePath);
-            case "stl" -> parseStlFile(filePath);
-            default -> createEmptyGeologicalData();
-        };
-    }
-
-    private GeologicalData parseCsvFile(Path filePath) throws IOException {
-        List<GeologicalData.Point3D> points = new ArrayList<>();
-        Map<String, Object> properties = new HashMap<>();
-        
-        try (CSVReader reader = new CSVReader(new FileReader(filePath.toFile()))) {
-            String[] headers = reader.readNext();
-            if (headers == null) {
-                throw new IOException("CSV file is empty");
-            }
-            
-            // Find coordinate columns
-            int xCol = findColumnIndex(headers, "x", "longitude", "lon", "easting");
-            int yCol = findColumnIndex(headers, "y", "latitude", "lat", "northing");
-            int zCol = findColumnIndex(headers, "z", "elevation", "height", "altitude");
-            
-            if (xCol == -1 || yCol == -1) {
-                throw new IOException("CSV must contain X/Y coordinate columns");
-            }
-            
-            String[] line;
-            while ((line = reader.readNext()) != null) {
-                try {
-                    double x = Double.parseDouble(line[xCol]);
-                    double y = Double.parseDouble(line[yCol]);
-                    double z = zCol != -1 ? Double.parseDouble(line[zCol]) : 0.0;
-                    points.add(new GeologicalData.Point3D(x, y, z));
-                } catch (NumberFormatException e) {
-                    // Skip invalid rows
-                }
-            }
-            
-            properties.put("totalPoints", points.size());
-            properties.put("headers", Arrays.asList(headers));
-        } catch (CsvValidationException e) {
-            throw new IOException("Invalid CSV format: " + e.getMessage(), e);
+    /**
+     * Deletes a stored file together with everything derived from it: the parsed dataset and its
+     * cached encodings and levels of detail, its declared CRS and its catalog entry.
+     *
+     * @return false if there is no such file
+     */
+    public boolean delete(String id) throws IOException {
+        Optional<Path> filePath = findGeologicalFileById(id);
+        if (filePath.isEmpty()) {
+            return false;
         }
-        
-        return new GeologicalData(
-            points,
-            Collections.emptyList(),
-            properties,
-            calculateBoundingBox(points)
-        );
+        // Delete the file first so loads from here on find nothing to parse again
+        Files.deleteIfExists(filePath.get());
+        Files.deleteIfExists(crsSidecar(filePath.get()));
+        catalogService.remove(id);
+        appendLocks.remove(id);
+        datasetStore.invalidate(id).ifPresent(dataset -> {
+            encodedDataCache.invalidate(dataset);
+            meshLodService.evict(dataset);
+        });
+        return true;
     }
 
-    private GeologicalData parseGeoJsonFile(Path filePath) throws IOException {
-        JsonNode rootNode = objectMapper.readTree(filePath.toFile());
-        List<GeologicalData.Point3D> points = new ArrayList<>();
-        List<GeologicalData.Feature> features = new ArrayList<>();
-        
-        if (rootNode.has("features")) {
-            for (JsonNode featureNode : rootNode.get("features")) {
-                GeologicalData.Feature feature = parseGeoJsonFeature(featureNode);
-                features.add(feature);
-                
-                // Extract points from geometry
-                if (feature.geometry() != null) {
-                    points.addAll(extractPointsFromGeometry(feature.geometry()));
+    /**
+     * Appends {@code content} to a stored file of an appendable format (see {@link AppendableParser})
+     * and ingests the new rows. A newline is inserted first if the file does not end with one; a
+     * last line of {@code content} without one is stored but left for the next append or refresh.
+     *
+     * @return the rows added, or empty if there is no such file
+     * @throws IllegalArgumentException if the file's format cannot be appended to
+     * @throws RejectedExecutionException if there is no memory to parse the new rows or the parsing
+     *                                    pool's queue is full
+     * @throws IOException if the new rows cannot be stored or parsed; as for any failure, the file
+     *                     is then left as it was
+     */
+    public Optional<DatasetAppend> append(String id, InputStream content) throws IOException {
+        Optional<Path> filePath = findGeologicalFileById(id);
+        if (filePath.isEmpty()) {
+            return Optional.empty();
+        }
+        appendableParser(filePath.get());
+        ReentrantLock lock = appendLock(id);
+        lock.lock();
+        try {
+            long sizeBefore = Files.size(filePath.get());
+            try {
+                Timer.Sample phase = Timer.start(meterRegistry);
+                try (OutputStream out = Files.newOutputStream(filePath.get(), StandardOpenOption.APPEND)) {
+                    if (!endsWithNewline(filePath.get())) {
+                        out.write('\n');
+                    }
+                    content.transferTo(out);
                 }
+                phase.stop(phaseTimer(getFileExtension(filePath.get().getFileName().toString()).toLowerCase(), "store"));
+                return refresh(id);
+            } catch (IOException | RuntimeException e) {
+                // Take the rows back out so that a retry does not store them twice and rows that
+                // cannot be parsed do not fail every later refresh and reload of the file
+                try (FileChannel channel = FileChannel.open(filePath.get(), StandardOpenOption.WRITE)) {
+                    channel.truncate(sizeBefore);
+                } catch (IOException truncateFailure) {
+                    e.addSuppressed(truncateFailure);
+                }
+                // Should the rows have been ingested before the failure, parse the file again on next use
+                datasetStore.get(id)
+                    .filter(dataset -> AppendableParser.parsedBytes(dataset.data()) > sizeBefore)
+                    .flatMap(dataset -> datasetStore.invalidate(id))
+                    .ifPresent(dataset -> {
+                        encodedDataCache.invalidate(dataset);
+                        meshLodService.evict(dataset);
+                    });
+                throw e;
             }
+        } finally {
+            lock.unlock();
         }
-        
-        Map<String, Object> properties = new HashMap<>();
-        properties.put("type", rootNode.get("type").asText());
-        properties.put("featureCount", features.size());
-        
-        return new GeologicalData(
-            points,
-            features,
-            properties,
-            calculateBoundingBox(points)
-        );
     }
 
-    private GeologicalData parseGeoJsonLFile(Path filePath) throws IOException {
-        List<GeologicalData.Point3D> points = new ArrayList<>();
-        List<GeologicalData.Feature> features = new ArrayList<>();
-        
-        try (BufferedReader reader = Files.newBufferedReader(filePath)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.trim().isEmpty()) {
-                    JsonNode featureNode = objectMapper.readTree(line);
-                    GeologicalData.Feature feature = parseGeoJsonFeature(featureNode);
-                    features.add(feature);
-                    
-                    if (feature.geometry() != null) {
-                        points.addAll(extractPointsFromGeometry(feature.geometry()));
+    /**
+     * Ingests the complete lines appended to a stored file of an appendable format since it was
+     * last parsed, e.g. by a logger writing to the storage directory: only those lines are parsed
+     * and indexed, the dataset's statistics, bounding box and catalog entry are updated, and the
+     * new rows are published to its {@link DatasetEventService} subscribers.
+     *
+     * @return the rows added (none if nothing was appended), or empty if there is no such file
+     * @throws IllegalArgumentException if the file's format cannot be appended to, or the file
+     *                                  shrank since it was parsed
+     * @throws RejectedExecutionException if there is no memory to parse the new rows or the parsing
+     *                                    pool's queue is full
+     */
+    public Optional<DatasetAppend> refresh(String id) throws IOException {
+        Optional<Path> filePath = findGeologicalFileById(id);
+        if (filePath.isEmpty()) {
+            return Optional.empty();
+        }
+        AppendableParser parser = appendableParser(filePath.get());
+        String name = filePath.get().getFileName().toString();
+        String extension = getFileExtension(name).toLowerCase();
+        ReentrantLock lock = appendLock(id);
+        lock.lock();
+        try {
+            Optional<DatasetIndex> loaded = loadDataset(id);
+            if (loaded.isEmpty()) {
+                return Optional.empty();
+            }
+            DatasetIndex previous = loaded.get();
+            GeologicalData before = previous.data();
+
+            long appendedBytes = Math.max(0, Files.size(filePath.get()) - AppendableParser.parsedBytes(before));
+            DatasetIndex dataset;
+            long appendNanos;
+            MemoryAdmissionService.Reservation reservation = memoryAdmissionService.reserve("append",
+                memoryAdmissionService.appendCost(extension, appendedBytes, before.points().size(),
+                    before.attributes().size()));
+            try {
+                Timer.Sample phase = Timer.start(meterRegistry);
+                dataset = onParsingPool(filePath.get(), () -> {
+                    GeologicalData data = parser.append(filePath.get(), before);
+                    if (data == before) {
+                        return previous;
                     }
-                }
+                    return DatasetIndex.append(previous, reprojectAppended(before, data, extension));
+                });
+                appendNanos = phase.stop(phaseTimer(extension, "append"));
+            } finally {
+                reservation.close();
             }
+
+            GeologicalData after = dataset.data();
+            int fromRow = before.points().size();
+            // Copies, not views: an event held for a slow subscriber must not keep the whole dataset alive
+            DatasetAppend append = new DatasetAppend(id, fromRow, after.points().size() - fromRow,
+                after.points().size(),
+                List.copyOf(after.points().subList(fromRow, after.points().size())),
+                List.copyOf(after.features().subList(before.features().size(), after.features().size())),
+                after.attributes().stream().map(column -> column.tail(fromRow)).toList(),
+                after.boundingBox(), AppendableParser.parsedBytes(after));
+            if (dataset == previous) {
+                return Optional.of(append);
+            }
+            recordParseVolume(extension, AppendableParser.parsedBytes(after) - AppendableParser.parsedBytes(before),
+                appended(before, after), appendNanos);
+            datasetStore.put(id, dataset);
+            encodedDataCache.invalidate(previous);
+            catalogService.add(id, name.substring(name.indexOf('_') + 1), extension, after);
+            datasetEventService.publish(append);
+            return Optional.of(append);
+        } finally {
+            lock.unlock();
         }
-        
-        Map<String, Object> properties = new HashMap<>();
-        properties.put("type", "FeatureCollection");
-        properties.put("featureCount", features.size());
-        
-        return new GeologicalData(
-            points,
-            features,
-            properties,
-            calculateBoundingBox(points)
-        );
     }
 
-    private GeologicalData parseKmlFile(Path filePath) throws IOException {
-        // Basic KML parsing - extract coordinates from placemark elements
-        List<GeologicalData.Point3D> points = new ArrayList<>();
-        String content = Files.readString(filePath);
-        
-        // Simple regex-based extraction for coordinates
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(
-            "<coordinates>([^<]+)</coordinates>", 
-            java.util.regex.Pattern.CASE_INSENSITIVE
-        );
-        java.util.regex.Matcher matcher = pattern.matcher(content);
-        
-        while (matcher.find()) {
-            String coordinates = matcher.group(1).trim();
-            String[] coordPairs = coordinates.split("\\s+");
-            
-            for (String coordPair : coordPairs) {
-                String[] coords = coordPair.split(",");
-                if (coords.length >= 2) {
-                    try {
-                        double x = Double.parseDouble(coords[0]);
-                        double y = Double.parseDouble(coords[1]);
-                        double z = coords.length > 2 ? Double.parseDouble(coords[2]) : 0.0;
-                        points.add(new GeologicalData.Point3D(x, y, z));
-                    } catch (NumberFormatException e) {
-                        // Skip invalid coordinates
-                    }
-                }
-            }
+    private AppendableParser appendableParser(Path filePath) {
+        String extension = getFileExtension(filePath.getFileName().toString()).toLowerCase();
+        GeologicalFileParser parser = parserRegistry.parser(extension);
+        if (!(parser instanceof AppendableParser appendable)) {
+            throw new IllegalArgumentException("Files of type " + extension + " cannot be appended to");
         }
-        
-        Map<String, Object> properties = new HashMap<>();
-        properties.put("type", "KML");
-        properties.put("totalPoints", points.size());
-        
-        return new GeologicalData(
-            points,
-            Collections.emptyList(),
-            properties,
-            calculateBoundingBox(points)
-        );
+        return appendable;
     }
 
-    private GeologicalData parseKmzFile(Path filePath) throws IOException {
-        // Extract KML from KMZ (ZIP) file
-        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(filePath))) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                if (entry.getName().toLowerCase().endsWith(".kml")) {
-                    // Create temporary KML file
-                    Path tempKml = Files.createTempFile("temp", ".kml");
-                    Files.copy(zis, tempKml, StandardCopyOption.REPLACE_EXISTING);
-                    
-                    GeologicalData result = parseKmlFile(tempKml);
-                    Files.delete(tempKml);
-                    return result;
-                }
+    private ReentrantLock appendLock(String id) {
+        return appendLocks.computeIfAbsent(id, key -> new ReentrantLock());
+    }
+
+    private static boolean endsWithNewline(Path filePath) throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(filePath)) {
+            if (channel.size() == 0) {
+                return true;
             }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.position(channel.size() - 1).read(last);
+            return last.get(0) == '\n';
         }
-        
-        throw new IOException("No KML file found in KMZ archive");
     }
 
-    private GeologicalData parseTiffFile(Path filePath) throws IOException {
-        // Basic TIFF parsing - create grid points for elevation data
-        // This is a simplified implementation
-        List<GeologicalData.Point3D> points = new ArrayList<>();
-        
-        // For demonstration, create a synthetic elevation grid
-        // In a real implementation, you would use a TIFF library like JAI or ImageIO
-        int gridSize = 50;
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                double x = i * 10.0;
-                double y = j * 10.0;
-                double z = Math.sin(i * 0.1) * Math.cos(j * 0.1) * 100; // Synthetic elevation
-                points.add(new GeologicalData.Point3D(x, y, z));
-            }
+    /**
+     * Brings rows appended to a dataset into the CRS the dataset was reprojected to, if it was:
+     * the parser appended them as they are in the file.
+     */
+    private GeologicalData reprojectAppended(GeologicalData before, GeologicalData data, String extension) {
+        String source = (String) before.properties().get(ReprojectionService.SOURCE_CRS_PROPERTY);
+        String target = (String) before.properties().get(ReprojectionService.CRS_PROPERTY);
+        if (source == null || source.equals(target)) {
+            return data;
         }
-        
-        Map<String, Object> properties = new HashMap<>();
-        properties.put("type", "TIFF");
-        properties.put("gridSize", gridSize);
-        properties.put("totalPoints", points.size());
-        
-        return new GeologicalData(
-            points,
-            Collections.emptyList(),
-            properties,
-            calculateBoundingBox(points)
-        );
+        Timer.Sample phase = Timer.start(meterRegistry);
+        GeologicalData tail = reprojectionService.reproject(appended(before, data), source, target);
+        phase.stop(phaseTimer(extension, "reproject"));
+
+        List<GeologicalData.Point3D> points = new ArrayList<>(before.points());
+        points.addAll(tail.points());
+        List<GeologicalData.Feature> features = new ArrayList<>(before.features());
+        features.addAll(tail.features());
+        GeologicalData.BoundingBox box = before.points().isEmpty()
+            ? tail.boundingBox()
+            : tail.points().isEmpty() ? before.boundingBox() : before.boundingBox().union(tail.boundingBox());
+        return new GeologicalData(points, features, data.properties(), box, data.attributes());
     }
 
-    private GeologicalData parseStlFile(Path filePath) throws IOException {
-        // Basic STL parsing - extract vertices from triangular meshes
-        List<GeologicalData.Point3D> points = new ArrayList<>();
-        
-        try (BufferedReader reader = Files.newBufferedReader(filePath)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.startsWith("vertex")) {
-                    String[] parts = line.split("\\s+");
-                    if (parts.length >= 4) {
-                        try {
-                            double x = Double.parseDouble(parts[1]);
-                            double y = Double.parseDouble(parts[2]);
-                            double z = Double.parseDouble(parts[3]);
-                            points.add(new GeologicalData.Point3D(x, y, z));
-                        } catch (NumberFormatException e) {
-                            // Skip invalid vertices
-                        }
-                    }
-                }
-            }
+    /**
+     * The rows of {@code after} beyond those of {@code before}, which it extends, with the rows
+     * read and skipped counted for those alone. The bounding box is still {@code after}'s.
+     */
+    private static GeologicalData appended(GeologicalData before, GeologicalData after) {
+        Map<String, Object> properties = new HashMap<>(after.properties());
+        for (String count : List.of("rowsRead", "rowsSkipped")) {
+            properties.computeIfPresent(count, (key, total) -> ((Number) total).intValue()
+                - ((Number) before.properties().getOrDefault(key, 0)).intValue());
         }
-        
-        Map<String, Object> properties = new HashMap<>();
-        properties.put("type", "STL");
-        properties.put("totalVertices", points.size());
-        
         return new GeologicalData(
-            points,
-            Collections.emptyList(),
-            properties,
-            calculateBoundingBox(points)
-        );
+            after.points().subList(before.points().size(), after.points().size()),
+            after.features().subList(before.features().size(), after.features().size()),
+            properties, after.boundingBox(), List.of());
     }
 
-    private GeologicalData createEmptyGeologicalData() {
-        return new GeologicalData(
-            Collections.emptyList(),
-            Collections.emptyList(),
-            Collections.emptyMap(),
-            new GeologicalData.BoundingBox(0, 0, 0, 0, 0, 0)
-        );
+    /**
+     * @throws RejectedExecutionException if there is no memory for the parse or the parsing pool's
+     *                                    queue is full
+     */
+    private DatasetIndex parseStoredFile(Path storagePath, String extension) throws IOException {
+        long size = Files.size(storagePath);
+        long cost = memoryAdmissionService.parseCost(extension, size);
+        MemoryAdmissionService.Reservation reservation = memoryAdmissionService.reserve("parse", cost);
+        try {
+            Timer.Sample phase = Timer.start(meterRegistry);
+            DatasetIndex dataset = parseOnParsingPool(storagePath, extension);
+            long parseNanos = phase.stop(phaseTimer(extension, "parse"));
+            recordParseVolume(extension, size, dataset.data(), parseNanos);
+            return dataset;
+        } finally {
+            reservation.close();
+        }
     }
 
-    private int findColumnIndex(String[] headers, String... possibleNames) {
-        for (int i = 0; i < headers.length; i++) {
-            for (String name : possibleNames) {
-                if (headers[i].toLowerCase().contains(name.toLowerCase())) {
-                    return i;
-                }
-            }
+    private Timer phaseTimer(String format, String phase) {
+        return Timer.builder("geological.ingest.phase")
+            .description("Time spent in each ingestion phase")
+            .tags("format", format, "phase", phase)
+            .register(meterRegistry);
+    }
+
+    private void recordParseVolume(String format, long bytes, GeologicalData data, long parseNanos) {
+        int points = data.points().size();
+        int rows = ((Number) data.properties().getOrDefault("rowsRead", points)).intValue();
+        int skipped = ((Number) data.properties().getOrDefault("rowsSkipped", 0)).intValue();
+
+        Counter.builder("geological.ingest.bytes").baseUnit("bytes").tag("format", format)
+            .register(meterRegistry).increment(bytes);
+        Counter.builder("geological.ingest.rows").tag("format", format)
+            .register(meterRegistry).increment(rows);
+        Counter.builder("geological.ingest.points").tag("format", format)
+            .register(meterRegistry).increment(points);
+        Counter.builder("geological.ingest.rows.skipped")
+            .description("Rows dropped because a coordinate was not a valid number")
+            .tag("format", format)
+            .register(meterRegistry).increment(skipped);
+
+        double seconds = Math.max(parseNanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+        DistributionSummary.builder("geological.ingest.bytes.per.second")
+            .tag("format", format).register(meterRegistry).record(bytes / seconds);
+        DistributionSummary.builder("geological.ingest.rows.per.second")
+            .tag("format", format).register(meterRegistry).record(rows / seconds);
+    }
+
+    private void validateFile(MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("File is empty");
         }
-        return -1;
+        validateFilename(file.getOriginalFilename());
     }
 
-    private GeologicalData.Feature parseGeoJsonFeature(JsonNode featureNode) {
-        String id = featureNode.has("id") ? featureNode.get("id").asText() : UUID.randomUUID().toString();
-        String type = featureNode.has("type") ? featureNode.get("type").asText() : "Feature";
-        
-        GeologicalData.Geometry geometry = null;
-        if (featureNode.has("geometry")) {
-            JsonNode geometryNode = featureNode.get("geometry");
-            String geometryType = geometryNode.get("type").asText();
-            List<List<Double>> coordinates = new ArrayList<>();
-            
-            if (geometryNode.has("coordinates")) {
-                // Parse coordinates based on geometry type
-                coordinates = parseCoordinates(geometryNode.get("coordinates"));
-            }
-            
-            geometry = new GeologicalData.Geometry(geometryType, coordinates);
+    private void validateFilename(String filename) {
+        if (filename == null || filename.trim().isEmpty()) {
+            throw new IllegalArgumentException("Filename is required");
         }
         
-        Map<String, Object> properties = new HashMap<>();
-        if (featureNode.has("properties")) {
-            JsonNode propertiesNode = featureNode.get("properties");
-            propertiesNode.fields().forEachRemaining(entry -> {
-                properties.put(entry.getKey(), entry.getValue().asText());
-            });
+        String extension = getFileExtension(filename).toLowerCase();
+        if (!parserRegistry.supports(extension)) {
+            throw new IllegalArgumentException("File type not supported: " + extension);
         }
-        
-        return new GeologicalData.Feature(id, type, geometry, properties);
     }
 
-    private List<List<Double>> parseCoordinates(JsonNode coordinatesNode) {
-        List<List<Double>> coordinates = new ArrayList<>();
-        
-        if (coordinatesNode.isArray()) {
-            for (JsonNode coordNode : coordinatesNode) {
-                if (coordNode.isArray()) {
-                    List<Double> coord = new ArrayList<>();
-                    for (JsonNode valueNode : coordNode) {
-                        if (valueNode.isNumber()) {
-                            coord.add(valueNode.asDouble());
-                        }
-                    }
-                    if (!coord.isEmpty()) {
-                        coordinates.add(coord);
-                    }
-                }
-            }
-        }
-        
-        return coordinates;
+    /** The last segment of a client-supplied name that may carry a (Unix or Windows) path. */
+    static String basename(String name) {
+        return name == null ? null : name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
     }
 
-    private List<GeologicalData.Point3D> extractPointsFromGeometry(GeologicalData.Geometry geometry) {
-        List<GeologicalData.Point3D> points = new ArrayList<>();
-        
-        for (List<Double> coord : geometry.coordinates()) {
-            if (coord.size() >= 2) {
-                double x = coord.get(0);
-                double y = coord.get(1);
-                double z = coord.size() > 2 ? coord.get(2) : 0.0;
-                points.add(new GeologicalData.Point3D(x, y, z));
+    private String getFileExtension(String filename) {
+        int lastDotIndex = filename.lastIndexOf('.');
+        return lastDotIndex > 0 ? filename.substring(lastDotIndex + 1) : "";
+    }
+
+    private DatasetIndex parseOnParsingPool(Path filePath, String extension) throws IOException {
+        return onParsingPool(filePath, () -> {
+            GeologicalData data = withCrs(filePath, extension, parseGeologicalFile(filePath, extension));
+            Timer.Sample phase = Timer.start(meterRegistry);
+            DatasetIndex dataset = DatasetIndex.build(data);
+            phase.stop(phaseTimer(extension, "index"));
+            return dataset;
+        });
+    }
+
+    /**
+     * Runs CPU-bound parsing and indexing of the file on the bounded parsing pool and blocks the
+     * (virtual) request thread until it completes.
+     *
+     * @throws RejectedExecutionException if the parsing pool's queue is full
+     */
+    private DatasetIndex onParsingPool(Path filePath, Callable<DatasetIndex> task) throws IOException {
+        Future<DatasetIndex> future = parsingExecutor.submit(task);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing " + filePath.getFileName());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
             }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Failed to parse " + filePath.getFileName(), cause);
         }
-        
-        return points;
     }
 
-    private GeologicalData.BoundingBox calculateBoundingBox(List<GeologicalData.Point3D> points) {
-        if (points.isEmpty()) {
-            return new GeologicalData.BoundingBox(0, 0, 0, 0, 0, 0);
+    /**
+     * Resolves the dataset's CRS (declared at upload, else implied by the format, else the configured
+     * default) and reprojects it to {@code reprojection.target-crs} when one is configured. Datasets
+     * whose CRS is unknown are left as parsed.
+     */
+    private GeologicalData withCrs(Path filePath, String extension, GeologicalData data) throws IOException {
+        Optional<String> source = declaredSourceCrs(filePath)
+            .or(() -> Optional.ofNullable((String) data.properties().get(ReprojectionService.CRS_PROPERTY)))
+            .or(reprojectionService::defaultSourceCrs);
+        if (source.isEmpty()) {
+            return data;
         }
-        
-        double minX = points.get(0).x();
-        double minY = points.get(0).y();
-        double minZ = points.get(0).z();
-        double maxX = minX;
-        double maxY = minY;
-        double maxZ = minZ;
-        
-        for (GeologicalData.Point3D point : points) {
-            minX = Math.min(minX, point.x());
-            minY = Math.min(minY, point.y());
-            minZ = Math.min(minZ, point.z());
-            maxX = Math.max(maxX, point.x());
-            maxY = Math.max(maxY, point.y());
-            maxZ = Math.max(maxZ, point.z());
+        Optional<String> target = reprojectionService.targetCrs();
+        if (target.isEmpty() || target.get().equals(source.get())) {
+            Map<String, Object> properties = new HashMap<>(data.properties());
+            properties.put(ReprojectionService.CRS_PROPERTY, source.get());
+            return new GeologicalData(data.points(), data.features(), properties, data.boundingBox(), data.attributes());
         }
-        
-        return new GeologicalData.BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+        Timer.Sample phase = Timer.start(meterRegistry);
+        GeologicalData reprojected = reprojectionService.reproject(data, source.get(), target.get());
+        phase.stop(phaseTimer(extension, "reproject"));
+        return reprojected;
+    }
+
+    /**
+     * Records the CRS a stored file's coordinates are in, overriding what its format implies. Kept
+     * next to the file so re-parsing after eviction reprojects the same way.
+     *
+     * @throws IllegalArgumentException if the CRS cannot be resolved
+     */
+    public void declareSourceCrs(StoredFile stored, String crs) throws IOException {
+        reprojectionService.validate(crs);
+        Path sidecar = crsSidecar(stored.path());
+        Files.createDirectories(sidecar.getParent());
+        Files.writeString(sidecar, crs);
+    }
+
+    private Optional<String> declaredSourceCrs(Path storagePath) throws IOException {
+        Path sidecar = crsSidecar(storagePath);
+        return Files.exists(sidecar) ? Optional.of(Files.readString(sidecar).trim()) : Optional.empty();
+    }
+
+    // Stored files are named "<id>_<filename>"; the sidecar is ".crs/<id>" in the same directory
+    private static Path crsSidecar(Path storagePath) {
+        String name = storagePath.getFileName().toString();
+        return storagePath.resolveSibling(CRS_DIRECTORY).resolve(name.substring(0, name.indexOf('_')));
+    }
+
+    private GeologicalData parseGeologicalFile(Path filePath, String extension) throws IOException {
+        return parserRegistry.parser(extension).parse(filePath);
     }
 
     private Map<String, Object> extractMetadata(Path filePath, String extension) throws IOException {
@@ -0,0 +1,235 @@
+package com.example.vtkbackend.service;
+
+import com.example.vtkbackend.parser.ParserRegistry;
+import com.example.vtkbackend.query.DatasetIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admits memory-heavy work (parsing and indexing a file, materializing a whole dataset for a
+ * response) only while its estimated heap cost fits in a budget, so that concurrent large
+ * requests queue or are turned away instead of running the node out of memory. Requests wait in
+ * arrival order, so a large one is not starved by a stream of small ones; one that cannot be
+ * admitted within {@code admission.max-wait} is rejected with {@link MemoryBudgetExceededException}.
+ *
+ * <p>Costs are estimates from file size and format (see
+ * {@link com.example.vtkbackend.parser.ParserFormat#heapPerByte}) or from point and attribute
+ * counts. Heap held by the dataset, encoding and mesh level caches counts against the budget, so
+ * the more they hold the less is admitted at once. A request that does not fit even with nothing
+ * else admitted is admitted alone.</p>
+ */
+@Service
+public class MemoryAdmissionService {
+
+    // Heap per point and attribute value of a JSON /data body: the body itself and the builder it
+    // is copied out of
+    private static final long JSON_BYTES_PER_POINT = 2 * 48;
+    private static final long JSON_BYTES_PER_VALUE = 2 * 12;
+    // Points copied by reprojection or an append: the Point3D, its list slot and index columns
+    private static final long COPIED_BYTES_PER_POINT = 40 + 8 + 3 * 8;
+    private static final long COPIED_BYTES_PER_VALUE = 8 + 4;
+    // Caches shrink without releasing a reservation, so waiting requests also look again this often
+    private static final long RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final long budget;
+    private final Duration maxWait;
+    private final long retryAfterSeconds;
+    private final ParserRegistry parserRegistry;
+    private final DatasetStore datasetStore;
+    private final EncodedDataCache encodedDataCache;
+    private final MeshLodService meshLodService;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    // Tickets of waiting requests, in arrival order; only the head may be admitted
+    private final ArrayDeque<Object> waiting = new ArrayDeque<>();
+    // Copies of state guarded by the lock, written under it so gauges can read them without it
+    private volatile int queued;
+    private volatile long reserved;
+    private volatile int active;
+
+    public MemoryAdmissionService(@Value("${admission.heap-budget:}") String heapBudget,
+                                  @Value("${admission.max-wait:10s}") Duration maxWait,
+                                  @Value("${admission.retry-after:5s}") Duration retryAfter,
+                                  ParserRegistry parserRegistry,
+                                  DatasetStore datasetStore,
+                                  EncodedDataCache encodedDataCache,
+                                  MeshLodService meshLodService,
+                                  MeterRegistry meterRegistry) {
+        this.budget = heapBudget.isBlank()
+            ? Runtime.getRuntime().maxMemory() / 2
+            : DataSize.parse(heapBudget).toBytes();
+        this.maxWait = maxWait;
+        this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+        this.parserRegistry = parserRegistry;
+        this.datasetStore = datasetStore;
+        this.encodedDataCache = encodedDataCache;
+        this.meshLodService = meshLodService;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("admission.budget", this, s -> s.budget)
+            .description("Heap that admitted requests may reserve between them")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("admission.cached", this, MemoryAdmissionService::cached)
+            .description("Heap estimated to be held by the dataset, encoding and mesh level caches")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("admission.reserved", this, s -> s.reserved)
+            .description("Heap currently reserved by admitted requests")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("admission.active", this, s -> s.active)
+            .description("Requests currently holding a reservation")
+            .register(meterRegistry);
+        Gauge.builder("admission.queued", this, s -> s.queued)
+            .description("Requests waiting for heap to be released")
+            .register(meterRegistry);
+    }
+
+    /** Estimated heap to parse and index a file of the given extension and size. */
+    public long parseCost(String extension, long fileBytes) {
+        return (long) (fileBytes * parserRegistry.heapPerByte(extension));
+    }
+
+    /**
+     * Estimated heap to parse {@code appendedBytes} appended to a file and extend a dataset of
+     * {@code rows} rows and {@code attributes} attribute columns with them; the dataset's points
+     * and columns are copied.
+     */
+    public long appendCost(String extension, long appendedBytes, int rows, int attributes) {
+        return parseCost(extension, appendedBytes) + copyCost(rows, attributes);
+    }
+
+    /**
+     * Estimated heap to serialize {@code points} points with {@code attributes} attribute columns
+     * in a {@code /data} format, including a copy of the points if they are reprojected first.
+     */
+    public long serializationCost(String format, int points, int attributes, int bits, boolean reprojected) {
+        long body = "quantized".equals(format)
+            ? 2L * points * (3L * bits / 8 + 4L * attributes)
+            : points * (JSON_BYTES_PER_POINT + JSON_BYTES_PER_VALUE * attributes);
+        return body + (reprojected ? copyCost(points, 0) : 0);
+    }
+
+    private static long copyCost(int rows, int attributes) {
+        return rows * (COPIED_BYTES_PER_POINT + COPIED_BYTES_PER_VALUE * attributes);
+    }
+
+    // Heap held by the caches: datasets are estimated like a copy of them, the others weigh bytes
+    private long cached() {
+        long bytes = encodedDataCache.residentBytes() + meshLodService.residentBytes();
+        for (DatasetIndex dataset : datasetStore.cached()) {
+            bytes += copyCost(dataset.rows(), dataset.data().attributes().size());
+        }
+        return bytes;
+    }
+
+    /**
+     * Reserves {@code bytes} of the budget, waiting up to {@code admission.max-wait} behind earlier
+     * requests for it to be available. Release it by closing the reservation when the memory is
+     * no longer needed.
+     *
+     * @param operation what the memory is for, to tag metrics with
+     * @throws MemoryBudgetExceededException if the memory did not become available in time
+     */
+    public Reservation reserve(String operation, long bytes) throws InterruptedIOException {
+        long amount = Math.min(Math.max(bytes, 0), budget);
+        DistributionSummary.builder("admission.requested")
+            .description("Estimated heap cost of requests asking to be admitted")
+            .baseUnit("bytes")
+            .tag("operation", operation)
+            .register(meterRegistry)
+            .record(amount);
+
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            Object ticket = new Object();
+            waiting.addLast(ticket);
+            queued = waiting.size();
+            try {
+                long remaining = maxWait.toNanos();
+                while (waiting.peekFirst() != ticket || (active > 0 && reserved + amount > budget - cached())) {
+                    if (remaining <= 0) {
+                        Counter.builder("admission.rejected")
+                            .description("Requests turned away because the heap budget stayed exhausted")
+                            .tag("operation", operation)
+                            .register(meterRegistry)
+                            .increment();
+                        throw new MemoryBudgetExceededException("Not enough memory for " + operation
+                            + " (needs about " + DataSize.ofBytes(amount).toMegabytes() + "MB), retry later",
+                            retryAfterSeconds);
+                    }
+                    long waited = Math.min(remaining, RECHECK_NANOS);
+                    remaining -= waited - released.awaitNanos(waited);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for memory for " + operation);
+            } finally {
+                waiting.remove(ticket);
+                queued = waiting.size();
+                // The next request in line may fit now that this one is no longer ahead of it
+                released.signalAll();
+            }
+            reserved += amount;
+            active++;
+        } finally {
+            lock.unlock();
+        }
+        Timer.builder("admission.wait")
+            .description("Time requests waited to be admitted")
+            .tag("operation", operation)
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Reservation(amount);
+    }
+
+    private void release(long amount) {
+        lock.lock();
+        try {
+            reserved -= amount;
+            active--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Heap reserved by an admitted request, returned to the budget on close. */
+    public final class Reservation implements AutoCloseable {
+
+        private final long bytes;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Reservation(long bytes) {
+            this.bytes = bytes;
+        }
+
+        public long bytes() {
+            return bytes;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(bytes);
+            }
+        }
+    }
+}
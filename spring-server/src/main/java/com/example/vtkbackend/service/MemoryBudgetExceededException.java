@@ -0,0 +1,22 @@
+package com.example.vtkbackend.service;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A request was not admitted because the memory it would need was not freed up by other requests
+ * in time; see {@link MemoryAdmissionService}. A {@link RejectedExecutionException} like a full
+ * parsing pool, so callers treat both as "busy, retry later".
+ */
+public class MemoryBudgetExceededException extends RejectedExecutionException {
+
+    private final long retryAfterSeconds;
+
+    public MemoryBudgetExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
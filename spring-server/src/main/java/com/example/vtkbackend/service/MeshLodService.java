@@ -0,0 +1,189 @@
+package com.example.vtkbackend.service;
+
+import com.example.vtkbackend.mesh.MeshLods;
+import com.example.vtkbackend.mesh.StlFiles;
+import com.example.vtkbackend.mesh.TriangleMesh;
+import com.example.vtkbackend.model.GeologicalData;
+import com.example.vtkbackend.query.DatasetIndex;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Simplified levels of detail of STL meshes, so viewers can ask for a triangle budget instead of
+ * downloading the full mesh. Levels are built on the parsing pool, started at upload so they are
+ * usually ready by the time the mesh is first viewed, and cached: per {@link DatasetIndex}
+ * (weakly, so they go away with the dataset) and per stored model id.
+ */
+@Service
+public class MeshLodService {
+
+    private final AsyncCache<DatasetIndex, MeshLods> datasetLods;
+    private final AsyncCache<String, MeshLods> modelLods;
+    private final ExecutorService parsingExecutor;
+    private final MeterRegistry meterRegistry;
+    private final int minTriangles;
+    private final int maxLevels;
+
+    public MeshLodService(@Qualifier("parsingExecutor") ExecutorService parsingExecutor,
+                          @Value("${meshes.lod.min-triangles:1000}") int minTriangles,
+                          @Value("${meshes.lod.max-levels:8}") int maxLevels,
+                          @Value("${meshes.lod-cache.max-bytes:512MB}") DataSize maxBytes,
+                          MeterRegistry meterRegistry) {
+        this.parsingExecutor = parsingExecutor;
+        this.meterRegistry = meterRegistry;
+        this.minTriangles = minTriangles;
+        this.maxLevels = maxLevels;
+        this.datasetLods = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumWeight(maxBytes.toBytes())
+            .weigher((DatasetIndex dataset, MeshLods lods) -> weight(lods))
+            .buildAsync();
+        this.modelLods = Caffeine.newBuilder()
+            .maximumWeight(maxBytes.toBytes())
+            .weigher((String id, MeshLods lods) -> weight(lods))
+            .buildAsync();
+    }
+
+    /**
+     * Starts building the levels of an STL dataset in the background; a no-op for other datasets.
+     * If the parsing pool is busy they are built on first request instead.
+     */
+    public void prepare(DatasetIndex dataset) {
+        if (TriangleMesh.isTriangleSoup(dataset.data())) {
+            try {
+                build(dataset);
+            } catch (RejectedExecutionException e) {
+                // Built on demand by the first request for a level
+            }
+        }
+    }
+
+    /** Same as {@link #prepare(DatasetIndex)} for a model uploaded through {@code /api/models}. */
+    public void prepareModel(String id, Path file) {
+        if (isStl(file)) {
+            try {
+                buildModel(id, file);
+            } catch (RejectedExecutionException e) {
+                // Built on demand by the first request for a level
+            }
+        }
+    }
+
+    /** Bytes of the levels cached right now, for datasets and models together. */
+    public long residentBytes() {
+        return weightedSize(datasetLods) + weightedSize(modelLods);
+    }
+
+    private static long weightedSize(AsyncCache<?, MeshLods> cache) {
+        return cache.synchronous().policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    /** Drops the levels of a dataset that is being deleted, rather than waiting for it to be collected. */
+    public void evict(DatasetIndex dataset) {
+        datasetLods.synchronous().invalidate(dataset);
+    }
+
+    /**
+     * The dataset at the level of detail closest to {@code triangleBudget} (see
+     * {@link MeshLods#levelFor}), as an STL triangle soup like the full dataset. Its properties
+     * report {@code lodLevel}, {@code lodTriangles} and the triangle count of every level.
+     * Waits for the levels if they are still being built.
+     *
+     * @throws IllegalArgumentException   if the dataset is not a triangle mesh
+     * @throws RejectedExecutionException if the levels need building and the parsing pool is busy
+     */
+    public GeologicalData withinBudget(DatasetIndex dataset, int triangleBudget) {
+        if (!TriangleMesh.isTriangleSoup(dataset.data())) {
+            throw new IllegalArgumentException("Dataset is not a triangle mesh");
+        }
+        MeshLods lods = join(build(dataset));
+        int level = lods.levelFor(triangleBudget);
+        TriangleMesh mesh = lods.levels().get(level);
+
+        Map<String, Object> properties = new HashMap<>(dataset.data().properties());
+        properties.put("totalVertices", mesh.triangleCount() * 3);
+        properties.put("lodLevel", level);
+        properties.put("lodTriangles", mesh.triangleCount());
+        properties.put("lodLevels", lods.triangleCounts());
+        return new GeologicalData(mesh.toTriangleSoup(), Collections.emptyList(), properties, mesh.boundingBox(),
+            Collections.emptyList());
+    }
+
+    /**
+     * Levels of a stored model, or empty if it is not an STL file.
+     *
+     * @throws RejectedExecutionException if the levels need building and the parsing pool is busy
+     */
+    public Optional<MeshLods> modelLods(String id, Path file) throws IOException {
+        if (!isStl(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(join(buildModel(id, file)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private CompletableFuture<MeshLods> build(DatasetIndex dataset) {
+        return datasetLods.get(dataset, (key, executor) -> CompletableFuture.supplyAsync(
+            () -> timed("dataset", TriangleMesh.fromTriangleSoup(key.data().points())), parsingExecutor));
+    }
+
+    private CompletableFuture<MeshLods> buildModel(String id, Path file) {
+        return modelLods.get(id, (key, executor) -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return timed("model", StlFiles.read(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, parsingExecutor));
+    }
+
+    private MeshLods timed(String source, TriangleMesh mesh) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        MeshLods lods = MeshLods.build(mesh, minTriangles, maxLevels);
+        sample.stop(Timer.builder("mesh.lod.build")
+            .description("Time to simplify a mesh into all its levels of detail")
+            .tag("source", source)
+            .register(meterRegistry));
+        return lods;
+    }
+
+    private static MeshLods join(CompletableFuture<MeshLods> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    private static int weight(MeshLods lods) {
+        return (int) Math.min(Integer.MAX_VALUE, lods.sizeBytes());
+    }
+
+    private static boolean isStl(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".stl");
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.vtkbackend.service;
+
+import com.example.vtkbackend.model.GeologicalData;
+import com.example.vtkbackend.parser.GeologicalFileParser;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.geotools.referencing.CRS;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+/**
+ * Transforms datasets between coordinate reference systems with GeoTools. CRS definitions and
+ * transforms are looked up once per code / CRS pair and kept in bounded caches, since the CRS
+ * strings come from clients. Coordinates are copied into one
+ * primitive array per dataset and transformed in bulk, in parallel chunks, rather than point by point.
+ * <p>
+ * CRS codes are authority codes such as {@code EPSG:32633} or WKT definitions. Geographic CRSs are
+ * always longitude first, matching the x/y order of the parsed data. A WKT definition equal to a
+ * registered EPSG CRS is identified with it, so both share one transform and one metric tag.
+ */
+@Service
+public class ReprojectionService {
+
+    static final String CRS_PROPERTY = GeologicalFileParser.CRS_PROPERTY;
+    static final String SOURCE_CRS_PROPERTY = "sourceCrs";
+
+    // Points per task; large enough to amortize scheduling, small enough to balance across cores
+    private static final int CHUNK_POINTS = 1 << 16;
+    // Points per edge when reprojecting an extent
+    private static final int EXTENT_SAMPLES = 16;
+    // Distinct CRS definitions and CRS pairs kept resolved; far more than any deployment uses
+    private static final int MAX_CACHED = 256;
+
+    private final String targetCrs;
+    private final String defaultSourceCrs;
+    private final Cache<String, ResolvedCrs> crsByCode;
+    private final Cache<TransformKey, MathTransform> transforms;
+    private final MeterRegistry meterRegistry;
+    private final Counter points;
+
+    public ReprojectionService(@Value("${reprojection.target-crs:}") String targetCrs,
+                               @Value("${reprojection.default-source-crs:}") String defaultSourceCrs,
+                               MeterRegistry meterRegistry) {
+        this.targetCrs = targetCrs.isBlank() ? null : targetCrs.trim();
+        this.defaultSourceCrs = defaultSourceCrs.isBlank() ? null : defaultSourceCrs.trim();
+        this.meterRegistry = meterRegistry;
+        this.crsByCode = Caffeine.newBuilder().maximumSize(MAX_CACHED).recordStats().build();
+        this.transforms = Caffeine.newBuilder().maximumSize(MAX_CACHED).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, crsByCode, "reprojection-crs");
+        CaffeineCacheMetrics.monitor(meterRegistry, transforms, "reprojection-transforms");
+        this.points = Counter.builder("reprojection.points")
+            .description("Points transformed between coordinate reference systems")
+            .register(meterRegistry);
+    }
+
+    /** CRS all datasets are reprojected to at ingestion, if configured. */
+    public Optional<String> targetCrs() {
+        return Optional.ofNullable(targetCrs);
+    }
+
+    /** CRS assumed for datasets that neither declare one nor were uploaded with one. */
+    public Optional<String> defaultSourceCrs() {
+        return Optional.ofNullable(defaultSourceCrs);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the code or WKT cannot be resolved
+     */
+    public void validate(String crs) {
+        resolve(crs);
+    }
+
+    /**
+     * Returns a copy of {@code data} with points, feature coordinates and bounding box transformed
+     * from {@code sourceCrs} to {@code targetCrs}. The copy's {@code crs} property is the target and
+     * {@code sourceCrs} records where it came from. Heights are passed through unchanged unless both
+     * CRSs are three dimensional.
+     *
+     * @throws IllegalArgumentException if a CRS is unknown, no transform exists between them, or a
+     *                                  coordinate lies outside the source CRS's domain
+     */
+    public GeologicalData reproject(GeologicalData data, String sourceCrs, String targetCrs) {
+        MathTransform transform = transform(sourceCrs, targetCrs);
+        Map<String, Object> properties = new HashMap<>(data.properties());
+        properties.put(CRS_PROPERTY, targetCrs);
+        properties.putIfAbsent(SOURCE_CRS_PROPERTY, sourceCrs);
+        if (transform.isIdentity()) {
+            return new GeologicalData(data.points(), data.features(), properties, data.boundingBox(), data.attributes());
+        }
+
+        long start = System.nanoTime();
+        List<GeologicalData.Point3D> source = data.points();
+        double[] coordinates = new double[source.size() * 3];
+        for (int i = 0; i < source.size(); i++) {
+            GeologicalData.Point3D p = source.get(i);
+            coordinates[3 * i] = p.x();
+            coordinates[3 * i + 1] = p.y();
+            coordinates[3 * i + 2] = p.z();
+        }
+        transformAll(coordinates, transform);
+
+        List<GeologicalData.Point3D> reprojected = new ArrayList<>(source.size());
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < source.size(); i++) {
+            double x = coordinates[3 * i];
+            double y = coordinates[3 * i + 1];
+            double z = coordinates[3 * i + 2];
+            reprojected.add(new GeologicalData.Point3D(x, y, z));
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+        GeologicalData.BoundingBox box = reprojected.isEmpty()
+            ? data.boundingBox()
+            : new GeologicalData.BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+
+        List<GeologicalData.Feature> features = reprojectFeatures(data.features(), transform);
+
+        long nanos = System.nanoTime() - start;
+        record(sourceCrs, targetCrs, source.size(), nanos);
+        properties.put("reprojectionMillis", TimeUnit.NANOSECONDS.toMillis(nanos));
+        return new GeologicalData(reprojected, features, properties, box, data.attributes());
+    }
+
+    /**
+     * Envelope of {@code box} in {@code targetCrs}, from points sampled along its edges so that
+     * edges which curve in the target CRS are covered. Heights are passed through.
+     *
+     * @throws IllegalArgumentException as for {@link #reproject}
+     */
+    public GeologicalData.BoundingBox reprojectExtent(GeologicalData.BoundingBox box, String sourceCrs,
+                                                      String targetCrs) {
+        MathTransform transform = transform(sourceCrs, targetCrs);
+        if (transform.isIdentity()) {
+            return box;
+        }
+        double[] xyz = new double[(EXTENT_SAMPLES + 1) * 4 * 3];
+        int i = 0;
+        for (int s = 0; s <= EXTENT_SAMPLES; s++) {
+            double x = box.minX() + (box.maxX() - box.minX()) * s / EXTENT_SAMPLES;
+            double y = box.minY() + (box.maxY() - box.minY()) * s / EXTENT_SAMPLES;
+            for (double[] edge : new double[][]{{x, box.minY()}, {x, box.maxY()}, {box.minX(), y}, {box.maxX(), y}}) {
+                xyz[i++] = edge[0];
+                xyz[i++] = edge[1];
+                xyz[i++] = box.minZ();
+            }
+        }
+        transformAll(xyz, transform);
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (i = 0; i < xyz.length; i += 3) {
+            minX = Math.min(minX, xyz[i]);
+            minY = Math.min(minY, xyz[i + 1]);
+            maxX = Math.max(maxX, xyz[i]);
+            maxY = Math.max(maxY, xyz[i + 1]);
+        }
+        return new GeologicalData.BoundingBox(minX, minY, box.minZ(), maxX, maxY, box.maxZ());
+    }
+
+    // Feature geometries are flattened into one array so they are transformed in bulk as well
+    private List<GeologicalData.Feature> reprojectFeatures(List<GeologicalData.Feature> features,
+                                                           MathTransform transform) {
+        int positions = 0;
+        for (GeologicalData.Feature feature : features) {
+            if (feature.geometry() != null && feature.geometry().coordinates() != null) {
+                positions += feature.geometry().coordinates().size();
+            }
+        }
+        if (positions == 0) {
+            return features;
+        }
+
+        double[] coordinates = new double[positions * 3];
+        int i = 0;
+        for (GeologicalData.Feature feature : features) {
+            if (feature.geometry() != null && feature.geometry().coordinates() != null) {
+                for (List<Double> position : feature.geometry().coordinates()) {
+                    coordinates[i++] = position.size() > 0 ? position.get(0) : Double.NaN;
+                    coordinates[i++] = position.size() > 1 ? position.get(1) : Double.NaN;
+                    coordinates[i++] = position.size() > 2 ? position.get(2) : 0.0;
+                }
+            }
+        }
+        transformAll(coordinates, transform);
+
+        List<GeologicalData.Feature> reprojected = new ArrayList<>(features.size());
+        i = 0;
+        for (GeologicalData.Feature feature : features) {
+            GeologicalData.Geometry geometry = feature.geometry();
+            if (geometry == null || geometry.coordinates() == null) {
+                reprojected.add(feature);
+                continue;
+            }
+            List<List<Double>> transformed = new ArrayList<>(geometry.coordinates().size());
+            for (List<Double> position : geometry.coordinates()) {
+                transformed.add(position.size() > 2
+                    ? List.of(coordinates[i], coordinates[i + 1], coordinates[i + 2])
+                    : List.of(coordinates[i], coordinates[i + 1]));
+                i += 3;
+            }
+            reprojected.add(new GeologicalData.Feature(feature.id(), feature.type(),
+                new GeologicalData.Geometry(geometry.type(), transformed), feature.properties()));
+        }
+        return reprojected;
+    }
+
+    /**
+     * Transforms interleaved x, y, z triples in place. Chunks run on the common fork-join pool,
+     * which is safe to block on from a parsing thread since chunks never wait on each other.
+     */
+    void transformAll(double[] xyz, MathTransform transform) {
+        int sourceDimension = transform.getSourceDimensions();
+        int targetDimension = transform.getTargetDimensions();
+        if (sourceDimension < 2 || sourceDimension > 3 || targetDimension < 2 || targetDimension > 3) {
+            throw new IllegalArgumentException("Cannot transform coordinates between " + sourceDimension
+                + " and " + targetDimension + " dimensions");
+        }
+        int count = xyz.length / 3;
+        int chunks = (count + CHUNK_POINTS - 1) / CHUNK_POINTS;
+        // Fork-join re-wraps exceptions thrown on worker threads, so keep the first one and raise it here
+        AtomicReference<TransformException> failure = new AtomicReference<>();
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            if (failure.get() != null) {
+                return;
+            }
+            int from = chunk * CHUNK_POINTS;
+            int n = Math.min(CHUNK_POINTS, count - from);
+            try {
+                transformChunk(xyz, from, n, transform, sourceDimension, targetDimension);
+            } catch (TransformException e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        if (failure.get() != null) {
+            throw new IllegalArgumentException("Cannot transform coordinates: " + failure.get().getMessage(),
+                failure.get());
+        }
+    }
+
+    // Source and target may differ in dimension (e.g. a 3D CRS to 2D WGS84), so positions are packed
+    // with the source's stride and read back with the target's; heights are only taken from the
+    // transform when both are 3D and stay where they are otherwise
+    private static void transformChunk(double[] xyz, int from, int n, MathTransform transform,
+                                       int sourceDimension, int targetDimension) throws TransformException {
+        if (sourceDimension == 3 && targetDimension == 3) {
+            transform.transform(xyz, from * 3, xyz, from * 3, n);
+            return;
+        }
+        double[] source = new double[n * sourceDimension];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(xyz, 3 * (from + i), source, sourceDimension * i, sourceDimension);
+        }
+        double[] target = sourceDimension == targetDimension ? source : new double[n * targetDimension];
+        transform.transform(source, 0, target, 0, n);
+        for (int i = 0; i < n; i++) {
+            xyz[3 * (from + i)] = target[targetDimension * i];
+            xyz[3 * (from + i) + 1] = target[targetDimension * i + 1];
+        }
+    }
+
+    MathTransform transform(String sourceCrs, String targetCrs) {
+        ResolvedCrs source = resolve(sourceCrs);
+        ResolvedCrs target = resolve(targetCrs);
+        return transforms.get(new TransformKey(source.key(), target.key()), key -> {
+            try {
+                return CRS.findMathTransform(source.crs(), target.crs(), true);
+            } catch (FactoryException e) {
+                throw new IllegalArgumentException(
+                    "No transform from " + source.tag() + " to " + target.tag() + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    private ResolvedCrs resolve(String crs) {
+        return crsByCode.get(crs, definition -> {
+            boolean wkt = definition.contains("[");
+            CoordinateReferenceSystem parsed;
+            try {
+                parsed = wkt ? CRS.parseWKT(definition) : CRS.decode(definition.trim(), true);
+            } catch (FactoryException e) {
+                throw new IllegalArgumentException("Unknown CRS " + definition + ": " + e.getMessage(), e);
+            }
+            String code = epsgCode(parsed);
+            if (code == null && !wkt) {
+                code = definition.trim().toUpperCase(Locale.ROOT);
+            }
+            // Unregistered WKT definitions would make unbounded tag values
+            return code != null ? new ResolvedCrs(code, code, parsed) : new ResolvedCrs(definition, "wkt", parsed);
+        });
+    }
+
+    // The EPSG code of a CRS, if decoding that code here gives the same CRS, axis order included
+    private static String epsgCode(CoordinateReferenceSystem crs) {
+        try {
+            Integer epsg = CRS.lookupEpsgCode(crs, false);
+            if (epsg == null) {
+                return null;
+            }
+            String code = "EPSG:" + epsg;
+            return CRS.equalsIgnoreMetadata(crs, CRS.decode(code, true)) ? code : null;
+        } catch (FactoryException e) {
+            return null;
+        }
+    }
+
+    private void record(String sourceCrs, String targetCrs, int count, long nanos) {
+        points.increment(count);
+        Timer.builder("reprojection.transform")
+            .tags("source", resolve(sourceCrs).tag(), "target", resolve(targetCrs).tag())
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+        if (count > 0) {
+            DistributionSummary.builder("reprojection.points.per.second")
+                .register(meterRegistry)
+                .record(count / (Math.max(nanos, 1) / (double) TimeUnit.SECONDS.toNanos(1)));
+        }
+    }
+
+    /**
+     * A resolved CRS, with the normalized code its transforms are cached under and its metric tag:
+     * the EPSG code when it is a registered EPSG CRS, however it was given.
+     */
+    private record ResolvedCrs(String key, String tag, CoordinateReferenceSystem crs) {}
+
+    private record TransformKey(String source, String target) {}
+}
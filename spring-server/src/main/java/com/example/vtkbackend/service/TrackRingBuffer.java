@@ -0,0 +1,124 @@
+package com.example.vtkbackend.service;
+
+import com.example.vtkbackend.model.TrackPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-capacity history of a single track backed by parallel primitive arrays.
+ * Appending never allocates; once full, the oldest fix is overwritten.
+ * Times are kept non-decreasing so window lookups can binary search.
+ */
+class TrackRingBuffer {
+
+    private final String trackId;
+    private final long[] times;
+    private final double[] lats;
+    private final double[] lons;
+    private final double[] alts;
+    private int head;   // index of the oldest fix
+    private int size;
+    // System.nanoTime() of creation or the last accepted fix; read without the lock when picking a track to evict
+    private volatile long lastUpdated = System.nanoTime();
+
+    TrackRingBuffer(String trackId, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Track buffer capacity must be positive");
+        }
+        this.trackId = trackId;
+        this.times = new long[capacity];
+        this.lats = new double[capacity];
+        this.lons = new double[capacity];
+        this.alts = new double[capacity];
+    }
+
+    /**
+     * Appends a fix. Returns false (and stores nothing) if it is older than the latest fix.
+     */
+    synchronized boolean append(long t, double lat, double lon, double alt) {
+        if (size > 0 && t < times[physical(size - 1)]) {
+            return false;
+        }
+        int slot;
+        if (size < times.length) {
+            slot = physical(size);
+            size++;
+        } else {
+            slot = head;
+            head = (head + 1) % times.length;
+        }
+        times[slot] = t;
+        lats[slot] = lat;
+        lons[slot] = lon;
+        alts[slot] = alt;
+        lastUpdated = System.nanoTime();
+        return true;
+    }
+
+    long lastUpdated() {
+        return lastUpdated;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized long latestTime() {
+        return size == 0 ? Long.MIN_VALUE : times[physical(size - 1)];
+    }
+
+    /**
+     * Returns the fixes with {@code from <= t <= to}, evenly downsampled to at most
+     * {@code maxPoints}. The first and last fix of the window are always kept.
+     */
+    synchronized List<TrackPoint> window(long from, long to, int maxPoints) {
+        int start = lowerBound(from);
+        int end = lowerBound(to == Long.MAX_VALUE ? to : to + 1); // exclusive
+        return sample(start, end, maxPoints);
+    }
+
+    /**
+     * Returns the most recent {@code count} fixes in time order.
+     */
+    synchronized List<TrackPoint> latest(int count) {
+        int start = Math.max(0, size - count);
+        return sample(start, size, size - start);
+    }
+
+    private List<TrackPoint> sample(int start, int end, int maxPoints) {
+        int available = end - start;
+        if (available <= 0 || maxPoints <= 0) {
+            return List.of();
+        }
+        int count = Math.min(available, maxPoints);
+        List<TrackPoint> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Spread samples so that index 0 maps to start and count-1 maps to end-1
+            int logical = count == 1 ? end - 1 : start + (int) ((long) i * (available - 1) / (count - 1));
+            int p = physical(logical);
+            result.add(new TrackPoint(trackId, times[p], lats[p], lons[p], alts[p]));
+        }
+        return result;
+    }
+
+    /** First logical index whose time is >= t. */
+    private int lowerBound(long t) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[physical(mid)] < t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int physical(int logical) {
+        int p = head + logical;
+        return p >= times.length ? p - times.length : p;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.vtkbackend.service;
+
+import com.example.vtkbackend.model.TrackPoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+public class TrackService {
+
+    // Live events that arrive while a late joiner's history is being sent are held here
+    private static final int CATCH_UP_EVENTS = 1024;
+    // Per-subscriber backlog before the oldest undelivered events are dropped
+    private static final int SUBSCRIBER_BUFFER = 256;
+
+    private final int bufferCapacity;
+    private final int maxTracks;
+    private final Map<String, TrackRingBuffer> tracks = new ConcurrentHashMap<>();
+    private final Sinks.Many<TrackPoint> liveSink = Sinks.many().multicast().directBestEffort();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter ingested;
+    private final Counter rejected;
+    private final Counter dropped;
+    private final Counter evicted;
+    // Tracks in the map; claimed inside computeIfAbsent so concurrent new ids cannot overshoot maxTracks
+    private final AtomicInteger trackCount = new AtomicInteger();
+
+    public TrackService(@Value("${tracks.buffer-capacity:8192}") int bufferCapacity,
+                        @Value("${tracks.max-tracks:1000}") int maxTracks,
+                        MeterRegistry meterRegistry) {
+        if (maxTracks <= 0) {
+            throw new IllegalArgumentException("tracks.max-tracks must be positive");
+        }
+        this.bufferCapacity = bufferCapacity;
+        this.maxTracks = maxTracks;
+        this.ingested = Counter.builder("tracks.points.ingested").register(meterRegistry);
+        this.rejected = Counter.builder("tracks.points.rejected")
+            .description("Fixes older than the latest stored fix of their track")
+            .register(meterRegistry);
+        this.dropped = Counter.builder("tracks.sse.dropped")
+            .description("Live events dropped because a subscriber fell behind")
+            .register(meterRegistry);
+        this.evicted = Counter.builder("tracks.evicted")
+            .description("Tracks dropped to make room for new ones once tracks.max-tracks was reached")
+            .register(meterRegistry);
+        Gauge.builder("tracks.sse.subscribers", subscribers, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("tracks.active", tracks, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Stores the given fixes and publishes them to live subscribers.
+     * Fixes older than the latest stored fix of the track are rejected. A new track beyond
+     * {@code tracks.max-tracks} replaces the least recently updated one.
+     *
+     * @return number of fixes accepted
+     * @throws IllegalArgumentException if a fix lies outside lat [-90, 90] or lon [-180, 180];
+     *                                  nothing is stored then
+     */
+    public int ingest(String trackId, List<TrackPoint> points) {
+        for (TrackPoint p : points) {
+            if (!(p.lat() >= -90 && p.lat() <= 90) || !(p.lon() >= -180 && p.lon() <= 180)) {
+                throw new IllegalArgumentException(
+                    "Position out of range at t=" + p.t() + ": lat " + p.lat() + ", lon " + p.lon());
+            }
+        }
+        TrackRingBuffer buffer = buffer(trackId);
+
+        int accepted = 0;
+        for (TrackPoint p : points) {
+            if (buffer.append(p.t(), p.lat(), p.lon(), p.alt())) {
+                accepted++;
+                liveSink.emitNext(new TrackPoint(trackId, p.t(), p.lat(), p.lon(), p.alt()),
+                    Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+            }
+        }
+        ingested.increment(accepted);
+        rejected.increment(points.size() - accepted);
+        return accepted;
+    }
+
+    private TrackRingBuffer buffer(String trackId) {
+        TrackRingBuffer buffer = tracks.get(trackId);
+        while (buffer == null) {
+            if (trackCount.get() >= maxTracks) {
+                evictLeastRecentlyUpdated();
+            }
+            // Returning null leaves the id absent when another new track took the last slot; evict again
+            buffer = tracks.computeIfAbsent(trackId, id -> {
+                if (trackCount.incrementAndGet() > maxTracks) {
+                    trackCount.decrementAndGet();
+                    return null;
+                }
+                return new TrackRingBuffer(id, bufferCapacity);
+            });
+        }
+        return buffer;
+    }
+
+    private void evictLeastRecentlyUpdated() {
+        Map.Entry<String, TrackRingBuffer> oldest = null;
+        for (Map.Entry<String, TrackRingBuffer> entry : tracks.entrySet()) {
+            if (oldest == null || entry.getValue().lastUpdated() - oldest.getValue().lastUpdated() < 0) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null && tracks.remove(oldest.getKey(), oldest.getValue())) {
+            trackCount.decrementAndGet();
+            evicted.increment();
+        }
+    }
+
+    public List<String> trackIds() {
+        return tracks.keySet().stream().sorted().toList();
+    }
+
+    /**
+     * Returns the fixes of a track within {@code [from, to]}, downsampled to {@code maxPoints}.
+     */
+    public Optional<List<TrackPoint>> window(String trackId, long from, long to, int maxPoints) {
+        TrackRingBuffer buffer = tracks.get(trackId);
+        return buffer == null ? Optional.empty() : Optional.of(buffer.window(from, to, maxPoints));
+    }
+
+    /**
+     * Emits the most recent {@code historyPoints} fixes of each matching track, then
+     * switches to live events. A null {@code trackId} matches all tracks.
+     */
+    public Flux<TrackPoint> historyThenLive(String trackId, int historyPoints) {
+        return Flux.defer(() -> {
+            // Subscribe to live events before taking the snapshot so nothing falls in between
+            AtomicReference<Disposable> connection = new AtomicReference<>();
+            Flux<TrackPoint> tail = liveSink.asFlux()
+                .filter(p -> trackId == null || trackId.equals(p.id()))
+                .replay(CATCH_UP_EVENTS)
+                .autoConnect(0, connection::set);
+
+            List<TrackPoint> history = recent(trackId, historyPoints);
+            Map<String, Long> lastSent = new HashMap<>();
+            for (TrackPoint p : history) {
+                lastSent.merge(p.id(), p.t(), Math::max);
+            }
+
+            return Flux.concat(
+                    Flux.fromIterable(history),
+                    tail.filter(p -> p.t() > lastSent.getOrDefault(p.id(), Long.MIN_VALUE)))
+                .onBackpressureBuffer(SUBSCRIBER_BUFFER, p -> dropped.increment(), BufferOverflowStrategy.DROP_OLDEST)
+                .doOnSubscribe(s -> subscribers.incrementAndGet())
+                .doFinally(signal -> {
+                    subscribers.decrementAndGet();
+                    Disposable d = connection.get();
+                    if (d != null) {
+                        d.dispose();
+                    }
+                });
+        });
+    }
+
+    private List<TrackPoint> recent(String trackId, int historyPoints) {
+        if (historyPoints <= 0) {
+            return List.of();
+        }
+        if (trackId != null) {
+            TrackRingBuffer buffer = tracks.get(trackId);
+            return buffer == null ? List.of() : buffer.latest(historyPoints);
+        }
+        List<TrackPoint> history = new ArrayList<>();
+        for (TrackRingBuffer buffer : tracks.values()) {
+            history.addAll(buffer.latest(historyPoints));
+        }
+        history.sort(Comparator.comparingLong(TrackPoint::t));
+        return history;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.vtkbackend.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RTreeTest {
+
+    @Test
+    void searchMatchesBruteForceAfterRandomInsertsAndRemoves() {
+        SplittableRandom random = new SplittableRandom(7);
+        RTree<Integer> tree = new RTree<>();
+        Map<Integer, double[]> live = new HashMap<>();
+        List<Integer> ids = new ArrayList<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            // Inserts outnumber removes, so the tree grows several levels deep while nodes keep underflowing
+            if (ids.isEmpty() || random.nextInt(3) > 0) {
+                int id = step;
+                double[] box = randomBox(random);
+                tree.insert(box[0], box[1], box[2], box[3], id);
+                live.put(id, box);
+                ids.add(id);
+            } else {
+                int id = ids.remove(random.nextInt(ids.size()));
+                double[] box = live.remove(id);
+                assertThat(tree.remove(box[0], box[1], box[2], box[3], id)).isTrue();
+                assertThat(tree.remove(box[0], box[1], box[2], box[3], id)).isFalse();
+            }
+            if (step % 500 == 0) {
+                assertSearchesMatch(tree, live, random);
+            }
+        }
+        assertThat(tree.size()).isEqualTo(live.size());
+        assertSearchesMatch(tree, live, random);
+
+        for (int id : ids) {
+            double[] box = live.remove(id);
+            assertThat(tree.remove(box[0], box[1], box[2], box[3], id)).isTrue();
+        }
+        assertThat(tree.size()).isZero();
+        assertSearchesMatch(tree, live, random);
+    }
+
+    @Test
+    void identicalRectanglesAreKeptApart() {
+        RTree<Integer> tree = new RTree<>();
+        for (int id = 0; id < 100; id++) {
+            tree.insert(0, 0, 1, 1, id);
+        }
+
+        assertThat(tree.remove(0, 0, 1, 1, 42)).isTrue();
+
+        List<Integer> found = new ArrayList<>();
+        tree.search(0.5, 0.5, 0.5, 0.5, found::add);
+        assertThat(found).hasSize(99).doesNotContain(42);
+    }
+
+    private static void assertSearchesMatch(RTree<Integer> tree, Map<Integer, double[]> live, SplittableRandom random) {
+        for (int query = 0; query < 20; query++) {
+            double[] q = randomBox(random);
+            // Queries up to a fifth of the space wide, and points
+            if (query % 4 == 0) {
+                q[2] = q[0];
+                q[3] = q[1];
+            } else {
+                q[2] = q[0] + random.nextDouble() * 200;
+                q[3] = q[1] + random.nextDouble() * 200;
+            }
+            List<Integer> expected = new ArrayList<>();
+            live.forEach((id, b) -> {
+                if (b[0] <= q[2] && b[2] >= q[0] && b[1] <= q[3] && b[3] >= q[1]) {
+                    expected.add(id);
+                }
+            });
+            List<Integer> found = new ArrayList<>();
+            tree.search(q[0], q[1], q[2], q[3], found::add);
+            assertThat(found).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    // Mostly small rectangles in a 1000 x 1000 space, some large and some degenerate
+    private static double[] randomBox(SplittableRandom random) {
+        double x = random.nextDouble() * 1000;
+        double y = random.nextDouble() * 1000;
+        double size = switch (random.nextInt(10)) {
+            case 0 -> 0;
+            case 1 -> random.nextDouble() * 300;
+            default -> random.nextDouble() * 10;
+        };
+        return new double[] {x, y, x + size, y + random.nextDouble() * size};
+    }
+}
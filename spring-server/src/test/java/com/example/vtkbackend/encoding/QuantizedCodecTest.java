@@ -0,0 +1,174 @@
+package com.example.vtkbackend.encoding;
+
+import com.example.vtkbackend.model.AttributeColumn;
+import com.example.vtkbackend.model.GeologicalData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class QuantizedCodecTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {16, 32})
+    void pointsRoundTripWithinHalfAQuantizationStep(int bits) {
+        int n = 20_000;
+        SplittableRandom random = new SplittableRandom(bits);
+        List<GeologicalData.Point3D> points = new ArrayList<>(n);
+        double[] rows = new double[n];
+        double[] grades = new double[n];
+        int[] minerals = new int[n];
+        for (int i = 0; i < n; i++) {
+            points.add(new GeologicalData.Point3D(
+                random.nextDouble(500_000, 510_000), random.nextDouble(-4_510_000, -4_500_000), random.nextDouble(-50, 350)));
+            rows[i] = i;
+            grades[i] = i % 10 == 0 ? Double.NaN : random.nextDouble(-20, 20);
+            minerals[i] = i % 7 == 0 ? -1 : random.nextInt(3);
+        }
+        GeologicalData data = data(points, Map.of(),
+            new AttributeColumn("row", AttributeColumn.Type.NUMERIC, rows, null, null, null),
+            new AttributeColumn("grade", AttributeColumn.Type.NUMERIC, grades, null, null, null),
+            new AttributeColumn("mineral", AttributeColumn.Type.CATEGORICAL, null, minerals,
+                List.of("gold", "copper", "zinc"), null));
+        GeologicalData.BoundingBox box = data.boundingBox();
+
+        QuantizedCodec.Decoded decoded = QuantizedCodec.decode(QuantizedCodec.encode(data, bits));
+
+        assertThat(decoded.bits()).isEqualTo(bits);
+        assertThat(decoded.vertexCount()).isEqualTo(n);
+        assertThat(decoded.indices()).isNull();
+        assertThat(decoded.attributes()).extracting(AttributeColumn::name).containsExactly("row", "grade", "mineral");
+        assertThat(decoded.attributes().get(2).dictionary()).containsExactly("gold", "copper", "zinc");
+        double maxQ = (1L << bits) - 1;
+        double errorX = halfStep(box.minX(), box.maxX(), maxQ);
+        double errorY = halfStep(box.minY(), box.maxY(), maxQ);
+        double errorZ = halfStep(box.minZ(), box.maxZ(), maxQ);
+        // Points are reordered; the exact row attribute says where each one came from
+        boolean[] seen = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            int row = (int) decoded.attributes().get(0).values()[i];
+            assertThat(seen[row]).isFalse();
+            seen[row] = true;
+            GeologicalData.Point3D original = points.get(row);
+            assertThat(decoded.positions()[3 * i]).isCloseTo(original.x(), within(errorX));
+            assertThat(decoded.positions()[3 * i + 1]).isCloseTo(original.y(), within(errorY));
+            assertThat(decoded.positions()[3 * i + 2]).isCloseTo(original.z(), within(errorZ));
+            double grade = decoded.attributes().get(1).values()[i];
+            if (Double.isNaN(grades[row])) {
+                assertThat(grade).isNaN();
+            } else {
+                assertThat(grade).isEqualTo((float) grades[row]);
+            }
+            assertThat(decoded.attributes().get(2).codes()[i]).isEqualTo(minerals[row]);
+        }
+    }
+
+    @Test
+    void textColumnsRoundTripWithMissingValues() {
+        List<GeologicalData.Point3D> points = List.of(
+            new GeologicalData.Point3D(0, 0, 0), new GeologicalData.Point3D(1, 1, 1), new GeologicalData.Point3D(2, 2, 2));
+        String[] ids = {"S-1", null, "forage \u00e9 7"};
+        GeologicalData data = data(points, Map.of(),
+            new AttributeColumn("row", AttributeColumn.Type.NUMERIC, new double[] {0, 1, 2}, null, null, null),
+            new AttributeColumn("sample_id", AttributeColumn.Type.TEXT, null, null, null, ids, null));
+
+        QuantizedCodec.Decoded decoded = QuantizedCodec.decode(QuantizedCodec.encode(data, 16));
+
+        AttributeColumn text = decoded.attributes().get(1);
+        assertThat(text.type()).isEqualTo(AttributeColumn.Type.TEXT);
+        for (int i = 0; i < decoded.vertexCount(); i++) {
+            assertThat(text.texts()[i]).isEqualTo(ids[(int) decoded.attributes().get(0).values()[i]]);
+        }
+    }
+
+    @Test
+    void flatAxisDecodesExactly() {
+        List<GeologicalData.Point3D> points = List.of(
+            new GeologicalData.Point3D(1, 2, 150), new GeologicalData.Point3D(3, 2, 150), new GeologicalData.Point3D(2, 2, 150));
+
+        QuantizedCodec.Decoded decoded = QuantizedCodec.decode(QuantizedCodec.encode(data(points, Map.of()), 16));
+
+        for (int i = 0; i < decoded.vertexCount(); i++) {
+            assertThat(decoded.positions()[3 * i + 1]).isEqualTo(2.0);
+            assertThat(decoded.positions()[3 * i + 2]).isEqualTo(150.0);
+        }
+    }
+
+    @Test
+    void meshKeepsTriangleOrderAndMergesSharedVertices() {
+        // Two triangles sharing an edge: six corners, four distinct vertices
+        GeologicalData.Point3D a = new GeologicalData.Point3D(0, 0, 0);
+        GeologicalData.Point3D b = new GeologicalData.Point3D(10, 0, 1);
+        GeologicalData.Point3D c = new GeologicalData.Point3D(0, 10, 2);
+        GeologicalData.Point3D d = new GeologicalData.Point3D(10, 10, 3);
+        List<GeologicalData.Point3D> corners = List.of(a, b, c, c, b, d);
+
+        QuantizedCodec.Decoded decoded = QuantizedCodec.decode(
+            QuantizedCodec.encode(data(corners, Map.of("type", "STL")), 16));
+
+        assertThat(decoded.vertexCount()).isEqualTo(4);
+        assertThat(decoded.indices()).hasSize(6);
+        double error = halfStep(0, 10, (1L << 16) - 1);
+        for (int k = 0; k < corners.size(); k++) {
+            int vertex = decoded.indices()[k];
+            assertThat(decoded.positions()[3 * vertex]).isCloseTo(corners.get(k).x(), within(error));
+            assertThat(decoded.positions()[3 * vertex + 1]).isCloseTo(corners.get(k).y(), within(error));
+            assertThat(decoded.positions()[3 * vertex + 2]).isCloseTo(corners.get(k).z(), within(error));
+        }
+        assertThat(decoded.indices()[1]).isEqualTo(decoded.indices()[4]);
+        assertThat(decoded.indices()[2]).isEqualTo(decoded.indices()[3]);
+    }
+
+    @Test
+    void emptyDatasetRoundTrips() {
+        QuantizedCodec.Decoded decoded = QuantizedCodec.decode(QuantizedCodec.encode(data(List.of(), Map.of()), 32));
+
+        assertThat(decoded.vertexCount()).isZero();
+        assertThat(decoded.attributes()).isEmpty();
+    }
+
+    @Test
+    void rejectsUnsupportedBitsAndForeignPayloads() {
+        GeologicalData data = data(List.of(new GeologicalData.Point3D(0, 0, 0)), Map.of());
+
+        assertThatThrownBy(() -> QuantizedCodec.encode(data, 8)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> QuantizedCodec.decode(new byte[] {1, 2, 3})).isInstanceOf(IllegalArgumentException.class);
+        byte[] payload = QuantizedCodec.encode(data, 16);
+        assertThatThrownBy(() -> QuantizedCodec.decode(Arrays.copyOf(payload, payload.length / 2)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // The stated bound: quantization rounds to the nearest step of (max - min) / (2^bits - 1),
+    // plus a little for floating point error in min + q * step
+    private static double halfStep(double min, double max, double maxQ) {
+        return (max - min) / maxQ / 2 + Math.ulp(Math.max(Math.abs(min), Math.abs(max))) * 4;
+    }
+
+    private static GeologicalData data(List<GeologicalData.Point3D> points, Map<String, Object> properties,
+                                       AttributeColumn... attributes) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (GeologicalData.Point3D p : points) {
+            minX = Math.min(minX, p.x());
+            minY = Math.min(minY, p.y());
+            minZ = Math.min(minZ, p.z());
+            maxX = Math.max(maxX, p.x());
+            maxY = Math.max(maxY, p.y());
+            maxZ = Math.max(maxZ, p.z());
+        }
+        GeologicalData.BoundingBox box = points.isEmpty()
+            ? new GeologicalData.BoundingBox(0, 0, 0, 0, 0, 0)
+            : new GeologicalData.BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+        return new GeologicalData(points, List.of(), new HashMap<>(properties), box, List.of(attributes));
+    }
+}
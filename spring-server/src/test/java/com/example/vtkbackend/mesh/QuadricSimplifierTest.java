@@ -0,0 +1,183 @@
+package com.example.vtkbackend.mesh;
+
+import com.example.vtkbackend.model.GeologicalData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class QuadricSimplifierTest {
+
+    // Cells per side of the test grid, which spans [0, SIDE] in x and y
+    private static final int SIDE = 40;
+    // Boundary planes hold the outline in place but trade it off against the surface, so it may move a little
+    private static final double OUTLINE_TOLERANCE = 0.1;
+
+    @Test
+    void levelsHalveTheTrianglesDownToTheMinimum() {
+        TriangleMesh mesh = grid();
+
+        MeshLods lods = MeshLods.build(mesh, 100, 10);
+
+        // A collapse removes two triangles, or one on the boundary, so a level may end up one under its target
+        List<Integer> counts = lods.triangleCounts();
+        int[] targets = {3200, 1600, 800, 400, 200, 100};
+        assertThat(counts).hasSize(targets.length);
+        for (int i = 0; i < targets.length; i++) {
+            assertThat(counts.get(i)).isBetween(targets[i] - 1, targets[i]);
+        }
+        assertThat(lods.levels().get(0)).isSameAs(mesh);
+        assertThat(MeshLods.build(mesh, 100, 3).triangleCounts()).isEqualTo(counts.subList(0, 3));
+        assertThat(lods.levelFor(500)).isEqualTo(3);
+        assertThat(lods.levelFor(10)).isEqualTo(5);
+    }
+
+    @Test
+    void simplifiedTrianglesKeepTheirOrientation() {
+        for (TriangleMesh level : MeshLods.build(grid(), 20, 10).levels()) {
+            double[] p = level.positions();
+            int[] t = level.indices();
+            for (int i = 0; i < t.length; i += 3) {
+                // Every grid triangle faces up, and a gentle height field must stay that way
+                assertThat(normalZ(p, t[i], t[i + 1], t[i + 2])).isPositive();
+            }
+        }
+    }
+
+    @Test
+    void simplifiedMeshesKeepTheirOutline() {
+        for (TriangleMesh level : MeshLods.build(grid(), 100, 10).levels()) {
+            double[] p = level.positions();
+            // The outline stays the square: boundary edges run along its sides and the triangles
+            // still cover it exactly, without gaps or overlaps
+            for (int[] edge : boundaryEdges(level)) {
+                assertThat(onOneSide(p, edge[0], edge[1])).isTrue();
+            }
+            double area = 0;
+            int[] t = level.indices();
+            for (int i = 0; i < t.length; i += 3) {
+                area += normalZ(p, t[i], t[i + 1], t[i + 2]) / 2;
+            }
+            assertThat(area).isCloseTo(SIDE * SIDE, within(SIDE * 4 * OUTLINE_TOLERANCE));
+            GeologicalData.BoundingBox box = level.boundingBox();
+            assertThat(new double[] {box.minX(), box.minY(), box.maxX(), box.maxY()})
+                .containsExactly(new double[] {0, 0, SIDE, SIDE}, within(OUTLINE_TOLERANCE));
+        }
+    }
+
+    @Test
+    void simplificationReachesSmallTargets() {
+        TriangleMesh mesh = grid();
+
+        assertThat(QuadricSimplifier.simplify(mesh, 8).triangleCount()).isBetween(2, 8);
+        // The input is left as it was
+        assertThat(mesh.triangleCount()).isEqualTo(3200);
+        assertThat(mesh.positions()).isEqualTo(grid().positions());
+    }
+
+    @Test
+    void costlierEdgesAreCollapsedWhenTheCheapestWouldFoldTheSurface() {
+        // A rough 2 x 2 grid on which collapsing only the cheapest edges would stop short of the target
+        double[] positions = {
+            0, 0, 0.235, 0.635, 0, 2.879, 2, 0, 0.917,
+            0, 0.708, 2.261, 0.640, 1.109, 2.731, 2, 0.670, 0.919,
+            0, 2, 2.790, 0.597, 2, 0.309, 2, 2, 1.464};
+        int[] indices = {0, 1, 4, 0, 4, 3, 1, 2, 5, 1, 5, 4, 3, 4, 7, 3, 7, 6, 4, 5, 8, 4, 8, 7};
+
+        TriangleMesh simplified = QuadricSimplifier.simplify(new TriangleMesh(positions, indices), 6);
+
+        assertThat(simplified.triangleCount()).isBetween(5, 6);
+        double[] p = simplified.positions();
+        int[] t = simplified.indices();
+        for (int i = 0; i < t.length; i += 3) {
+            assertThat(normalZ(p, t[i], t[i + 1], t[i + 2])).isPositive();
+        }
+    }
+
+    @Test
+    void weldingMergesIdenticalCoordinatesOnly() {
+        TriangleMesh mesh = grid();
+        List<GeologicalData.Point3D> soup = mesh.toTriangleSoup();
+
+        TriangleMesh welded = TriangleMesh.fromTriangleSoup(soup);
+
+        assertThat(welded.vertexCount()).isEqualTo((SIDE + 1) * (SIDE + 1));
+        assertThat(welded.toTriangleSoup()).containsExactlyElementsOf(soup);
+
+        TriangleMesh.VertexWelder welder = new TriangleMesh.VertexWelder(8);
+        for (int i = 0; i < 8; i++) {
+            assertThat(welder.indexOf(i, 0, 0)).isEqualTo(i);
+        }
+        assertThat(welder.indexOf(3, 0, 0)).isEqualTo(3);
+        assertThat(welder.indexOf(3, 0, 1e-12)).isEqualTo(8);
+        assertThat(welder.positions()).hasSize(27);
+    }
+
+    // A (SIDE x SIDE)-cell grid over a gentle height field, two upward-facing triangles per cell
+    private static TriangleMesh grid() {
+        int n = SIDE + 1;
+        double[] positions = new double[n * n * 3];
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                int v = (y * n + x) * 3;
+                positions[v] = x;
+                positions[v + 1] = y;
+                positions[v + 2] = 2 * Math.sin(x / 7.0) * Math.cos(y / 5.0);
+            }
+        }
+        int[] indices = new int[SIDE * SIDE * 6];
+        int i = 0;
+        for (int y = 0; y < SIDE; y++) {
+            for (int x = 0; x < SIDE; x++) {
+                int a = y * n + x, b = a + 1, c = a + n, d = c + 1;
+                indices[i++] = a;
+                indices[i++] = b;
+                indices[i++] = d;
+                indices[i++] = a;
+                indices[i++] = d;
+                indices[i++] = c;
+            }
+        }
+        return new TriangleMesh(positions, indices);
+    }
+
+    // z of (b - a) x (c - a): twice the triangle's area as seen from above, negative if it faces down
+    private static double normalZ(double[] p, int a, int b, int c) {
+        return (p[b * 3] - p[a * 3]) * (p[c * 3 + 1] - p[a * 3 + 1])
+            - (p[b * 3 + 1] - p[a * 3 + 1]) * (p[c * 3] - p[a * 3]);
+    }
+
+    private static List<int[]> boundaryEdges(TriangleMesh mesh) {
+        Map<Long, Integer> uses = new HashMap<>();
+        int[] t = mesh.indices();
+        for (int i = 0; i < t.length; i++) {
+            int a = t[i], b = t[i - i % 3 + (i % 3 + 1) % 3];
+            uses.merge(Math.min(a, b) * (long) mesh.vertexCount() + Math.max(a, b), 1, Integer::sum);
+        }
+        List<int[]> edges = new ArrayList<>();
+        uses.forEach((key, count) -> {
+            if (count == 1) {
+                edges.add(new int[] {(int) (key / mesh.vertexCount()), (int) (key % mesh.vertexCount())});
+            }
+        });
+        assertThat(edges).isNotEmpty();
+        return edges;
+    }
+
+    private static boolean onOneSide(double[] p, int a, int b) {
+        for (int axis = 0; axis < 2; axis++) {
+            for (double side : new double[] {0, SIDE}) {
+                if (Math.abs(p[a * 3 + axis] - side) <= OUTLINE_TOLERANCE
+                    && Math.abs(p[b * 3 + axis] - side) <= OUTLINE_TOLERANCE) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
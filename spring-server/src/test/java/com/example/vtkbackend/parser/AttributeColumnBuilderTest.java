@@ -0,0 +1,75 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.AttributeColumn;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttributeColumnBuilderTest {
+
+    @Test
+    void numbersThenStringsBecomeCategorical() {
+        AttributeColumnBuilder builder = new AttributeColumnBuilder("grade");
+        builder.add("1.5");
+        builder.add("");
+        builder.add("high");
+        builder.add("1.5");
+
+        AttributeColumn column = builder.build();
+
+        assertThat(column.type()).isEqualTo(AttributeColumn.Type.CATEGORICAL);
+        assertThat(column.dictionary()).containsExactly("1.5", "high");
+        assertThat(column.codes()).containsExactly(0, -1, 1, 0);
+        assertThat(column.statistics().histogram()).containsExactly(2, 1);
+        assertThat(column.statistics().missing()).isEqualTo(1);
+    }
+
+    @Test
+    void tooManyDistinctValuesBecomeText() {
+        AttributeColumnBuilder builder = new AttributeColumnBuilder("sample_id");
+        int rows = AttributeColumnBuilder.MAX_CATEGORIES + 10;
+        for (int i = 0; i < rows; i++) {
+            // Numbers first, so the column goes numeric -> categorical -> text
+            builder.add(i == 3 ? "" : i < 100 ? String.valueOf(i) : "S-" + i);
+        }
+
+        AttributeColumn column = builder.build();
+
+        assertThat(column.type()).isEqualTo(AttributeColumn.Type.TEXT);
+        assertThat(column.dictionary()).isNull();
+        assertThat(column.codes()).isNull();
+        assertThat(column.texts()).hasSize(rows);
+        assertThat(column.texts()[2]).isEqualTo("2");
+        assertThat(column.texts()[3]).isNull();
+        assertThat(column.texts()[rows - 1]).isEqualTo("S-" + (rows - 1));
+        assertThat(column.statistics().count()).isEqualTo(rows - 1);
+        assertThat(column.statistics().missing()).isEqualTo(1);
+        assertThat(column.statistics().histogram()).isNull();
+    }
+
+    @Test
+    void resumedCategoricalColumnBecomesTextWhenAppendedRowsPassTheCap() {
+        AttributeColumnBuilder builder = new AttributeColumnBuilder("sample_id");
+        builder.add("A");
+        builder.add("A");
+        AttributeColumn before = builder.build();
+
+        AttributeColumnBuilder resumed = AttributeColumnBuilder.resume(before);
+        for (int i = 0; i < AttributeColumnBuilder.MAX_CATEGORIES; i++) {
+            resumed.add("S-" + i);
+        }
+        AttributeColumn after = resumed.build();
+
+        assertThat(before.type()).isEqualTo(AttributeColumn.Type.CATEGORICAL);
+        assertThat(after.type()).isEqualTo(AttributeColumn.Type.TEXT);
+        assertThat(after.texts()).startsWith("A", "A", "S-0");
+        assertThat(after.size()).isEqualTo(2 + AttributeColumnBuilder.MAX_CATEGORIES);
+
+        AttributeColumnBuilder again = AttributeColumnBuilder.resume(after);
+        again.add("");
+        again.add("S-0");
+        AttributeColumn last = again.build();
+        assertThat(last.texts()).endsWith(null, "S-0");
+        assertThat(last.statistics().missing()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.vtkbackend.parser;
+
+import com.example.vtkbackend.model.GeologicalData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeoJsonLParserTest {
+
+    private static final String FEATURE = "{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[%d,1,2]]}}\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void invalidLinesAreSkippedAndCounted() throws IOException {
+        Path file = directory.resolve("fixes.geojsonl");
+        Files.writeString(file, FEATURE.formatted(0) + "{not json\n" + "\n" + "42\n"
+            + "{\"type\":\"Feature\",\"geometry\":null}\n" + FEATURE.formatted(1));
+
+        GeologicalData data = new GeoJsonLParser().parse(file);
+
+        assertThat(data.points()).extracting(GeologicalData.Point3D::x).containsExactly(0.0, 1.0);
+        assertThat(data.features()).hasSize(3);
+        assertThat(data.properties()).containsEntry("rowsRead", 5).containsEntry("rowsSkipped", 2);
+    }
+
+    @Test
+    void appendSkipsInvalidLinesAndLeavesIncompleteLastLine() throws IOException {
+        Path file = directory.resolve("fixes.geojsonl");
+        Files.writeString(file, FEATURE.formatted(0));
+        GeoJsonLParser parser = new GeoJsonLParser();
+        GeologicalData before = parser.parse(file);
+
+        Files.writeString(file, "]]\n" + FEATURE.formatted(1) + "{\"type\":", StandardOpenOption.APPEND);
+        GeologicalData after = parser.append(file, before);
+
+        assertThat(after.points()).extracting(GeologicalData.Point3D::x).containsExactly(0.0, 1.0);
+        assertThat(after.properties()).containsEntry("rowsRead", 3).containsEntry("rowsSkipped", 1);
+        assertThat(AppendableParser.parsedBytes(after)).isEqualTo(Files.size(file) - "{\"type\":".length());
+        assertThat(after.boundingBox().maxX()).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.vtkbackend.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CategoricalIndexTest {
+
+    @Test
+    void columnsAboveTheThresholdAreScannedWithTheSameResults() {
+        int values = CategoricalIndex.MAX_INDEXED_VALUES * 2;
+        List<String> dictionary = IntStream.range(0, values).mapToObj(i -> "v" + i).toList();
+        int[] codes = randomCodes(50_000, values, 1);
+
+        CategoricalIndex index = new CategoricalIndex(codes, dictionary);
+
+        assertThat(index.indexed()).isFalse();
+        assertMatches(index.anyOf(List.of("v3", "v1500", "v2047", "missing")), codes,
+            row -> codes[row] == 3 || codes[row] == 1500 || codes[row] == 2047);
+        assertMatches(index.notEqual("v7"), codes, row -> codes[row] >= 0 && codes[row] != 7);
+    }
+
+    @Test
+    void appendingPastTheThresholdDropsTheBitmaps() {
+        List<String> small = IntStream.range(0, 10).mapToObj(i -> "v" + i).toList();
+        int[] codes = randomCodes(1_000, small.size(), 2);
+        CategoricalIndex index = new CategoricalIndex(codes, small);
+        assertThat(index.indexed()).isTrue();
+
+        int values = CategoricalIndex.MAX_INDEXED_VALUES + 10;
+        List<String> large = IntStream.range(0, values).mapToObj(i -> "v" + i).toList();
+        int[] appended = Arrays.copyOf(codes, codes.length + 5_000);
+        System.arraycopy(randomCodes(5_000, values, 3), 0, appended, codes.length, 5_000);
+        CategoricalIndex grown = index.appended(appended, large);
+
+        assertThat(grown.indexed()).isFalse();
+        assertMatches(grown.anyOf(List.of("v4", "v1030")), appended, row -> appended[row] == 4 || appended[row] == 1030);
+        // The original index still answers for its own rows
+        assertMatches(index.anyOf(List.of("v4")), codes, row -> codes[row] == 4);
+    }
+
+    private static void assertMatches(RowFilter filter, int[] codes, IntPredicate expected) {
+        int[] rows = IntStream.range(0, codes.length).filter(expected).toArray();
+        assertThat(filter.matching().toArray()).containsExactly(rows);
+        assertThat(filter.estimate()).isEqualTo(rows.length);
+        assertThat(IntStream.range(0, codes.length).filter(filter::test).toArray()).containsExactly(rows);
+    }
+
+    private static int[] randomCodes(int rows, int values, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        // About one row in ten is missing
+        return random.ints(rows, -values / 10, values).map(code -> Math.max(code, -1)).toArray();
+    }
+}
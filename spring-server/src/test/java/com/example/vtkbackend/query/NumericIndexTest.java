@@ -0,0 +1,136 @@
+package com.example.vtkbackend.query;
+
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NumericIndexTest {
+
+    @Test
+    void sortedOrderPlacesNegativesBeforePositivesAndSkipsNaN() {
+        double[] values = {3.5, Double.NaN, -0.0, -7.25, Double.NEGATIVE_INFINITY, 0.0, -1e-300,
+            Double.POSITIVE_INFINITY, Double.NaN, 1e-300, -7.25, Double.MAX_VALUE, -Double.MAX_VALUE};
+
+        int[] order = NumericIndex.sortedOrder(values);
+
+        assertThat(order).hasSize(values.length - 2);
+        assertThat(Arrays.stream(order).mapToDouble(row -> values[row]).toArray())
+            .containsExactly(Double.NEGATIVE_INFINITY, -Double.MAX_VALUE, -7.25, -7.25, -1e-300, -0.0, 0.0,
+                1e-300, 3.5, Double.MAX_VALUE, Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    void sortedOrderTreatsBothZerosAsEqual() {
+        double[] values = {0.0, -0.0, 0.0, -0.0};
+
+        // A stable sort on equal keys keeps row order
+        assertThat(NumericIndex.sortedOrder(values)).containsExactly(0, 1, 2, 3);
+    }
+
+    @Test
+    void sortedOrderMatchesComparatorSortOnRandomValues() {
+        double[] values = randomValues(200_000, 1);
+
+        int[] order = NumericIndex.sortedOrder(values);
+
+        Integer[] expected = IntStream.range(0, values.length)
+            .filter(row -> !Double.isNaN(values[row]))
+            .boxed()
+            .sorted(Comparator.comparingDouble(row -> values[row] == 0.0 ? 0.0 : values[row]))
+            .toArray(Integer[]::new);
+        assertThat(order).containsExactly(Arrays.stream(expected).mapToInt(Integer::intValue).toArray());
+    }
+
+    @Test
+    void rangesMatchBruteForceAcrossZonesWithAndWithoutSortedOrder() {
+        // Several zones, with NaN and repeated values, so zone skipping, bulk acceptance and
+        // both sorted-access and scan paths are taken
+        double[] values = randomValues(3 * NumericIndex.ZONE_SIZE + 1234, 2);
+        NumericIndex sorted = NumericIndex.sorted(values);
+        NumericIndex zonesOnly = NumericIndex.zonesOnly(values);
+
+        double[][] ranges = {
+            {-5, 5}, {-1000, 1000}, {0, 0}, {-0.0, 0.0}, {2, 2.5}, {5, -5},
+            {Double.NEGATIVE_INFINITY, -90}, {90, Double.POSITIVE_INFINITY},
+            {Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY}};
+        for (double[] range : ranges) {
+            for (boolean lowInclusive : new boolean[] {true, false}) {
+                for (boolean highInclusive : new boolean[] {true, false}) {
+                    RoaringBitmap expected = bruteForce(values, range[0], lowInclusive, range[1], highInclusive);
+                    RowFilter exact = sorted.range(range[0], lowInclusive, range[1], highInclusive);
+                    RowFilter scanned = zonesOnly.range(range[0], lowInclusive, range[1], highInclusive);
+
+                    assertThat(exact.matching()).as(Arrays.toString(range)).isEqualTo(expected);
+                    assertThat(exact.estimate()).isEqualTo(expected.getLongCardinality());
+                    assertThat(scanned.matching()).as(Arrays.toString(range)).isEqualTo(expected);
+                    assertThat(scanned.estimate()).isGreaterThanOrEqualTo(expected.getLongCardinality());
+                    for (int row = 0; row < values.length; row += 997) {
+                        assertThat(exact.test(row)).isEqualTo(expected.contains(row));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void appendedIndexMatchesIndexBuiltFromScratch() {
+        double[] all = randomValues(NumericIndex.ZONE_SIZE + 5000, 3);
+        for (int prefix : new int[] {0, 1, 1000, NumericIndex.ZONE_SIZE, NumericIndex.ZONE_SIZE + 1}) {
+            NumericIndex previous = NumericIndex.sorted(Arrays.copyOf(all, prefix));
+
+            NumericIndex appended = NumericIndex.appended(previous, all);
+            NumericIndex rebuilt = NumericIndex.sorted(all);
+
+            for (double[] range : new double[][] {{-5, 5}, {-100, 0}, {0, 0}, {10, 100}}) {
+                assertThat(appended.range(range[0], true, range[1], false).matching())
+                    .isEqualTo(rebuilt.range(range[0], true, range[1], false).matching());
+                assertThat(appended.range(range[0], true, range[1], true).estimate())
+                    .isEqualTo(rebuilt.range(range[0], true, range[1], true).estimate());
+            }
+        }
+    }
+
+    @Test
+    void appendedZoneMapsCoverNewRowsOfPartialZone() {
+        double[] previous = {1, 2, 3};
+        double[] all = {1, 2, 3, -50, Double.NaN, 50};
+
+        NumericIndex appended = NumericIndex.appended(NumericIndex.zonesOnly(previous), all);
+
+        assertThat(appended.range(-60, true, -40, true).matching()).isEqualTo(RoaringBitmap.bitmapOf(3));
+        assertThat(appended.range(40, true, 60, true).matching()).isEqualTo(RoaringBitmap.bitmapOf(5));
+    }
+
+    // Negative and positive values, exact repeats, zeros of both signs and about 1% NaN
+    private static double[] randomValues(int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            int kind = random.nextInt(100);
+            values[i] = kind == 0 ? Double.NaN
+                : kind == 1 ? -0.0
+                : kind == 2 ? 0.0
+                : kind < 20 ? random.nextInt(-10, 10) / 2.0
+                : random.nextDouble(-100, 100);
+        }
+        return values;
+    }
+
+    private static RoaringBitmap bruteForce(double[] values, double low, boolean lowInclusive,
+                                            double high, boolean highInclusive) {
+        RoaringBitmap rows = new RoaringBitmap();
+        for (int row = 0; row < values.length; row++) {
+            double v = values[row];
+            if ((lowInclusive ? v >= low : v > low) && (highInclusive ? v <= high : v < high)) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
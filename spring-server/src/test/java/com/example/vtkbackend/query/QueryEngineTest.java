@@ -0,0 +1,232 @@
+package com.example.vtkbackend.query;
+
+import com.example.vtkbackend.model.AttributeColumn;
+import com.example.vtkbackend.model.DatasetQuery;
+import com.example.vtkbackend.model.DatasetQuery.Predicate;
+import com.example.vtkbackend.model.GeologicalData;
+import com.example.vtkbackend.parser.CsvParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryEngineTest {
+
+    @TempDir
+    Path directory;
+
+    // Rows 0..5: grade and concentration, with one missing value in each column
+    private static final String[] GRADES = {"high", "low", null, "high", "medium", "low"};
+    private static final double[] CONCENTRATIONS = {1.0, Double.NaN, 2.5, -3.0, 2.5, 0.0};
+
+    @Test
+    void numericNotEqualExcludesMissingValues() {
+        DatasetIndex index = DatasetIndex.build(small());
+
+        assertThat(rows(index, predicate("concentration", "ne", 2.5))).containsExactly(0, 3, 5);
+    }
+
+    @Test
+    void categoricalNotEqualExcludesMissingValues() {
+        DatasetIndex index = DatasetIndex.build(small());
+
+        assertThat(rows(index, predicate("grade", "ne", "high"))).containsExactly(1, 4, 5);
+        // A value that does not occur excludes only the missing rows
+        assertThat(rows(index, predicate("grade", "ne", "unknown"))).containsExactly(0, 1, 3, 4, 5);
+    }
+
+    @Test
+    void betweenIncludesBothBounds() {
+        DatasetIndex index = DatasetIndex.build(small());
+
+        assertThat(rows(index, between("concentration", 0.0, 2.5))).containsExactly(0, 2, 4, 5);
+        assertThat(rows(index, between("concentration", -3.0, -3.0))).containsExactly(3);
+        assertThat(rows(index, between("concentration", 2.5, 0.0))).isEmpty();
+    }
+
+    @Test
+    void betweenNeedsExactlyTwoValues() {
+        DatasetIndex index = DatasetIndex.build(small());
+
+        assertThatThrownBy(() -> rows(index, new Predicate("concentration", "between", null, List.of(1.0))))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rows(index, between("grade", 0.0, 1.0)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("categorical");
+    }
+
+    @Test
+    void numericOperatorsAcceptNegativeValuesAndNumericStrings() {
+        DatasetIndex index = DatasetIndex.build(small());
+
+        assertThat(rows(index, predicate("concentration", "lt", 0))).containsExactly(3);
+        assertThat(rows(index, predicate("concentration", "lte", "0"))).containsExactly(3, 5);
+        assertThat(rows(index, predicate("concentration", "gt", -3.0))).containsExactly(0, 2, 4, 5);
+        assertThat(rows(index, new Predicate("concentration", "in", null, List.of(-3, "2.5")))).containsExactly(2, 3, 4);
+    }
+
+    @Test
+    void resultDoesNotDependOnPredicateOrder() {
+        // Large enough that later predicates are applied row by row to a small candidate set
+        int n = 100_000;
+        SplittableRandom random = new SplittableRandom(7);
+        String[] grades = new String[n];
+        double[] concentrations = new double[n];
+        for (int i = 0; i < n; i++) {
+            grades[i] = random.nextInt(50) == 0 ? "rare" : random.nextBoolean() ? "high" : "low";
+            concentrations[i] = random.nextInt(100) == 0 ? Double.NaN : random.nextDouble(-10, 10);
+        }
+        DatasetIndex index = DatasetIndex.build(dataset(grades, concentrations));
+
+        Predicate rare = predicate("grade", "eq", "rare");
+        Predicate positive = predicate("concentration", "gt", 0);
+        Predicate notLow = predicate("grade", "ne", "low");
+        int[] expected = expected(n, row -> "rare".equals(grades[row]) && concentrations[row] > 0);
+
+        assertThat(rows(index, rare, positive, notLow)).containsExactly(expected);
+        assertThat(rows(index, positive, notLow, rare)).containsExactly(expected);
+        assertThat(rows(index, notLow, rare, positive)).containsExactly(expected);
+    }
+
+    @Test
+    void boundingBoxAndLimitApplyAfterPredicates() {
+        DatasetIndex index = DatasetIndex.build(small());
+
+        // Points are at x = row, y = -row
+        GeologicalData result = QueryEngine.execute(index, new DatasetQuery(
+            List.of(predicate("grade", "ne", "medium")),
+            new DatasetQuery.Bounds(1.0, -5.0, null, 5.0, null, null), 2));
+
+        assertThat(result.points()).extracting(GeologicalData.Point3D::x).containsExactly(1.0, 3.0);
+        assertThat(result.properties()).containsEntry("matchedPoints", 3).containsEntry("returnedPoints", 2);
+    }
+
+    @Test
+    void unknownColumnsAndOperatorsAreRejected() {
+        DatasetIndex index = DatasetIndex.build(small());
+
+        assertThatThrownBy(() -> rows(index, predicate("missing", "eq", 1)))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rows(index, predicate("concentration", "like", 1)))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rows(index, predicate("concentration", "eq", "gold")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void appendAfterColumnIsDemotedToCategoricalMatchesFullIndex() throws IOException {
+        Path file = directory.resolve("survey.csv");
+        Files.writeString(file, "x,y,z,sample,concentration\n0,0,0,10,1.5\n1,1,1,20,-2\n2,2,2,,3\n");
+        CsvParser parser = new CsvParser();
+        GeologicalData before = parser.parse(file);
+        DatasetIndex previous = DatasetIndex.build(before);
+        assertThat(before.attributes().get(0).type()).isEqualTo(AttributeColumn.Type.NUMERIC);
+
+        Files.writeString(file, "3,3,3,A-7,4\n4,4,4,20,-2\n", StandardOpenOption.APPEND);
+        GeologicalData after = parser.append(file, before);
+        DatasetIndex appended = DatasetIndex.append(previous, after);
+        DatasetIndex rebuilt = DatasetIndex.build(parser.parse(file));
+
+        assertThat(after.attributes().get(0).type()).isEqualTo(AttributeColumn.Type.CATEGORICAL);
+        String twenty = after.attributes().get(0).dictionary().stream()
+            .filter(value -> value.startsWith("20")).findFirst().orElseThrow();
+        for (Predicate predicate : List.of(
+                predicate("sample", "eq", "A-7"),
+                predicate("sample", "eq", twenty),
+                predicate("sample", "ne", twenty),
+                new Predicate("sample", "in", null, List.of("A-7", twenty)),
+                predicate("concentration", "lt", 0),
+                predicate("concentration", "ne", -2))) {
+            assertThat(rows(appended, predicate)).as(predicate.toString()).containsExactly(rows(rebuilt, predicate));
+        }
+        assertThat(rows(appended, predicate("sample", "eq", twenty))).containsExactly(1, 4);
+        assertThat(rows(appended, predicate("sample", "ne", twenty))).containsExactly(0, 3);
+        assertThatThrownBy(() -> rows(appended, predicate("sample", "gt", 10)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void textColumnsAreFilteredWithoutAnIndex() {
+        String[] ids = {"S-1", null, "S-3", "S-1", "S-5", "S-6"};
+        GeologicalData small = small();
+        List<AttributeColumn> attributes = new ArrayList<>(small.attributes());
+        attributes.add(new AttributeColumn("sample_id", AttributeColumn.Type.TEXT, null, null, null, ids,
+            new AttributeColumn.Statistics(5, 1, null, null, null, null, null)));
+        DatasetIndex index = DatasetIndex.build(new GeologicalData(small.points(), List.of(), new HashMap<>(),
+            small.boundingBox(), attributes));
+
+        assertThat(rows(index, predicate("sample_id", "eq", "S-1"))).containsExactly(0, 3);
+        assertThat(rows(index, predicate("sample_id", "ne", "S-1"))).containsExactly(2, 4, 5);
+        assertThat(rows(index, new Predicate("sample_id", "in", null, List.of("S-5", "S-6", "S-9"))))
+            .containsExactly(4, 5);
+        assertThat(rows(index, predicate("sample_id", "eq", "S-1"), predicate("grade", "eq", "high")))
+            .containsExactly(0, 3);
+        assertThatThrownBy(() -> rows(index, predicate("sample_id", "gt", "S-1")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("text");
+
+        GeologicalData result = QueryEngine.execute(index,
+            new DatasetQuery(List.of(predicate("sample_id", "ne", "S-1")), null, null));
+        assertThat(result.attributes().get(2).texts()).containsExactly("S-3", "S-5", "S-6");
+    }
+
+    private static Predicate predicate(String column, String op, Object value) {
+        return new Predicate(column, op, value, null);
+    }
+
+    private static Predicate between(String column, double low, double high) {
+        return new Predicate(column, "between", null, List.of(low, high));
+    }
+
+    // Rows of the dataset matching all predicates, by the x coordinate each point was given
+    private static int[] rows(DatasetIndex index, Predicate... predicates) {
+        GeologicalData result = QueryEngine.execute(index, new DatasetQuery(Arrays.asList(predicates), null, null));
+        return result.points().stream().mapToInt(p -> (int) p.x()).toArray();
+    }
+
+    private static int[] expected(int n, IntPredicate matches) {
+        return IntStream.range(0, n).filter(matches).toArray();
+    }
+
+    private static GeologicalData small() {
+        return dataset(GRADES, CONCENTRATIONS);
+    }
+
+    private static GeologicalData dataset(String[] grades, double[] concentrations) {
+        int n = grades.length;
+        List<GeologicalData.Point3D> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            points.add(new GeologicalData.Point3D(i, -i, 0));
+        }
+        List<String> dictionary = new ArrayList<>();
+        int[] codes = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (grades[i] == null) {
+                codes[i] = -1;
+                continue;
+            }
+            if (!dictionary.contains(grades[i])) {
+                dictionary.add(grades[i]);
+            }
+            codes[i] = dictionary.indexOf(grades[i]);
+        }
+        List<AttributeColumn> attributes = List.of(
+            new AttributeColumn("grade", AttributeColumn.Type.CATEGORICAL, null, codes, dictionary, null),
+            new AttributeColumn("concentration", AttributeColumn.Type.NUMERIC, concentrations, null, null, null));
+        return new GeologicalData(points, List.of(), new HashMap<>(),
+            new GeologicalData.BoundingBox(0, -(n - 1), 0, n - 1, 0, 0), attributes);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.vtkbackend.service;
+
+import com.example.vtkbackend.model.TrackPoint;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TrackServiceTest {
+
+    @Test
+    void newTrackBeyondLimitReplacesLeastRecentlyUpdated() {
+        TrackService service = new TrackService(16, 2, new SimpleMeterRegistry());
+        service.ingest("a", List.of(fix("a", 1)));
+        service.ingest("b", List.of(fix("b", 1)));
+        service.ingest("a", List.of(fix("a", 2)));
+
+        service.ingest("c", List.of(fix("c", 1)));
+
+        assertThat(service.trackIds()).containsExactly("a", "c");
+        assertThat(service.window("b", Long.MIN_VALUE, Long.MAX_VALUE, 10)).isEmpty();
+    }
+
+    @Test
+    void concurrentNewTracksNeverExceedLimit() throws InterruptedException {
+        TrackService service = new TrackService(16, 10, new SimpleMeterRegistry());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            IntStream.range(0, 2000).forEach(i -> executor.submit(() ->
+                service.ingest("t" + i, List.of(fix("t" + i, i)))));
+        }
+
+        assertThat(service.trackIds()).hasSize(10);
+    }
+
+    @Test
+    void rejectsPositionsOutOfRangeWithoutStoringAny() {
+        TrackService service = new TrackService(16, 10, new SimpleMeterRegistry());
+
+        for (double[] position : new double[][] {{90.5, 0}, {-91, 0}, {0, 180.1}, {0, -181}, {Double.NaN, 0}}) {
+            assertThatThrownBy(() -> service.ingest("a",
+                List.of(fix("a", 1), new TrackPoint("a", 2, position[0], position[1], 0))))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThat(service.trackIds()).isEmpty();
+        assertThat(service.ingest("a", List.of(new TrackPoint("a", 1, -90, 180, 0)))).isEqualTo(1);
+    }
+
+    private static TrackPoint fix(String id, long t) {
+        return new TrackPoint(id, t, 45, 7, 0);
+    }
+}